@@ -0,0 +1,86 @@
+package com.projectgroup5.gamedemo.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 把 JMH 的 JSON 结果（-rf json）和保存的基线比较，有回退时返回非 0
+ *
+ * 用法：BaselineCheck <result.json> <baseline.json> [tolerance]
+ * - 按 benchmark + params 对应；avgt / sample / ss 越小越好，thrpt 越大越好
+ * - 变差超过 tolerance（默认 0.15 = 15%）算回退
+ * - 基线文件不存在时只打印结果，不做检查（新机器上先跑一次再把结果存成基线）
+ */
+public class BaselineCheck {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: BaselineCheck <result.json> <baseline.json> [tolerance]");
+            System.exit(2);
+        }
+        File resultFile = new File(args[0]);
+        File baselineFile = new File(args[1]);
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 0.15;
+
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, JsonNode> results = index(mapper.readTree(resultFile));
+        if (!baselineFile.isFile()) {
+            System.out.printf("No baseline at %s, skipping comparison (%d results in %s)%n",
+                    baselineFile, results.size(), resultFile);
+            return;
+        }
+        Map<String, JsonNode> baseline = index(mapper.readTree(baselineFile));
+
+        int regressions = 0;
+        for (Map.Entry<String, JsonNode> e : new TreeMap<>(results).entrySet()) {
+            JsonNode base = baseline.get(e.getKey());
+            JsonNode cur = e.getValue();
+            double score = cur.path("primaryMetric").path("score").asDouble();
+            String unit = cur.path("primaryMetric").path("scoreUnit").asText();
+            if (base == null) {
+                System.out.printf("  NEW   %-80s %12.3f %s%n", e.getKey(), score, unit);
+                continue;
+            }
+            double baseScore = base.path("primaryMetric").path("score").asDouble();
+            boolean higherIsBetter = "thrpt".equals(cur.path("mode").asText());
+            double change = baseScore == 0 ? 0 : (score - baseScore) / baseScore;
+            double worse = higherIsBetter ? -change : change;
+            boolean regressed = worse > tolerance;
+            if (regressed) regressions++;
+            System.out.printf("  %-5s %-80s %12.3f %s (baseline %.3f, %+.1f%%)%n",
+                    regressed ? "FAIL" : "ok", e.getKey(), score, unit, baseScore, change * 100);
+        }
+
+        if (regressions > 0) {
+            System.out.printf("%d benchmark(s) regressed by more than %.0f%%%n", regressions, tolerance * 100);
+            System.exit(1);
+        }
+        System.out.println("No regressions against " + baselineFile);
+    }
+
+    /** benchmark 名 + 参数 -> 结果 */
+    private static Map<String, JsonNode> index(JsonNode root) {
+        Map<String, JsonNode> map = new LinkedHashMap<>();
+        for (JsonNode run : root) {
+            StringBuilder key = new StringBuilder(run.path("benchmark").asText());
+            JsonNode params = run.path("params");
+            if (!params.isMissingNode()) {
+                Map<String, String> sorted = new TreeMap<>();
+                for (Iterator<Map.Entry<String, JsonNode>> it = params.fields(); it.hasNext(); ) {
+                    Map.Entry<String, JsonNode> p = it.next();
+                    sorted.put(p.getKey(), p.getValue().asText());
+                }
+                key.append(sorted);
+            }
+            map.put(key.toString(), run);
+        }
+        return map;
+    }
+}
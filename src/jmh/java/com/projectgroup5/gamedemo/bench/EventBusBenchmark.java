@@ -0,0 +1,36 @@
+package com.projectgroup5.gamedemo.bench;
+
+import com.projectgroup5.gamedemo.event.EventBus;
+import com.projectgroup5.gamedemo.event.ScoreUpdatedEvent;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EventBus.publish 在 0 / 1 / N 个订阅者时的开销（包括事件对象的构造）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class EventBusBenchmark {
+
+    @Param({"0", "1", "8"})
+    public int subscribers;
+
+    private EventBus eventBus;
+    private long sink;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        eventBus = new EventBus();
+        for (int i = 0; i < subscribers; i++) {
+            eventBus.subscribe(ScoreUpdatedEvent.class, e -> sink += e.getDelta());
+        }
+    }
+
+    @Benchmark
+    public long publish() {
+        eventBus.publish(new ScoreUpdatedEvent(1, "player", 10, 100));
+        return sink;
+    }
+}
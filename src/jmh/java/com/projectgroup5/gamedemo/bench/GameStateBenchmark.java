@@ -0,0 +1,101 @@
+package com.projectgroup5.gamedemo.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.projectgroup5.gamedemo.game.AsteroidStore;
+import com.projectgroup5.gamedemo.game.BulletStore;
+import com.projectgroup5.gamedemo.game.EntityStore;
+import com.projectgroup5.gamedemo.game.GameStateWriter;
+import com.projectgroup5.gamedemo.game.GameWorld;
+import com.projectgroup5.gamedemo.game.PlayerEntity;
+import com.projectgroup5.gamedemo.game.SnapshotRing;
+import com.projectgroup5.gamedemo.game.WorldSnapshot;
+import com.projectgroup5.gamedemo.metrics.TickMetrics;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GAME_STATE 编码：关键帧 / 增量，JSON / 二进制
+ *
+ * 两个快照之间玩家都移动了、新增了几颗子弹，石头沿原轨迹运动（增量里不用重发）
+ * 每次调用都先 prepare() 清掉编码缓存，保证真的编码一次
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class GameStateBenchmark {
+    private static final double DT = 1.0 / 60;
+
+    @Param({"20", "200", "1000"})
+    public int entities;
+
+    @Param({"false", "true"})
+    public boolean binary;
+
+    private GameStateWriter writer;
+    private GameWorld world;
+    private SnapshotRing ring;
+    private WorldSnapshot current;
+    private long baseSeq;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        writer = new GameStateWriter(new ObjectMapper().getFactory(), new TickMetrics());
+        world = new GameWorld(1, "bench", "SCORE_100000", 4, 42);
+        for (int i = 0; i < 4; i++) {
+            world.addPlayer("player-" + i);
+        }
+        world.setPhase(GameWorld.GamePhase.IN_PROGRESS);
+
+        Random random = new Random(42);
+        AsteroidStore a = world.getAsteroids();
+        BulletStore b = world.getBullets();
+        for (int i = 0; i < entities; i++) {
+            if (i % 2 == 0) {
+                a.add(world.nextEntityId(), random.nextDouble() * 480, random.nextDouble() * 640,
+                        random.nextBoolean(), random.nextDouble());
+            } else {
+                b.add(world.nextEntityId(), i % 4, random.nextDouble() * 480, random.nextDouble() * 640);
+            }
+        }
+
+        ring = world.getSnapshots();
+        baseSeq = ring.capture(world, DT).getSeq();
+
+        // 下一个快照：所有东西往前走 3 帧，玩家移动，再加几颗子弹
+        for (int f = 0; f < 3; f++) {
+            advance(a);
+            advance(b);
+            world.incrementFrame();
+        }
+        for (PlayerEntity p : world.getPlayerSlots()) {
+            p.x += 5;
+        }
+        for (int i = 0; i < 4; i++) {
+            b.add(world.nextEntityId(), i, 240, 560);
+        }
+        current = ring.capture(world, DT);
+    }
+
+    private static void advance(EntityStore store) {
+        for (int i = 0; i < store.size(); i++) {
+            store.x[i] += store.vx[i] * DT;
+            store.y[i] += store.vy[i] * DT;
+        }
+    }
+
+    @Benchmark
+    public WebSocketMessage<?> keyframe() throws IOException {
+        writer.prepare(world, current, ring, 0, DT);
+        return writer.encode(-1, binary);
+    }
+
+    @Benchmark
+    public WebSocketMessage<?> delta() throws IOException {
+        writer.prepare(world, current, ring, 0, DT);
+        return writer.encode(baseSeq, binary);
+    }
+}
@@ -0,0 +1,60 @@
+package com.projectgroup5.gamedemo.bench;
+
+import com.projectgroup5.gamedemo.dto.CreateRoomRequest;
+import com.projectgroup5.gamedemo.dto.LobbySlotDto;
+import com.projectgroup5.gamedemo.dto.RoomDto;
+import com.projectgroup5.gamedemo.dto.RoomPageDto;
+import com.projectgroup5.gamedemo.service.LobbyService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 大厅快照：读（直接返回已发布的快照）、写（一次准备状态切换 = 重新发布一份快照）、条件分页查询
+ * 每个房间一个房主 + 一个玩家，toggleReady 轮流切换各房间玩家的准备状态
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class LobbyBenchmark {
+
+    @Param({"20", "200", "2000"})
+    public int rooms;
+
+    private LobbyService lobby;
+    private long[] roomIds;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        lobby = new LobbyService(null, null);
+        roomIds = new long[rooms];
+        for (int i = 0; i < rooms; i++) {
+            CreateRoomRequest req = new CreateRoomRequest();
+            req.setMaxPlayers(i % 2 == 0 ? 4 : 2);
+            req.setMapName("map-" + (i % 4));
+            req.setWinMode(i % 3 == 0 ? "TIME_5M" : "SCORE_50");
+            RoomDto room = lobby.createRoom(req, "owner-" + i);
+            lobby.joinRoom(room.getRoomId(), "guest-" + i);
+            roomIds[i] = room.getRoomId();
+        }
+    }
+
+    @Benchmark
+    public List<LobbySlotDto> snapshot() {
+        return lobby.getLobbySnapshot();
+    }
+
+    @Benchmark
+    public RoomDto toggleReady() {
+        int i = next;
+        next = (i + 1) % rooms;
+        return lobby.toggleReady(roomIds[i], "guest-" + i);
+    }
+
+    @Benchmark
+    public RoomPageDto searchFreeRooms() {
+        return lobby.searchRooms("map-1", null, null, Boolean.TRUE, 0, 20);
+    }
+}
@@ -0,0 +1,77 @@
+package com.projectgroup5.gamedemo.bench;
+
+import com.projectgroup5.gamedemo.event.EventBus;
+import com.projectgroup5.gamedemo.game.AsteroidStore;
+import com.projectgroup5.gamedemo.game.BroadphaseStrategy;
+import com.projectgroup5.gamedemo.game.BulletStore;
+import com.projectgroup5.gamedemo.game.GameWorld;
+import com.projectgroup5.gamedemo.game.PhysicsEngine;
+import com.projectgroup5.gamedemo.game.PlayerEntity;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PhysicsEngine.updatePositions / detectCollisions 在不同石头数量下的耗时
+ *
+ * 为了让每次调用的工作量一样，场景是静止的：
+ * - 石头和子弹速度为 0，不会飞出屏幕，也不会触发生成新石头（数量 >= 20）
+ * - 石头在上半屏，子弹在中间一条带，玩家在底部，互相之间不会碰到
+ * 所以测到的是遍历 + broadphase 的成本，而不是碰撞处理的成本
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class PhysicsBenchmark {
+    private static final double DT = 1.0 / 60;
+    private static final int BULLETS = 64;
+
+    @Param({"20", "100", "1000", "10000"})
+    public int asteroids;
+
+    @Param({"SPATIAL_HASH", "BRUTE_FORCE"})
+    public BroadphaseStrategy broadphase;
+
+    private PhysicsEngine engine;
+    private GameWorld world;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engine = new PhysicsEngine(new EventBus(), broadphase);
+        world = new GameWorld(1, "bench", "SCORE_100000", 4, 42);
+        for (int i = 0; i < 4; i++) {
+            world.addPlayer("p" + i);
+        }
+        for (PlayerEntity p : world.getPlayerSlots()) {
+            p.y = 600;
+        }
+        world.setPhase(GameWorld.GamePhase.IN_PROGRESS);
+
+        Random random = new Random(42);
+        AsteroidStore a = world.getAsteroids();
+        for (int i = 0; i < asteroids; i++) {
+            int idx = a.add(world.nextEntityId(), 20 + random.nextDouble() * 440,
+                    random.nextDouble() * 400, random.nextDouble() < 0.4, random.nextDouble());
+            a.vy[idx] = 0;
+        }
+        BulletStore b = world.getBullets();
+        for (int i = 0; i < BULLETS; i++) {
+            int idx = b.add(world.nextEntityId(), i % 4, 10 + random.nextDouble() * 460,
+                    480 + random.nextDouble() * 50);
+            b.vy[idx] = 0;
+        }
+    }
+
+    @Benchmark
+    public GameWorld updatePositions() {
+        engine.updatePositions(world, DT);
+        return world;
+    }
+
+    @Benchmark
+    public GameWorld detectCollisions() {
+        engine.detectCollisions(world);
+        return world;
+    }
+}
@@ -0,0 +1,117 @@
+package com.projectgroup5.gamedemo.loadgen;
+
+import com.projectgroup5.gamedemo.game.GameWorld;
+import com.projectgroup5.gamedemo.websocket.BinaryProtocol;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Arch A bot：/ws/game，按 input-hz 发 PLAYER_INPUT（左右来回 + 一直开火），带上最后收到的快照 seq 作 ACK
+ *
+ * 服务器快照里的 elapsedMs 是服务器时钟，和本地时钟没法直接比，所以延迟按"相对单向延迟"算：
+ * (本地到达时间 - elapsedMs) 减去到目前为止的最小值，即比最快的一帧多等了多久
+ */
+class ArchABot extends BotSession {
+    private static final int IN_PROGRESS = GameWorld.GamePhase.IN_PROGRESS.ordinal();
+    private static final int FINISHED = GameWorld.GamePhase.FINISHED.ordinal();
+
+    private final boolean binary;
+    private final Runnable onFinished;
+
+    // 只在本连接的回调线程上读写
+    private double minOffsetMs = Double.MAX_VALUE;
+    private long prevRecvNanos;
+    private long prevElapsedMs = -1;
+    private boolean finished;
+
+    private volatile long ackSeq = -1;
+    private int inputSeq;
+    private int ticks;
+
+    ArchABot(String username, String token, long roomId, ScenarioStats stats, boolean binary, Runnable onFinished) {
+        super(username, token, roomId, stats);
+        this.binary = binary;
+        this.onFinished = onFinished;
+    }
+
+    @Override
+    protected Object joinMessage() {
+        return "{\"type\":\"JOIN_GAME\",\"username\":\"" + username + "\",\"token\":\"" + token
+                + "\",\"roomId\":" + roomId + (binary ? ",\"protocol\":\"binary\"" : "") + "}";
+    }
+
+    @Override
+    protected void tick() {
+        ticks++;
+        boolean left = (ticks / 20) % 2 == 0;
+        if (binary) {
+            ByteBuffer b = ByteBuffer.allocate(BinaryProtocol.INPUT_LENGTH);
+            b.put((byte) BinaryProtocol.MSG_INPUT);
+            b.put((byte) ((left ? 4 : 8) | 16));
+            b.putInt(++inputSeq);
+            b.putInt((int) ackSeq);
+            send(b.array());
+        } else {
+            send("{\"type\":\"PLAYER_INPUT\",\"moveLeft\":" + left + ",\"moveRight\":" + !left
+                    + ",\"fire\":true,\"ack\":" + ackSeq + "}");
+        }
+    }
+
+    @Override
+    protected void onText(String message, long recvNanos) {
+        if (!message.startsWith("{\"type\":\"GAME_STATE\"")) return;
+        ackSeq = longField(message, "seq", ackSeq);
+        String phase = stringField(message, "phase");
+        if ("IN_PROGRESS".equals(phase)) {
+            onState(longField(message, "elapsedMs", -1), recvNanos);
+        } else if ("FINISHED".equals(phase)) {
+            finish();
+        }
+    }
+
+    @Override
+    protected void onBinary(ByteBuffer message, long recvNanos) {
+        if ((message.get() & 0xFF) != BinaryProtocol.MSG_STATE) return;
+        ackSeq = readVarLong(message);
+        readVarLong(message);            // base
+        readVarLong(message);            // frame
+        readVarLong(message);            // dtMicros
+        int phase = message.get() & 0xFF;
+        long timeMs = readVarLong(message);
+        if (phase == IN_PROGRESS) {
+            onState(timeMs, recvNanos);
+        } else if (phase == FINISHED) {
+            finish();
+        }
+    }
+
+    private void onState(long elapsedMs, long recvNanos) {
+        if (elapsedMs < 0) return;
+        double offsetMs = recvNanos / 1e6 - elapsedMs;
+        if (offsetMs < minOffsetMs) minOffsetMs = offsetMs;
+        stats.recordLatency((long) ((offsetMs - minOffsetMs) * 1e6));
+        if (prevElapsedMs >= 0 && elapsedMs > prevElapsedMs) {
+            stats.recordJitter((recvNanos - prevRecvNanos) - (elapsedMs - prevElapsedMs) * 1_000_000);
+        }
+        prevRecvNanos = recvNanos;
+        prevElapsedMs = elapsedMs;
+    }
+
+    private void finish() {
+        if (finished) return;
+        finished = true;
+        onFinished.run();
+    }
+
+    private static long readVarLong(ByteBuffer b) {
+        long value = 0;
+        int shift = 0;
+        while (b.hasRemaining()) {
+            int v = b.get() & 0xFF;
+            value |= (long) (v & 0x7F) << shift;
+            if ((v & 0x80) == 0) break;
+            shift += 7;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,70 @@
+package com.projectgroup5.gamedemo.loadgen;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Arch B bot：/ws/game-b，按 gossip-hz 发 PLAYER_POSITION，服务器原样转发给同房间其他人（可能合成数组帧）
+ * 消息里带发送时的 System.nanoTime()，所有 bot 在同一个进程里，收到时直接相减就是单向延迟
+ */
+class ArchBBot extends BotSession {
+    private double x = 240;
+    private double dx = 3;
+
+    // 每个发送者上一条的 (sentAt, recvAt)，算抖动；只在本连接的回调线程上读写
+    private final Map<String, long[]> lastFrom = new HashMap<>();
+
+    ArchBBot(String username, String token, long roomId, ScenarioStats stats) {
+        super(username, token, roomId, stats);
+    }
+
+    @Override
+    protected Object joinMessage() {
+        return "{\"type\":\"JOIN_GAME_B\",\"username\":\"" + username + "\",\"token\":\"" + token
+                + "\",\"roomId\":" + roomId + "}";
+    }
+
+    @Override
+    protected void tick() {
+        x += dx;
+        if (x < 20 || x > 460) dx = -dx;
+        send("{\"type\":\"PLAYER_POSITION\",\"username\":\"" + username + "\",\"x\":" + Math.round(x)
+                + ",\"y\":560,\"sentAt\":" + System.nanoTime() + "}");
+    }
+
+    @Override
+    protected void onText(String message, long recvNanos) {
+        if (!message.startsWith("[")) {
+            onGossip(message, recvNanos);
+            return;
+        }
+        // 服务器合包的数组帧：按顶层对象拆开（bot 的消息里没有嵌套对象和带括号的字符串）
+        int depth = 0;
+        int start = -1;
+        for (int i = 1; i < message.length(); i++) {
+            char c = message.charAt(i);
+            if (c == '{') {
+                if (depth++ == 0) start = i;
+            } else if (c == '}' && --depth == 0) {
+                onGossip(message.substring(start, i + 1), recvNanos);
+            }
+        }
+    }
+
+    private void onGossip(String message, long recvNanos) {
+        if (!message.contains("\"PLAYER_POSITION\"")) return;
+        long sentAt = longField(message, "sentAt", 0);
+        String from = stringField(message, "username");
+        if (sentAt == 0 || from == null) return;
+        stats.recordLatency(recvNanos - sentAt);
+
+        long[] last = lastFrom.get(from);
+        if (last == null) {
+            lastFrom.put(from, new long[]{sentAt, recvNanos});
+        } else {
+            stats.recordJitter((recvNanos - last[1]) - (sentAt - last[0]));
+            last[0] = sentAt;
+            last[1] = recvNanos;
+        }
+    }
+}
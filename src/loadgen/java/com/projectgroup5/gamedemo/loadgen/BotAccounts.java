@@ -0,0 +1,41 @@
+package com.projectgroup5.gamedemo.loadgen;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * 压测账号：直接往服务器用的 SQLite 文件里插 bot-00000 ... （已存在的跳过）
+ * 服务器登录时每次查库，所以不用重启服务器
+ */
+final class BotAccounts {
+    static final String PASSWORD = "123456";
+
+    private BotAccounts() {
+    }
+
+    static String username(String prefix, int index) {
+        return String.format("%s-%05d", prefix, index);
+    }
+
+    static void ensure(String dbPath, String prefix, int count) throws SQLException {
+        try (Connection c = DriverManager.getConnection("jdbc:sqlite:" + dbPath)) {
+            c.setAutoCommit(false);
+            long now = System.currentTimeMillis() / 1000;
+            try (PreparedStatement ps = c.prepareStatement(
+                    "INSERT OR IGNORE INTO users (username, email, password_hash, created_at) VALUES (?, ?, ?, ?)")) {
+                for (int i = 0; i < count; i++) {
+                    String name = username(prefix, i);
+                    ps.setString(1, name);
+                    ps.setString(2, name + "@loadgen.local");
+                    ps.setString(3, PASSWORD);
+                    ps.setLong(4, now);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            c.commit();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.projectgroup5.gamedemo.loadgen;
+
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一个房间的一组 bot：第一个是房主
+ *
+ * 生命周期（在 lifecycle 线程池上跑，REST 调用是阻塞的）：
+ *   建房 -> 其他人加入并准备 -> 房主开始 -> 所有人连 WebSocket
+ *   Arch A 一局结束（所有玩家都死了）后离开房间重新建一局，直到场景结束
+ */
+class BotGroup {
+    private static final long RETRY_DELAY_MS = 1000;
+
+    private final List<String> members;
+    private final LoadGenerator.Scenario scenario;
+    private final LoadGenerator loadGenerator;
+    private final ScenarioStats stats;
+    private final ScheduledExecutorService lifecycle;
+    private final ScheduledExecutorService timer;
+
+    private final List<BotSession> sessions = new ArrayList<>();
+    private long roomId = -1;
+    private int generation;
+    private boolean stopped;
+
+    BotGroup(List<String> members, LoadGenerator.Scenario scenario, LoadGenerator loadGenerator,
+             ScenarioStats stats, ScheduledExecutorService lifecycle, ScheduledExecutorService timer) {
+        this.members = members;
+        this.scenario = scenario;
+        this.loadGenerator = loadGenerator;
+        this.stats = stats;
+        this.lifecycle = lifecycle;
+        this.timer = timer;
+    }
+
+    void start(long delayMs) {
+        lifecycle.schedule(this::setUp, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void setUp() {
+        if (stopped) return;
+        LobbyClient lobby = loadGenerator.lobby();
+        try {
+            String owner = members.get(0);
+            String ownerToken = loadGenerator.token(owner);
+            roomId = lobby.createRoom(ownerToken, members.size(), "loadgen", scenario.winMode());
+            for (int i = 1; i < members.size(); i++) {
+                String token = loadGenerator.token(members.get(i));
+                lobby.join(token, roomId);
+                lobby.toggleReady(token, roomId);
+            }
+            lobby.start(ownerToken, roomId, scenario.arch == 'A' ? "a" : "b");
+            stats.gamesStarted.incrementAndGet();
+
+            int gen = ++generation;
+            HttpClient http = loadGenerator.http();
+            List<CompletableFuture<Void>> connecting = new ArrayList<>();
+            for (String username : members) {
+                String token = loadGenerator.token(username);
+                BotSession bot = scenario.arch == 'A'
+                        ? new ArchABot(username, token, roomId, stats, scenario.binary, () -> onFinished(gen))
+                        : new ArchBBot(username, token, roomId, stats);
+                sessions.add(bot);
+                connecting.add(bot.connect(http, loadGenerator.wsUrl(scenario.endpoint()), timer, scenario.hz));
+            }
+            CompletableFuture.allOf(connecting.toArray(new CompletableFuture<?>[0])).get(30, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            stats.errors.incrementAndGet();
+            loadGenerator.logError("room setup for " + members.get(0), e);
+            tearDown();
+            lifecycle.schedule(this::setUp, RETRY_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** 本局结束：任何一个 bot 看到 FINISHED 就算，同一局只处理一次 */
+    private void onFinished(int gen) {
+        synchronized (this) {
+            if (gen != generation || stopped) return;
+            generation++;
+        }
+        stats.gamesFinished.incrementAndGet();
+        lifecycle.execute(() -> {
+            synchronized (this) {
+                tearDown();
+            }
+            setUp();
+        });
+    }
+
+    synchronized void stop() {
+        stopped = true;
+        tearDown();
+    }
+
+    private void tearDown() {
+        for (BotSession session : sessions) {
+            session.close();
+        }
+        sessions.clear();
+        if (roomId < 0) return;
+        LobbyClient lobby = loadGenerator.lobby();
+        for (String username : members) {
+            try {
+                lobby.leave(loadGenerator.token(username), roomId);
+            } catch (Exception e) {
+                loadGenerator.logError("leave room " + roomId, e);
+            }
+        }
+        roomId = -1;
+    }
+}
@@ -0,0 +1,165 @@
+package com.projectgroup5.gamedemo.loadgen;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一个 bot 的 WebSocket 连接
+ *
+ * - 收到的分片在这里拼好再交给子类（回调在同一连接上是串行的）
+ * - 定时发送：上一条还没发完就跳过本次（记 sendSkipped），不在客户端堆积
+ */
+abstract class BotSession implements WebSocket.Listener {
+    protected final String username;
+    protected final String token;
+    protected final long roomId;
+    protected final ScenarioStats stats;
+
+    private final StringBuilder text = new StringBuilder();
+    private ByteBuffer binary = ByteBuffer.allocate(4096);
+
+    private volatile WebSocket socket;
+    private volatile CompletableFuture<WebSocket> pending = CompletableFuture.completedFuture(null);
+    private ScheduledFuture<?> ticker;
+
+    BotSession(String username, String token, long roomId, ScenarioStats stats) {
+        this.username = username;
+        this.token = token;
+        this.roomId = roomId;
+        this.stats = stats;
+    }
+
+    /** 连接并发送加入消息，之后按 hz 调 tick() */
+    CompletableFuture<Void> connect(HttpClient http, String wsUrl, ScheduledExecutorService timer, double hz) {
+        return http.newWebSocketBuilder()
+                .buildAsync(URI.create(wsUrl), this)
+                .thenAccept(ws -> {
+                    socket = ws;
+                    stats.connected.incrementAndGet();
+                    send(joinMessage());
+                    long period = (long) (1_000_000_000L / hz);
+                    long offset = ThreadLocalRandom.current().nextLong(period);
+                    ticker = timer.scheduleAtFixedRate(this::safeTick, offset, period, TimeUnit.NANOSECONDS);
+                });
+    }
+
+    void close() {
+        if (ticker != null) ticker.cancel(false);
+        WebSocket ws = socket;
+        if (ws != null) {
+            socket = null;
+            stats.connected.decrementAndGet();
+            pending.whenComplete((r, e) -> ws.sendClose(WebSocket.NORMAL_CLOSURE, "bye"));
+        }
+    }
+
+    protected abstract Object joinMessage();
+
+    protected abstract void tick();
+
+    protected void onText(String message, long recvNanos) {
+    }
+
+    protected void onBinary(ByteBuffer message, long recvNanos) {
+    }
+
+    /** String 发文本，byte[] 发二进制 */
+    protected void send(Object message) {
+        WebSocket ws = socket;
+        if (ws == null) return;
+        if (!pending.isDone()) {
+            stats.recordSkipped();
+            return;
+        }
+        pending = message instanceof byte[] bytes
+                ? ws.sendBinary(ByteBuffer.wrap(bytes), true)
+                : ws.sendText((String) message, true);
+        pending.whenComplete((r, e) -> {
+            if (e != null) stats.errors.incrementAndGet();
+        });
+        stats.recordSent();
+    }
+
+    private void safeTick() {
+        try {
+            tick();
+        } catch (Exception e) {
+            stats.errors.incrementAndGet();
+        }
+    }
+
+    @Override
+    public CompletionStage<?> onText(WebSocket ws, CharSequence data, boolean last) {
+        text.append(data);
+        if (last) {
+            long now = System.nanoTime();
+            String message = text.toString();
+            text.setLength(0);
+            stats.recordMessage(message.length());
+            onText(message, now);
+        }
+        ws.request(1);
+        return null;
+    }
+
+    @Override
+    public CompletionStage<?> onBinary(WebSocket ws, ByteBuffer data, boolean last) {
+        if (binary.remaining() < data.remaining()) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(binary.capacity() * 2, binary.position() + data.remaining()));
+            binary.flip();
+            bigger.put(binary);
+            binary = bigger;
+        }
+        binary.put(data);
+        if (last) {
+            long now = System.nanoTime();
+            binary.flip();
+            stats.recordMessage(binary.remaining());
+            onBinary(binary, now);
+            binary.clear();
+        }
+        ws.request(1);
+        return null;
+    }
+
+    @Override
+    public CompletionStage<?> onClose(WebSocket ws, int statusCode, String reason) {
+        if (ticker != null) ticker.cancel(false);
+        return null;
+    }
+
+    @Override
+    public void onError(WebSocket ws, Throwable error) {
+        stats.errors.incrementAndGet();
+        if (ticker != null) ticker.cancel(false);
+    }
+
+    /** 在 JSON 文本里找 "name":数字，找不到返回 fallback（只用于服务器生成的固定格式） */
+    static long longField(String json, String name, long fallback) {
+        String key = "\"" + name + "\":";
+        int i = json.indexOf(key);
+        if (i < 0) return fallback;
+        i += key.length();
+        int end = i;
+        if (end < json.length() && json.charAt(end) == '-') end++;
+        while (end < json.length() && Character.isDigit(json.charAt(end))) end++;
+        return end == i ? fallback : Long.parseLong(json.substring(i, end));
+    }
+
+    static String stringField(String json, String name) {
+        String key = "\"" + name + "\":\"";
+        int i = json.indexOf(key);
+        if (i < 0) return null;
+        i += key.length();
+        int end = json.indexOf('"', i);
+        return end < 0 ? null : json.substring(i, end);
+    }
+}
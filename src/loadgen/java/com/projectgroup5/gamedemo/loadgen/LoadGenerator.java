@@ -0,0 +1,217 @@
+package com.projectgroup5.gamedemo.loadgen;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无界面压测：用一批 bot 账号对本地启动的服务器跑完整流程（登录 -> 建房/加入 -> 开始 -> WebSocket）
+ *
+ * 用法（先启动服务器）：
+ *   mvn -Ploadgen verify -DskipTests -Dloadgen.args="--bots 400 --duration 60 --scenarios A,A-binary,B"
+ *
+ * 参数：
+ *   --base URL          服务器地址，默认 http://localhost:8080
+ *   --db PATH           服务器用的 SQLite 文件，用来插入 bot 账号，默认 src/main/resources/airplane.db
+ *   --bots N            每个场景的 bot 数，默认 100
+ *   --room-size N       每个房间几个 bot（1-4），默认 4
+ *   --ramp S            爬坡秒数（房间在这段时间内均匀建立，不计入统计），默认 10
+ *   --duration S        统计时长（秒），默认 30
+ *   --scenarios LIST    A（JSON 快照）、A-binary（二进制快照）、B（gossip 转发），默认 A,B
+ *   --input-hz N        Arch A 输入频率，默认 20
+ *   --gossip-hz N       Arch B 位置广播频率，默认 60
+ *   --prefix NAME       bot 用户名前缀，默认 bot
+ *   --report PATH       JSON 报告，默认 target/loadgen-report.json
+ *
+ * 每个场景输出：状态到达延迟和抖动的 p50/p99/p999、收发吞吐、服务器 CPU（/metrics 的进程 CPU 时间差）
+ */
+public class LoadGenerator {
+
+    /** 一个压测场景 */
+    static class Scenario {
+        final String name;
+        final char arch;        // 'A' / 'B'
+        final boolean binary;
+        final double hz;
+        final int durationSeconds;
+
+        Scenario(String name, char arch, boolean binary, double hz, int durationSeconds) {
+            this.name = name;
+            this.arch = arch;
+            this.binary = binary;
+            this.hz = hz;
+            this.durationSeconds = durationSeconds;
+        }
+
+        String endpoint() {
+            return arch == 'A' ? "/ws/game" : "/ws/game-b";
+        }
+
+        /** 时间上限比场景长，一局只会因为所有玩家都死了而结束 */
+        String winMode() {
+            return "TIME_" + (durationSeconds / 60 + 5) + "M";
+        }
+    }
+
+    private final Map<String, String> options;
+    private final ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    private final LobbyClient lobby;
+    private final String baseUrl;
+    private final Map<String, String> tokens = new ConcurrentHashMap<>();
+    private final AtomicLong loggedErrors = new AtomicLong();
+
+    LoadGenerator(Map<String, String> options) {
+        this.options = options;
+        this.baseUrl = option("base", "http://localhost:8080");
+        this.lobby = new LobbyClient(http, mapper, baseUrl);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new ConcurrentHashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        new LoadGenerator(options).run();
+    }
+
+    private void run() throws Exception {
+        int bots = Integer.parseInt(option("bots", "100"));
+        int roomSize = Math.max(1, Math.min(4, Integer.parseInt(option("room-size", "4"))));
+        int ramp = Integer.parseInt(option("ramp", "10"));
+        int duration = Integer.parseInt(option("duration", "30"));
+        String prefix = option("prefix", "bot");
+
+        BotAccounts.ensure(option("db", "src/main/resources/airplane.db"), prefix, bots);
+
+        List<Map<String, Object>> reports = new ArrayList<>();
+        for (String name : option("scenarios", "A,B").split(",")) {
+            Scenario scenario = scenario(name.trim(), duration);
+            reports.add(runScenario(scenario, bots, roomSize, ramp, prefix));
+        }
+
+        File report = new File(option("report", "target/loadgen-report.json"));
+        if (report.getParentFile() != null) {
+            report.getParentFile().mkdirs();
+        }
+        mapper.writeValue(report, reports);
+        System.out.println("Report written to " + report.getPath());
+    }
+
+    private Scenario scenario(String name, int duration) {
+        double inputHz = Double.parseDouble(option("input-hz", "20"));
+        double gossipHz = Double.parseDouble(option("gossip-hz", "60"));
+        return switch (name.toUpperCase()) {
+            case "A" -> new Scenario("A", 'A', false, inputHz, duration);
+            case "A-BINARY" -> new Scenario("A-binary", 'A', true, inputHz, duration);
+            case "B" -> new Scenario("B", 'B', false, gossipHz, duration);
+            default -> throw new IllegalArgumentException("Unknown scenario: " + name);
+        };
+    }
+
+    private Map<String, Object> runScenario(Scenario scenario, int bots, int roomSize, int ramp, String prefix)
+            throws Exception {
+        System.out.printf("== Scenario %s: %d bots, %d per room, ramp %ds, measure %ds%n",
+                scenario.name, bots, roomSize, ramp, scenario.durationSeconds);
+        ScenarioStats stats = new ScenarioStats(scenario.name);
+        int cores = Runtime.getRuntime().availableProcessors();
+        ScheduledExecutorService timer = Executors.newScheduledThreadPool(Math.max(2, cores), daemon("bot-timer"));
+        ScheduledExecutorService lifecycle = Executors.newScheduledThreadPool(Math.max(8, cores * 2), daemon("bot-lifecycle"));
+
+        List<BotGroup> groups = new ArrayList<>();
+        for (int first = 0; first < bots; first += roomSize) {
+            List<String> members = new ArrayList<>();
+            for (int i = first; i < Math.min(bots, first + roomSize); i++) {
+                members.add(BotAccounts.username(prefix, i));
+            }
+            groups.add(new BotGroup(members, scenario, this, stats, lifecycle, timer));
+        }
+        long rampMs = ramp * 1000L;
+        for (int i = 0; i < groups.size(); i++) {
+            groups.get(i).start(groups.size() == 1 ? 0 : rampMs * i / (groups.size() - 1));
+        }
+
+        Thread.sleep(rampMs + 1000);
+        JsonNode before = lobby.serverMetrics();
+        stats.start();
+        Thread.sleep(scenario.durationSeconds * 1000L);
+        stats.stop();
+        JsonNode after = lobby.serverMetrics();
+        stats.setServerCpu(after.path("process").path("cpuSeconds").asDouble()
+                        - before.path("process").path("cpuSeconds").asDouble(),
+                after.path("process").path("availableProcessors").asInt());
+
+        for (BotGroup group : groups) {
+            lifecycle.execute(group::stop);
+        }
+        lifecycle.shutdown();
+        lifecycle.awaitTermination(60, TimeUnit.SECONDS);
+        timer.shutdownNow();
+
+        Map<String, Object> report = stats.toReport(bots);
+        System.out.println(mapper.writeValueAsString(report));
+        return report;
+    }
+
+    // ================== 给 BotGroup 用 ==================
+
+    LobbyClient lobby() {
+        return lobby;
+    }
+
+    HttpClient http() {
+        return http;
+    }
+
+    String wsUrl(String path) {
+        return baseUrl.replaceFirst("^http", "ws") + path;
+    }
+
+    /** 登录一次后缓存 token（服务器对同一用户也会复用 token） */
+    String token(String username) throws IOException, InterruptedException {
+        String token = tokens.get(username);
+        if (token == null) {
+            token = lobby.login(username, BotAccounts.PASSWORD);
+            tokens.put(username, token);
+        }
+        return token;
+    }
+
+    /** 错误只打印前几条，其余只计数 */
+    void logError(String what, Exception e) {
+        if (loggedErrors.incrementAndGet() <= 20) {
+            System.err.println("[loadgen] " + what + " failed: " + e);
+        }
+    }
+
+    private String option(String name, String fallback) {
+        return options.getOrDefault(name, fallback);
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger seq = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + seq.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
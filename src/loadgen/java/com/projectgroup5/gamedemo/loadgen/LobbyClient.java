@@ -0,0 +1,84 @@
+package com.projectgroup5.gamedemo.loadgen;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * 走和浏览器一样的 REST 流程：/api/login -> /api/lobby/rooms -> join / toggle-ready -> start
+ * 所有方法都是阻塞的，只在 BotGroup 的生命周期线程上调用
+ */
+class LobbyClient {
+    private final HttpClient http;
+    private final ObjectMapper mapper;
+    private final String baseUrl;
+
+    LobbyClient(HttpClient http, ObjectMapper mapper, String baseUrl) {
+        this.http = http;
+        this.mapper = mapper;
+        this.baseUrl = baseUrl;
+    }
+
+    /** 登录，返回 token */
+    String login(String username, String password) throws IOException, InterruptedException {
+        String body = mapper.writeValueAsString(Map.of("username", username, "password", password));
+        return post("/api/login", body, null).path("token").asText();
+    }
+
+    /** 创建房间，返回 roomId */
+    long createRoom(String token, int maxPlayers, String mapName, String winMode) throws IOException, InterruptedException {
+        String body = mapper.writeValueAsString(Map.of(
+                "maxPlayers", maxPlayers, "mapName", mapName, "winMode", winMode));
+        return post("/api/lobby/rooms", body, token).path("roomId").asLong();
+    }
+
+    void join(String token, long roomId) throws IOException, InterruptedException {
+        post("/api/lobby/rooms/" + roomId + "/join", "{}", token);
+    }
+
+    void toggleReady(String token, long roomId) throws IOException, InterruptedException {
+        post("/api/lobby/rooms/" + roomId + "/toggle-ready", "{}", token);
+    }
+
+    /** arch: "a" 或 "b" */
+    void start(String token, long roomId, String arch) throws IOException, InterruptedException {
+        post("/api/lobby/rooms/" + roomId + "/start-architecture-" + arch, "{}", token);
+    }
+
+    void leave(String token, long roomId) throws IOException, InterruptedException {
+        post("/api/lobby/rooms/" + roomId + "/leave", "{}", token);
+    }
+
+    /** 服务器 /metrics 的 JSON 版本 */
+    JsonNode serverMetrics() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/metrics?format=json"))
+                .timeout(Duration.ofSeconds(10))
+                .GET()
+                .build();
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        return mapper.readTree(response.body());
+    }
+
+    private JsonNode post(String path, String body, String token) throws IOException, InterruptedException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        HttpResponse<String> response = http.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("POST " + path + " -> " + response.statusCode() + " " + response.body());
+        }
+        String text = response.body();
+        return text.startsWith("{") || text.startsWith("[") ? mapper.readTree(text) : mapper.createObjectNode();
+    }
+}
@@ -0,0 +1,115 @@
+package com.projectgroup5.gamedemo.loadgen;
+
+import com.projectgroup5.gamedemo.metrics.Histogram;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一个场景的统计：只在 recording 期间（爬坡结束后）记录
+ * 延迟和抖动用服务器同一个 Histogram（纳秒）
+ */
+class ScenarioStats {
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    final String name;
+    volatile boolean recording;
+
+    // 状态到达延迟：Arch B 是发送 -> 对端收到；Arch A 是相对最小单向延迟的额外延迟
+    final Histogram latency = new Histogram();
+    // 抖动：相邻两条消息的到达间隔与发送间隔之差的绝对值
+    final Histogram jitter = new Histogram();
+
+    final AtomicLong received = new AtomicLong();
+    final AtomicLong bytesReceived = new AtomicLong();
+    final AtomicLong sent = new AtomicLong();
+    final AtomicLong sendSkipped = new AtomicLong();   // 上一次发送还没完成，跳过本次
+    final AtomicLong errors = new AtomicLong();
+    final AtomicLong gamesStarted = new AtomicLong();
+    final AtomicLong gamesFinished = new AtomicLong();
+    final AtomicLong connected = new AtomicLong();
+
+    private long startNanos;
+    private long endNanos;
+    private long connectedAtStop;
+    private double serverCpuSeconds;
+    private int serverProcessors;
+
+    ScenarioStats(String name) {
+        this.name = name;
+    }
+
+    void start() {
+        startNanos = System.nanoTime();
+        recording = true;
+    }
+
+    void stop() {
+        recording = false;
+        endNanos = System.nanoTime();
+        connectedAtStop = connected.get();
+    }
+
+    void setServerCpu(double cpuSeconds, int processors) {
+        this.serverCpuSeconds = cpuSeconds;
+        this.serverProcessors = processors;
+    }
+
+    void recordMessage(int bytes) {
+        if (!recording) return;
+        received.incrementAndGet();
+        bytesReceived.addAndGet(bytes);
+    }
+
+    void recordLatency(long nanos) {
+        if (recording) latency.record(nanos);
+    }
+
+    void recordJitter(long nanos) {
+        if (recording) jitter.record(Math.abs(nanos));
+    }
+
+    void recordSent() {
+        if (recording) sent.incrementAndGet();
+    }
+
+    void recordSkipped() {
+        if (recording) sendSkipped.incrementAndGet();
+    }
+
+    Map<String, Object> toReport(int bots) {
+        double seconds = Math.max(1e-9, (endNanos - startNanos) / 1e9);
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("scenario", name);
+        m.put("bots", bots);
+        m.put("connected", connectedAtStop);
+        m.put("seconds", round(seconds));
+        m.put("receivedPerSec", round(received.get() / seconds));
+        m.put("sentPerSec", round(sent.get() / seconds));
+        m.put("receivedMBPerSec", round(bytesReceived.get() / seconds / 1e6));
+        m.put("latencyMs", summary(latency.snapshot()));
+        m.put("jitterMs", summary(jitter.snapshot()));
+        m.put("serverCpuCores", round(serverCpuSeconds / seconds));
+        m.put("serverCpuPercent", serverProcessors == 0 ? 0 : round(100 * serverCpuSeconds / seconds / serverProcessors));
+        m.put("sendSkipped", sendSkipped.get());
+        m.put("errors", errors.get());
+        m.put("gamesStarted", gamesStarted.get());
+        m.put("gamesFinished", gamesFinished.get());
+        return m;
+    }
+
+    private static Map<String, Object> summary(Histogram.Snapshot h) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("count", h.getCount());
+        m.put("p50", round(h.valueAtPercentile(50) / NANOS_PER_MILLI));
+        m.put("p99", round(h.valueAtPercentile(99) / NANOS_PER_MILLI));
+        m.put("p999", round(h.valueAtPercentile(99.9) / NANOS_PER_MILLI));
+        m.put("max", round(h.getMax() / NANOS_PER_MILLI));
+        return m;
+    }
+
+    private static double round(double v) {
+        return Math.round(v * 1000) / 1000.0;
+    }
+}
@@ -95,7 +95,8 @@ public class DatabaseInitializer implements CommandLineRunner {
                 room_id     INTEGER NOT NULL,
                 started_at  INTEGER NOT NULL,
                 ended_at    INTEGER NOT NULL,
-                result_json TEXT    NOT NULL
+                result_json TEXT    NOT NULL,
+                replay_file TEXT
             )
             """;
 
@@ -104,6 +105,8 @@ public class DatabaseInitializer implements CommandLineRunner {
             logger.info("✓ users table ready");
 
             jdbcTemplate.execute(createGameLogsTable);
+            // 老数据库没有 replay_file 列，补上（可为空：回放可能被清理或没有录制）
+            addColumnIfMissing("game_logs", "replay_file", "TEXT");
             logger.info("✓ game_logs table ready");
         } catch (Exception e) {
             logger.error("Error creating tables", e);
@@ -111,6 +114,15 @@ public class DatabaseInitializer implements CommandLineRunner {
         }
     }
 
+    private void addColumnIfMissing(String table, String column, String type) {
+        boolean exists = jdbcTemplate.queryForList("PRAGMA table_info(" + table + ")").stream()
+                .anyMatch(row -> column.equalsIgnoreCase(String.valueOf(row.get("name"))));
+        if (!exists) {
+            jdbcTemplate.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + type);
+            logger.info("Added column {}.{}", table, column);
+        }
+    }
+
     private void initializeData() {
         logger.info("Initializing data...");
 
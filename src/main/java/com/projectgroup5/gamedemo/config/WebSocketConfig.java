@@ -2,6 +2,8 @@ package com.projectgroup5.gamedemo.config;
 
 import com.projectgroup5.gamedemo.websocket.GameWebSocketHandler;
 import com.projectgroup5.gamedemo.websocket.GameWebSocketHandlerB;
+import com.projectgroup5.gamedemo.websocket.LobbyWebSocketHandler;
+import com.projectgroup5.gamedemo.websocket.ReplayWebSocketHandler;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.*;
 
@@ -14,11 +16,17 @@ public class WebSocketConfig implements WebSocketConfigurer {
 
     private final GameWebSocketHandler gameWebSocketHandlerA;
     private final GameWebSocketHandlerB gameWebSocketHandlerB;
+    private final LobbyWebSocketHandler lobbyWebSocketHandler;
+    private final ReplayWebSocketHandler replayWebSocketHandler;
 
     public WebSocketConfig(GameWebSocketHandler gameWebSocketHandlerA,
-                           GameWebSocketHandlerB gameWebSocketHandlerB) {
+                           GameWebSocketHandlerB gameWebSocketHandlerB,
+                           LobbyWebSocketHandler lobbyWebSocketHandler,
+                           ReplayWebSocketHandler replayWebSocketHandler) {
         this.gameWebSocketHandlerA = gameWebSocketHandlerA;
         this.gameWebSocketHandlerB = gameWebSocketHandlerB;
+        this.lobbyWebSocketHandler = lobbyWebSocketHandler;
+        this.replayWebSocketHandler = replayWebSocketHandler;
     }
 
     @Override
@@ -30,6 +38,14 @@ public class WebSocketConfig implements WebSocketConfigurer {
         // Architecture B (P2P Host，经服务器中转)
         registry.addHandler(gameWebSocketHandlerB, "/ws/game-b")
                 .setAllowedOrigins("*");
+
+        // 大厅推送（替代 REST 轮询）
+        registry.addHandler(lobbyWebSocketHandler, "/ws/lobby")
+                .setAllowedOrigins("*");
+
+        // 回放观战（按种子 + 输入日志重新模拟）
+        registry.addHandler(replayWebSocketHandler, "/ws/replay")
+                .setAllowedOrigins("*");
     }
 }
 
@@ -1,13 +1,77 @@
 package com.projectgroup5.gamedemo.controller;
 
+import com.projectgroup5.gamedemo.dao.GameLogWriter;
+import com.projectgroup5.gamedemo.dto.GameLogWriterStatsDto;
+import com.projectgroup5.gamedemo.dto.TickShardStatsDto;
+import com.projectgroup5.gamedemo.game.GameRoomManager;
+import com.projectgroup5.gamedemo.game.GameTickScheduler;
+import com.projectgroup5.gamedemo.game.TickShard;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @RestController
 public class HealthController {
 
+    private final GameTickScheduler tickScheduler;
+    private final GameRoomManager roomManager;
+    private final GameLogWriter gameLogWriter;
+
+    public HealthController(GameTickScheduler tickScheduler, GameRoomManager roomManager,
+                            GameLogWriter gameLogWriter) {
+        this.tickScheduler = tickScheduler;
+        this.roomManager = roomManager;
+        this.gameLogWriter = gameLogWriter;
+    }
+
     @GetMapping("/health")
     public String health() {
         return "OK";
     }
+
+    /**
+     * 各 tick 分片的负载情况，overruns 持续增长说明该分片跟不上
+     * avgTickAllocBytes 突然变大说明热路径引入了新的分配
+     */
+    @GetMapping("/health/ticks")
+    public List<TickShardStatsDto> tickShards() {
+        List<TickShardStatsDto> list = new ArrayList<>();
+        for (TickShard shard : tickScheduler.getShards()) {
+            TickShardStatsDto dto = new TickShardStatsDto();
+            long ticks = shard.getTicks();
+            dto.setShard(shard.getIndex());
+            dto.setRooms(roomManager.getPartition(shard.getIndex()).size());
+            dto.setTicks(ticks);
+            dto.setOverruns(shard.getOverruns());
+            dto.setLastTickMs(shard.getLastTickNanos() / 1_000_000.0);
+            dto.setMaxTickMs(shard.getMaxTickNanos() / 1_000_000.0);
+            dto.setAvgTickMs(ticks == 0 ? 0 : shard.getTotalTickNanos() / 1_000_000.0 / ticks);
+            dto.setBudgetMs(shard.getPeriodNanos() / 1_000_000.0);
+            dto.setLastTickAllocBytes(shard.getLastTickAllocatedBytes());
+            dto.setAvgTickAllocBytes(ticks == 0 ? 0 : shard.getTotalAllocatedBytes() / ticks);
+            list.add(dto);
+        }
+        return list;
+    }
+
+    /**
+     * GameLog 异步写入：queueDepth 持续增长说明写盘跟不上，rejected > 0 说明有日志被丢弃
+     */
+    @GetMapping("/health/gamelog")
+    public GameLogWriterStatsDto gameLogWriter() {
+        GameLogWriterStatsDto dto = new GameLogWriterStatsDto();
+        long commits = gameLogWriter.getCommits();
+        dto.setQueueDepth(gameLogWriter.getQueueDepth());
+        dto.setSubmitted(gameLogWriter.getSubmitted());
+        dto.setRejected(gameLogWriter.getRejected());
+        dto.setWritten(gameLogWriter.getWritten());
+        dto.setFailed(gameLogWriter.getFailed());
+        dto.setCommits(commits);
+        dto.setLastCommitMs(gameLogWriter.getLastCommitNanos() / 1_000_000.0);
+        dto.setMaxCommitMs(gameLogWriter.getMaxCommitNanos() / 1_000_000.0);
+        dto.setAvgCommitMs(commits == 0 ? 0 : gameLogWriter.getTotalCommitNanos() / 1_000_000.0 / commits);
+        return dto;
+    }
 }
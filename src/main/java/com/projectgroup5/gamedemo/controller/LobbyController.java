@@ -1,29 +1,27 @@
 package com.projectgroup5.gamedemo.controller;
 
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.projectgroup5.gamedemo.dao.GameLogRepository;
 import com.projectgroup5.gamedemo.dto.CreateRoomRequest;
 import com.projectgroup5.gamedemo.dto.LeaderboardEntryDto;
 import com.projectgroup5.gamedemo.dto.LobbySlotDto;
 import com.projectgroup5.gamedemo.dto.GameRoomConfigDto;
 import com.projectgroup5.gamedemo.dto.RoomDto;
-import com.projectgroup5.gamedemo.entity.GameLog;
+import com.projectgroup5.gamedemo.dto.RoomPageDto;
 import com.projectgroup5.gamedemo.entity.User;
 import com.projectgroup5.gamedemo.game.GameRoomManager;
 import com.projectgroup5.gamedemo.service.AuthService;
 import com.projectgroup5.gamedemo.service.GameMode;
+import com.projectgroup5.gamedemo.service.LeaderboardService;
 import com.projectgroup5.gamedemo.service.LobbyService;
 import com.projectgroup5.gamedemo.websocket.GameWebSocketHandlerB;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.slf4j.Logger;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/lobby")
@@ -33,21 +31,20 @@ public class LobbyController {
     private final LobbyService lobbyService;
     private final AuthService authService;
     private final GameRoomManager gameRoomManager;
-    private final GameLogRepository gameLogRepository;
-    private final ObjectMapper objectMapper;
+    private final LeaderboardService leaderboardService;
 
     private static final Logger logger = LoggerFactory.getLogger(LobbyController.class);
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     public LobbyController(LobbyService lobbyService, 
                           AuthService authService,
                           GameRoomManager gameRoomManager,
-                          GameLogRepository gameLogRepository,
-                          ObjectMapper objectMapper) {
+                          LeaderboardService leaderboardService) {
         this.lobbyService = lobbyService;
         this.authService = authService;
         this.gameRoomManager = gameRoomManager;
-        this.gameLogRepository = gameLogRepository;
-        this.objectMapper = objectMapper;
+        this.leaderboardService = leaderboardService;
     }
 
     // 大厅 20 个桌子状态
@@ -56,6 +53,42 @@ public class LobbyController {
         return ResponseEntity.ok(lobbyService.getLobbySnapshot());
     }
 
+    // 按条件分页查房间：?map=&winMode=&arch=A|B&hasFreeSlot=true&cursor=&limit=
+    @GetMapping("/rooms")
+    public ResponseEntity<?> searchRooms(
+            @RequestParam(required = false) String map,
+            @RequestParam(required = false) String winMode,
+            @RequestParam(required = false) String arch,
+            @RequestParam(required = false) Boolean hasFreeSlot,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+
+        GameMode mode = null;
+        if (arch != null && !arch.isEmpty()) {
+            switch (arch.toUpperCase()) {
+                case "A", "ARCH_A" -> mode = GameMode.ARCH_A;
+                case "B", "ARCH_B" -> mode = GameMode.ARCH_B;
+                default -> {
+                    return ResponseEntity.badRequest().body("Invalid arch: " + arch);
+                }
+            }
+        }
+
+        long after = 0;
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                after = Long.parseLong(cursor);
+            } catch (NumberFormatException e) {
+                return ResponseEntity.badRequest().body("Invalid cursor: " + cursor);
+            }
+        }
+
+        int pageSize = Math.max(1, Math.min(MAX_PAGE_SIZE, limit));
+        RoomPageDto page = lobbyService.searchRooms(emptyToNull(map), emptyToNull(winMode),
+                mode, hasFreeSlot, after, pageSize);
+        return ResponseEntity.ok(page);
+    }
+
     // 创建房间
     @PostMapping("/rooms")
     public ResponseEntity<?> createRoom(
@@ -71,7 +104,7 @@ public class LobbyController {
         RoomDto room = lobbyService.createRoom(request, ownerName);
         if (room == null) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                    .body("Cannot create room, maybe no free table or you are already in a room.");
+                    .body("Cannot create room, you are already in a room.");
         }
         return ResponseEntity.ok(room);
     }
@@ -193,6 +226,10 @@ public class LobbyController {
         return authService.getUserByToken(token);
     }
 
+    private static String emptyToNull(String s) {
+        return s == null || s.isEmpty() ? null : s;
+    }
+
 
     @PostMapping("/rooms/{roomId}/start")
     public ResponseEntity<?> startRoom(
@@ -220,85 +257,21 @@ public class LobbyController {
     public ResponseEntity<GameRoomConfigDto> getRoomConfig(
             @PathVariable("roomId") long roomId) {
 
-        return lobbyService.findRoom(roomId)
-                .map(room -> {
-                    GameRoomConfigDto dto = new GameRoomConfigDto();
-                    dto.setRoomId(room.roomId);
-                    dto.setMode(room.mode);
-                    dto.setMapName(room.mapName);
-                    dto.setWinMode(room.winMode);
-                    dto.setMaxPlayers(room.maxPlayers);
-                    return ResponseEntity.ok(dto);
-                })
+        return lobbyService.findRoomConfig(roomId)
+                .map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     /**
      * 🔥 新增：排行榜 - 统计所有玩家的总得分
+     * 读的是 LeaderboardService 维护好的前 10 名；带 ETag，没变化时返回 304
      */
     @GetMapping("/leaderboard")
     public ResponseEntity<List<LeaderboardEntryDto>> getLeaderboard() {
-        logger.info("Fetching leaderboard...");
-        
-        try {
-            // 1. 获取所有游戏日志
-            List<GameLog> allLogs = gameLogRepository.findAll();
-            logger.info("Found {} game logs for leaderboard", allLogs.size());
-
-            // 2. 统计每个玩家的总分和游戏场次
-            Map<String, Integer> playerTotalScore = new HashMap<>();
-            Map<String, Integer> playerGamesPlayed = new HashMap<>();
-
-            for (GameLog log : allLogs) {
-                String resultJson = log.getResultJson();
-                if (resultJson == null || resultJson.isEmpty()) {
-                    logger.debug("Skipping log {} - empty result_json", log.getId());
-                    continue;
-                }
-
-                try {
-                    // 解析 JSON
-                    JsonNode root = objectMapper.readTree(resultJson);
-                    JsonNode playersNode = root.get("players");
-                    
-                    if (playersNode != null && playersNode.isArray()) {
-                        logger.debug("Processing {} players from log {}", playersNode.size(), log.getId());
-                        
-                        for (JsonNode playerNode : playersNode) {
-                            String username = playerNode.get("username").asText();
-                            int score = playerNode.get("score").asInt();
-                            
-                            logger.debug("Player: {}, Score: {}", username, score);
-                            
-                            // 累加总分
-                            playerTotalScore.merge(username, score, Integer::sum);
-                            // 累加游戏场次
-                            playerGamesPlayed.merge(username, 1, Integer::sum);
-                        }
-                    }
-                } catch (Exception e) {
-                    logger.warn("Failed to parse result_json for log {}: {}", log.getId(), e.getMessage());
-                }
-            }
-
-            // 3. 转换为 DTO 并按总分排序
-            List<LeaderboardEntryDto> leaderboard = playerTotalScore.entrySet().stream()
-                    .map(entry -> new LeaderboardEntryDto(
-                            entry.getKey(),
-                            entry.getValue(),
-                            playerGamesPlayed.getOrDefault(entry.getKey(), 0)
-                    ))
-                    .sorted((a, b) -> Integer.compare(b.getTotalScore(), a.getTotalScore()))
-                    .limit(10)  // 只返回前10名
-                    .collect(Collectors.toList());
-
-            logger.info("Leaderboard generated successfully with {} entries", leaderboard.size());
-            logger.info("Returning leaderboard: {}", leaderboard);
-            
-            return ResponseEntity.ok(leaderboard);
-        } catch (Exception e) {
-            logger.error("Failed to generate leaderboard", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
+        LeaderboardService.Top top = leaderboardService.getTop();
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag(top.getEtag())
+                .body(top.getEntries());
     }
 }
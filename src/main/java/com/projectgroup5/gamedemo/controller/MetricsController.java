@@ -0,0 +1,37 @@
+package com.projectgroup5.gamedemo.controller;
+
+import com.projectgroup5.gamedemo.metrics.MetricsService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * 运行指标：默认 Prometheus 文本格式，?format=json 或 Accept: application/json 时返回 JSON
+ */
+@RestController
+public class MetricsController {
+
+    private static final MediaType PROMETHEUS_TEXT = MediaType.parseMediaType("text/plain; version=0.0.4; charset=utf-8");
+
+    private final MetricsService metricsService;
+
+    public MetricsController(MetricsService metricsService) {
+        this.metricsService = metricsService;
+    }
+
+    @GetMapping("/metrics")
+    public ResponseEntity<?> metrics(
+            @RequestParam(name = "format", required = false) String format,
+            @RequestHeader(name = "Accept", required = false) String accept) {
+
+        boolean json = "json".equalsIgnoreCase(format)
+                || (format == null && accept != null && accept.contains(MediaType.APPLICATION_JSON_VALUE));
+        if (json) {
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(metricsService.json());
+        }
+        return ResponseEntity.ok().contentType(PROMETHEUS_TEXT).body(metricsService.prometheus());
+    }
+}
@@ -0,0 +1,66 @@
+package com.projectgroup5.gamedemo.controller;
+
+import com.projectgroup5.gamedemo.replay.ReplayFile;
+import com.projectgroup5.gamedemo.replay.ReplayService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 对局回放（按 GameLog id）
+ *
+ * - GET  /api/replays/{logId}            回放信息
+ * - POST /api/replays/{logId}/simulate   快进重放（?repeat=N 连续重放 N 次当浸泡测试）
+ * - 观战流走 WebSocket：/ws/replay?logId=&speed=
+ */
+@RestController
+@RequestMapping("/api/replays")
+@CrossOrigin(origins = "*")
+public class ReplayController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplayController.class);
+
+    private static final int MAX_REPEAT = 100;
+
+    private final ReplayService replayService;
+
+    public ReplayController(ReplayService replayService) {
+        this.replayService = replayService;
+    }
+
+    @GetMapping("/{logId}")
+    public ResponseEntity<?> getReplay(@PathVariable long logId) {
+        try {
+            Optional<ReplayFile> replay = replayService.load(logId);
+            if (replay.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("No replay for game log " + logId);
+            }
+            return ResponseEntity.ok(replayService.describe(logId, replay.get()));
+        } catch (IOException e) {
+            logger.warn("Cannot read replay for game log {}", logId, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Cannot read replay: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/{logId}/simulate")
+    public ResponseEntity<?> simulate(@PathVariable long logId,
+                                      @RequestParam(defaultValue = "1") int repeat) {
+        try {
+            Optional<Map<String, Object>> result = replayService.simulate(logId,
+                    Math.max(1, Math.min(MAX_REPEAT, repeat)));
+            if (result.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("No replay for game log " + logId);
+            }
+            return ResponseEntity.ok(result.get());
+        } catch (IOException e) {
+            logger.warn("Cannot read replay for game log {}", logId, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Cannot read replay: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.projectgroup5.gamedemo.dao;
+
+import com.projectgroup5.gamedemo.entity.GameLog;
+
+/**
+ * GameLog 写入成功后的回调（在 GameLogWriter 的写线程上执行，不要做耗时操作）
+ */
+public interface GameLogListener {
+    void onGameLogWritten(GameLog log);
+}
@@ -3,11 +3,16 @@ package com.projectgroup5.gamedemo.dao;
 import com.projectgroup5.gamedemo.entity.GameLog;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public class GameLogRepository {
@@ -18,23 +23,58 @@ public class GameLogRepository {
         this.jdbcTemplate = jdbcTemplate;
     }
 
+    /** 插入一条，并把生成的 id 回填到 log */
     public void insert(GameLog log) {
-        String sql = "INSERT INTO game_logs (room_id, started_at, ended_at, result_json) " +
-                     "VALUES (?, ?, ?, ?)";
-        jdbcTemplate.update(sql,
-                log.getRoomId(),
-                log.getStartedAt(),
-                log.getEndedAt(),
-                log.getResultJson()
-        );
+        String sql = "INSERT INTO game_logs (room_id, started_at, ended_at, result_json, replay_file) " +
+                     "VALUES (?, ?, ?, ?, ?)";
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            ps.setLong(1, log.getRoomId());
+            ps.setLong(2, log.getStartedAt());
+            ps.setLong(3, log.getEndedAt());
+            ps.setString(4, log.getResultJson());
+            ps.setString(5, log.getReplayFile());
+            return ps;
+        }, keyHolder);
+        Number id = keyHolder.getKey();
+        if (id != null) {
+            log.setId(id.longValue());
+        }
+    }
+
+    /**
+     * 批量插入（调用方负责把它包在一个事务里，SQLite 只 fsync 一次），并回填生成的 id
+     * 事务里 SQLite 一直持有写锁，这一批的 id 是连续的，最后一条就是 last_insert_rowid()
+     */
+    public void insertBatch(List<GameLog> logs) {
+        String sql = "INSERT INTO game_logs (room_id, started_at, ended_at, result_json, replay_file) " +
+                     "VALUES (?, ?, ?, ?, ?)";
+        jdbcTemplate.batchUpdate(sql, logs, logs.size(), (ps, log) -> {
+            ps.setLong(1, log.getRoomId());
+            ps.setLong(2, log.getStartedAt());
+            ps.setLong(3, log.getEndedAt());
+            ps.setString(4, log.getResultJson());
+            ps.setString(5, log.getReplayFile());
+        });
+        Long last = jdbcTemplate.queryForObject("SELECT last_insert_rowid()", Long.class);
+        if (last == null) return;
+        for (int i = 0; i < logs.size(); i++) {
+            logs.get(i).setId(last - logs.size() + 1 + i);
+        }
     }
 
     // 🔥 新增：查询所有游戏日志（用于统计排行榜）
     public List<GameLog> findAll() {
-        String sql = "SELECT id, room_id, started_at, ended_at, result_json FROM game_logs";
+        String sql = "SELECT id, room_id, started_at, ended_at, result_json, replay_file FROM game_logs";
         return jdbcTemplate.query(sql, new GameLogRowMapper());
     }
 
+    public Optional<GameLog> findById(long id) {
+        String sql = "SELECT id, room_id, started_at, ended_at, result_json, replay_file FROM game_logs WHERE id = ?";
+        return jdbcTemplate.query(sql, new GameLogRowMapper(), id).stream().findFirst();
+    }
+
     private static class GameLogRowMapper implements RowMapper<GameLog> {
         @Override
         public GameLog mapRow(ResultSet rs, int rowNum) throws SQLException {
@@ -44,6 +84,7 @@ public class GameLogRepository {
             log.setStartedAt(rs.getLong("started_at"));
             log.setEndedAt(rs.getLong("ended_at"));
             log.setResultJson(rs.getString("result_json"));
+            log.setReplayFile(rs.getString("replay_file"));
             return log;
         }
     }
@@ -0,0 +1,207 @@
+package com.projectgroup5.gamedemo.dao;
+
+import com.projectgroup5.gamedemo.entity.GameLog;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * GameLog 异步写入（write-behind）
+ *
+ * - submit() 只入队，tick 线程 / 请求线程不再等 SQLite 写盘
+ * - 单独一个写线程，把队列里攒下的日志放进一个事务批量提交（一次 fsync）
+ * - 队列有界，满了直接拒绝并打 ERROR（带上 JSON，日志里还能捞回来）
+ * - 提交成功后通知 GameLogListener（排行榜等读模型据此增量更新）
+ * - 关闭时先把队列写完再退出
+ */
+@Component
+public class GameLogWriter {
+    private static final Logger logger = LoggerFactory.getLogger(GameLogWriter.class);
+
+    private static final long POLL_MILLIS = 200;
+
+    private final GameLogRepository repository;
+    private final List<GameLogListener> listeners;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<GameLog> queue;
+    private final int maxBatch;
+    private final long shutdownTimeoutMs;
+
+    private Thread thread;
+    private volatile boolean running;
+
+    // 统计
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong commits = new AtomicLong();
+    private volatile long lastCommitNanos;
+    private volatile long maxCommitNanos;
+    private volatile long totalCommitNanos;   // 只有写线程写
+
+    public GameLogWriter(GameLogRepository repository,
+                         PlatformTransactionManager transactionManager,
+                         List<GameLogListener> listeners,
+                         @Value("${game.log.writer.queue-capacity:1024}") int queueCapacity,
+                         @Value("${game.log.writer.max-batch:64}") int maxBatch,
+                         @Value("${game.log.writer.shutdown-timeout-ms:10000}") long shutdownTimeoutMs) {
+        this.repository = repository;
+        this.listeners = listeners;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.maxBatch = Math.max(1, maxBatch);
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        thread = new Thread(this::run, "gamelog-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 提交一条日志，不阻塞；队列满返回 false
+     */
+    public boolean submit(GameLog log) {
+        if (!running || !queue.offer(log)) {
+            rejected.incrementAndGet();
+            logger.error("GameLog queue full or closed, dropping log for room {}: {}",
+                    log.getRoomId(), log.getResultJson());
+            return false;
+        }
+        submitted.incrementAndGet();
+        return true;
+    }
+
+    private void run() {
+        List<GameLog> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                GameLog first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+                commit(batch);
+            } catch (InterruptedException e) {
+                // 关闭时被打断：把剩下的写完再退出
+                running = false;
+            } catch (Throwable t) {
+                logger.error("GameLog writer loop failed", t);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<GameLog> batch) {
+        long start = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> repository.insertBatch(batch));
+            written.addAndGet(batch.size());
+            for (GameLog log : batch) {
+                notifyListeners(log);
+            }
+        } catch (Exception e) {
+            // 整批失败：逐条重试，避免一条坏数据拖累整批
+            logger.warn("GameLog batch of {} failed, retrying one by one", batch.size(), e);
+            for (GameLog log : batch) {
+                try {
+                    repository.insert(log);
+                    written.incrementAndGet();
+                    notifyListeners(log);
+                } catch (Exception ex) {
+                    failed.incrementAndGet();
+                    logger.error("Failed to save game log for room {}: {}",
+                            log.getRoomId(), log.getResultJson(), ex);
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        commits.incrementAndGet();
+        lastCommitNanos = elapsed;
+        totalCommitNanos += elapsed;
+        if (elapsed > maxCommitNanos) {
+            maxCommitNanos = elapsed;
+        }
+        logger.debug("Committed {} game logs in {} us", batch.size(), elapsed / 1000);
+    }
+
+    private void notifyListeners(GameLog log) {
+        for (GameLogListener listener : listeners) {
+            try {
+                listener.onGameLogWritten(log);
+            } catch (Exception e) {
+                logger.error("GameLog listener {} failed", listener.getClass().getSimpleName(), e);
+            }
+        }
+    }
+
+    /** 停止接收新日志，等写线程把队列写完 */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (thread == null) return;
+        try {
+            thread.join(shutdownTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            logger.warn("GameLog writer did not finish within {} ms, {} logs left in queue",
+                    shutdownTimeoutMs, queue.size());
+        } else {
+            logger.info("GameLog writer stopped, {} logs written", written.get());
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getSubmitted() {
+        return submitted.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getCommits() {
+        return commits.get();
+    }
+
+    public long getLastCommitNanos() {
+        return lastCommitNanos;
+    }
+
+    public long getMaxCommitNanos() {
+        return maxCommitNanos;
+    }
+
+    public long getTotalCommitNanos() {
+        return totalCommitNanos;
+    }
+}
@@ -4,6 +4,7 @@ public class CreateRoomRequest {
     private int maxPlayers;     // 1-4
     private String mapName;     // "Nebula-01" / "Asteroid Field" / "Eclipse Station"
     private String winMode;     // "SCORE_50" / "SCORE_100" / "TIME_1M" / "TIME_5M"
+    private int sendHz;         // Arch A 快照发送频率，0 = 服务器默认
 
     public int getMaxPlayers() {
         return maxPlayers;
@@ -28,6 +29,14 @@ public class CreateRoomRequest {
     public void setWinMode(String winMode) {
         this.winMode = winMode;
     }
+
+    public int getSendHz() {
+        return sendHz;
+    }
+
+    public void setSendHz(int sendHz) {
+        this.sendHz = sendHz;
+    }
 }
 
 
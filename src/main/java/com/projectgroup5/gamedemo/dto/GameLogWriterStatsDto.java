@@ -0,0 +1,40 @@
+package com.projectgroup5.gamedemo.dto;
+
+public class GameLogWriterStatsDto {
+    private int queueDepth;         // 还没写盘的日志数
+    private long submitted;
+    private long rejected;          // 队列满被丢弃的条数
+    private long written;
+    private long failed;
+    private long commits;           // 提交的事务数（一批一次）
+    private double lastCommitMs;
+    private double maxCommitMs;
+    private double avgCommitMs;
+
+    public int getQueueDepth() { return queueDepth; }
+    public void setQueueDepth(int queueDepth) { this.queueDepth = queueDepth; }
+
+    public long getSubmitted() { return submitted; }
+    public void setSubmitted(long submitted) { this.submitted = submitted; }
+
+    public long getRejected() { return rejected; }
+    public void setRejected(long rejected) { this.rejected = rejected; }
+
+    public long getWritten() { return written; }
+    public void setWritten(long written) { this.written = written; }
+
+    public long getFailed() { return failed; }
+    public void setFailed(long failed) { this.failed = failed; }
+
+    public long getCommits() { return commits; }
+    public void setCommits(long commits) { this.commits = commits; }
+
+    public double getLastCommitMs() { return lastCommitMs; }
+    public void setLastCommitMs(double lastCommitMs) { this.lastCommitMs = lastCommitMs; }
+
+    public double getMaxCommitMs() { return maxCommitMs; }
+    public void setMaxCommitMs(double maxCommitMs) { this.maxCommitMs = maxCommitMs; }
+
+    public double getAvgCommitMs() { return avgCommitMs; }
+    public void setAvgCommitMs(double avgCommitMs) { this.avgCommitMs = avgCommitMs; }
+}
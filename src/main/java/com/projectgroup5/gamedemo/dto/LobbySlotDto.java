@@ -1,16 +1,25 @@
 package com.projectgroup5.gamedemo.dto;
 
+/**
+ * 大厅的一张桌子（发布后不可变）
+ * version 是这张桌子最后一次变化时的大厅版本号，客户端按桌取较大的版本合并
+ */
 public class LobbySlotDto {
-    private int index;      // 0-19
-    private boolean occupied;
-    private RoomDto room;   // occupied == true 时非空
+    private final int index;
+    private final long version;
+    private final RoomDto room;   // 空桌为 null
+
+    public LobbySlotDto(int index, long version, RoomDto room) {
+        this.index = index;
+        this.version = version;
+        this.room = room;
+    }
 
     public int getIndex() { return index; }
-    public void setIndex(int index) { this.index = index; }
 
-    public boolean isOccupied() { return occupied; }
-    public void setOccupied(boolean occupied) { this.occupied = occupied; }
+    public long getVersion() { return version; }
+
+    public boolean isOccupied() { return room != null; }
 
     public RoomDto getRoom() { return room; }
-    public void setRoom(RoomDto room) { this.room = room; }
 }
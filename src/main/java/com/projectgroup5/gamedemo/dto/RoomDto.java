@@ -13,6 +13,7 @@ public class RoomDto {
 
     private boolean started;                // 游戏是否已经开始
     private String architecture;            // 架构模式：A 或 B
+    private int sendHz;                     // Arch A 快照发送频率，0 = 服务器默认
     private int gameSessionId;              // 🔥 游戏局数ID，每开始一局游戏+1
     private List<PlayerInfoDto> players;           // 按顺序：第一个是房主
     private List<String> readyUsernames;    // 已准备的玩家
@@ -112,4 +113,12 @@ public class RoomDto {
     public void setGameSessionId(int gameSessionId) {
         this.gameSessionId = gameSessionId;
     }
+
+    public int getSendHz() {
+        return sendHz;
+    }
+
+    public void setSendHz(int sendHz) {
+        this.sendHz = sendHz;
+    }
 }
@@ -0,0 +1,14 @@
+package com.projectgroup5.gamedemo.dto;
+
+import java.util.List;
+
+public class RoomPageDto {
+    private List<RoomDto> rooms;
+    private String nextCursor;      // 下一页游标，null 表示没有更多
+
+    public List<RoomDto> getRooms() { return rooms; }
+    public void setRooms(List<RoomDto> rooms) { this.rooms = rooms; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+}
@@ -0,0 +1,44 @@
+package com.projectgroup5.gamedemo.dto;
+
+public class TickShardStatsDto {
+    private int shard;
+    private int rooms;
+    private long ticks;
+    private long overruns;          // 单帧耗时超过 tick 周期的次数
+    private double lastTickMs;
+    private double maxTickMs;
+    private double avgTickMs;
+    private double budgetMs;
+    private long lastTickAllocBytes;    // 上一帧分配字节数
+    private long avgTickAllocBytes;
+
+    public int getShard() { return shard; }
+    public void setShard(int shard) { this.shard = shard; }
+
+    public int getRooms() { return rooms; }
+    public void setRooms(int rooms) { this.rooms = rooms; }
+
+    public long getTicks() { return ticks; }
+    public void setTicks(long ticks) { this.ticks = ticks; }
+
+    public long getOverruns() { return overruns; }
+    public void setOverruns(long overruns) { this.overruns = overruns; }
+
+    public double getLastTickMs() { return lastTickMs; }
+    public void setLastTickMs(double lastTickMs) { this.lastTickMs = lastTickMs; }
+
+    public double getMaxTickMs() { return maxTickMs; }
+    public void setMaxTickMs(double maxTickMs) { this.maxTickMs = maxTickMs; }
+
+    public double getAvgTickMs() { return avgTickMs; }
+    public void setAvgTickMs(double avgTickMs) { this.avgTickMs = avgTickMs; }
+
+    public double getBudgetMs() { return budgetMs; }
+    public void setBudgetMs(double budgetMs) { this.budgetMs = budgetMs; }
+
+    public long getLastTickAllocBytes() { return lastTickAllocBytes; }
+    public void setLastTickAllocBytes(long lastTickAllocBytes) { this.lastTickAllocBytes = lastTickAllocBytes; }
+
+    public long getAvgTickAllocBytes() { return avgTickAllocBytes; }
+    public void setAvgTickAllocBytes(long avgTickAllocBytes) { this.avgTickAllocBytes = avgTickAllocBytes; }
+}
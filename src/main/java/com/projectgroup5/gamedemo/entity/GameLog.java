@@ -6,6 +6,7 @@ public class GameLog {
     private long startedAt;
     private long endedAt;
     private String resultJson;
+    private String replayFile;   // 回放文件名（相对 game.replay.dir），没有录制时为 null
 
     public Long getId() {
         return id;
@@ -46,4 +47,12 @@ public class GameLog {
     public void setResultJson(String resultJson) {
         this.resultJson = resultJson;
     }
+
+    public String getReplayFile() {
+        return replayFile;
+    }
+
+    public void setReplayFile(String replayFile) {
+        this.replayFile = replayFile;
+    }
 }
@@ -52,6 +52,14 @@ public class EventBus {
         }
     }
     
+    /**
+     * 是否有人订阅了该事件（热路径上用来跳过事件对象的构造）
+     */
+    public boolean hasSubscribers(Class<? extends GameEvent> eventType) {
+        List<Consumer<? extends GameEvent>> eventHandlers = handlers.get(eventType);
+        return eventHandlers != null && !eventHandlers.isEmpty();
+    }
+    
     /**
      * 取消订阅所有事件
      */
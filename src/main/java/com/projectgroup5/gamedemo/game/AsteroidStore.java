@@ -0,0 +1,60 @@
+package com.projectgroup5.gamedemo.game;
+
+import java.util.Arrays;
+
+/**
+ * 石头存储（障碍物，SoA）
+ * 从上往下掉落，玩家需要躲避或射击摧毁
+ */
+public class AsteroidStore extends EntityStore {
+    public static final double BIG_RADIUS = 26;
+    public static final double SMALL_RADIUS = 16;
+
+    public int[] id = new int[capacity()];
+    public double[] radius = new double[capacity()];
+    public boolean[] big = new boolean[capacity()];
+
+    /**
+     * 生成一个石头，random01 是 [0,1) 的随机数，用来决定下落速度
+     */
+    public int add(int entityId, double ax, double ay, boolean isBig, double random01) {
+        int i = append();
+        id[i] = entityId;
+        x[i] = ax;
+        y[i] = ay;
+        vx[i] = 0;
+        big[i] = isBig;
+        if (isBig) {
+            // 大石头：需要 2 发子弹
+            radius[i] = BIG_RADIUS;
+            hp[i] = 2;
+            vy[i] = 80 + random01 * 40;   // 80-120 px/s
+        } else {
+            radius[i] = SMALL_RADIUS;
+            hp[i] = 1;
+            vy[i] = 100 + random01 * 60;  // 100-160 px/s
+        }
+        return i;
+    }
+
+    /**
+     * 是否已经飞出屏幕下方
+     */
+    public boolean isOffScreen(int i, double screenHeight) {
+        return y[i] - radius[i] > screenHeight + 50;
+    }
+
+    @Override
+    protected void growExtra(int newCapacity) {
+        id = Arrays.copyOf(id, newCapacity);
+        radius = Arrays.copyOf(radius, newCapacity);
+        big = Arrays.copyOf(big, newCapacity);
+    }
+
+    @Override
+    protected void move(int from, int to) {
+        id[to] = id[from];
+        radius[to] = radius[from];
+        big[to] = big[from];
+    }
+}
@@ -0,0 +1,9 @@
+package com.projectgroup5.gamedemo.game;
+
+/**
+ * 碰撞检测 broadphase 策略（可配置，方便两种实现对比压测）
+ */
+public enum BroadphaseStrategy {
+    BRUTE_FORCE,   // 原始实现：全量两两比较
+    SPATIAL_HASH   // 均匀网格：只比较相同/相邻格子
+}
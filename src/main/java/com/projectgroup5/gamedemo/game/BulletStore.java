@@ -0,0 +1,54 @@
+package com.projectgroup5.gamedemo.game;
+
+import java.util.Arrays;
+
+/**
+ * 子弹存储（服务器权威，SoA）
+ * hp 固定为 1，命中后置 0 等待 removeDead()
+ */
+public class BulletStore extends EntityStore {
+    public static final double RADIUS = 4;
+    public static final double SPEED = 400; // pixels/second
+    public static final int DAMAGE = 10;
+
+    public int[] id = new int[capacity()];
+    public int[] ownerSlot = new int[capacity()];   // 射手的座位号
+
+    /**
+     * 生成一颗向上飞的子弹，返回下标
+     */
+    public int add(int entityId, int shooterSlot, double bx, double by) {
+        int i = append();
+        id[i] = entityId;
+        ownerSlot[i] = shooterSlot;
+        x[i] = bx;
+        y[i] = by;
+        vx[i] = 0;
+        vy[i] = -SPEED; // 向上发射
+        hp[i] = 1;
+        return i;
+    }
+
+    /**
+     * 删除某个玩家的所有子弹
+     */
+    public void removeByOwner(int shooterSlot) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (ownerSlot[i] == shooterSlot) {
+                remove(i);
+            }
+        }
+    }
+
+    @Override
+    protected void growExtra(int newCapacity) {
+        id = Arrays.copyOf(id, newCapacity);
+        ownerSlot = Arrays.copyOf(ownerSlot, newCapacity);
+    }
+
+    @Override
+    protected void move(int from, int to) {
+        id[to] = id[from];
+        ownerSlot[to] = ownerSlot[from];
+    }
+}
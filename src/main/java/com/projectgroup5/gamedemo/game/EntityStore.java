@@ -0,0 +1,132 @@
+package com.projectgroup5.gamedemo.game;
+
+import java.util.Arrays;
+
+/**
+ * 实体存储（Struct-of-Arrays）
+ *
+ * - 同类实体的每个字段各自一个基本类型数组，下标 i 就是第 i 个实体
+ * - 实体始终紧凑排列在 [0, size)，删除用 swap-remove（把最后一个搬到空位）
+ * - 全部是基本类型数组，只增不减，稳定后整个 tick 不产生任何对象分配
+ * - 只能在 tick 线程上读写，不做任何同步
+ *
+ * 遍历时删除：从 size-1 倒序遍历，或先把 hp 置 0，最后统一 removeDead()。
+ */
+public abstract class EntityStore {
+    private static final int INITIAL_CAPACITY = 32;
+
+    protected int size;
+
+    public double[] x = new double[INITIAL_CAPACITY];
+    public double[] y = new double[INITIAL_CAPACITY];
+    public double[] vx = new double[INITIAL_CAPACITY];
+    public double[] vy = new double[INITIAL_CAPACITY];
+    public int[] hp = new int[INITIAL_CAPACITY];     // <= 0 表示已销毁，等待 removeDead()
+
+    // 轨迹锚点（增量快照用）：客户端按 traj + tv * (frame - trajFrame) * dt 推算位置，
+    // 只有实际位置偏离推算值时才重新锚定，匀速运动的实体整个生命周期只锚定一次
+    public long[] trajFrame = new long[INITIAL_CAPACITY];   // -1 表示还没锚定
+    public double[] trajX = new double[INITIAL_CAPACITY];
+    public double[] trajY = new double[INITIAL_CAPACITY];
+    public double[] trajVx = new double[INITIAL_CAPACITY];
+    public double[] trajVy = new double[INITIAL_CAPACITY];
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int capacity() {
+        return x.length;
+    }
+
+    /**
+     * 追加一个实体，返回它的下标（字段由调用方填）
+     */
+    protected int append() {
+        if (size == x.length) {
+            grow(x.length * 2);
+        }
+        trajFrame[size] = -1;
+        return size++;
+    }
+
+    /**
+     * 更新所有实体的轨迹锚点（每个快照调用一次，房间内所有客户端共用同一条轨迹）
+     */
+    public void anchorTrajectories(long frame, double dt, double epsilon) {
+        for (int i = 0; i < size; i++) {
+            long f = trajFrame[i];
+            if (f >= 0 && vx[i] == trajVx[i] && vy[i] == trajVy[i]) {
+                double t = (frame - f) * dt;
+                if (Math.abs(trajX[i] + trajVx[i] * t - x[i]) <= epsilon
+                        && Math.abs(trajY[i] + trajVy[i] * t - y[i]) <= epsilon) {
+                    continue;
+                }
+            }
+            trajFrame[i] = frame;
+            trajX[i] = x[i];
+            trajY[i] = y[i];
+            trajVx[i] = vx[i];
+            trajVy[i] = vy[i];
+        }
+    }
+
+    /**
+     * 删除下标 i：最后一个实体搬到 i，size - 1
+     */
+    public void remove(int i) {
+        int last = --size;
+        if (i != last) {
+            x[i] = x[last];
+            y[i] = y[last];
+            vx[i] = vx[last];
+            vy[i] = vy[last];
+            hp[i] = hp[last];
+            trajFrame[i] = trajFrame[last];
+            trajX[i] = trajX[last];
+            trajY[i] = trajY[last];
+            trajVx[i] = trajVx[last];
+            trajVy[i] = trajVy[last];
+            move(last, i);
+        }
+    }
+
+    /**
+     * 删除所有 hp <= 0 的实体
+     */
+    public void removeDead() {
+        for (int i = size - 1; i >= 0; i--) {
+            if (hp[i] <= 0) {
+                remove(i);
+            }
+        }
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    private void grow(int newCapacity) {
+        x = Arrays.copyOf(x, newCapacity);
+        y = Arrays.copyOf(y, newCapacity);
+        vx = Arrays.copyOf(vx, newCapacity);
+        vy = Arrays.copyOf(vy, newCapacity);
+        hp = Arrays.copyOf(hp, newCapacity);
+        trajFrame = Arrays.copyOf(trajFrame, newCapacity);
+        trajX = Arrays.copyOf(trajX, newCapacity);
+        trajY = Arrays.copyOf(trajY, newCapacity);
+        trajVx = Arrays.copyOf(trajVx, newCapacity);
+        trajVy = Arrays.copyOf(trajVy, newCapacity);
+        growExtra(newCapacity);
+    }
+
+    /** 子类扩容自己的额外字段数组 */
+    protected abstract void growExtra(int newCapacity);
+
+    /** 子类把额外字段从 from 拷到 to */
+    protected abstract void move(int from, int to);
+}
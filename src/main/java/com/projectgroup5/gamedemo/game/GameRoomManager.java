@@ -3,14 +3,19 @@ package com.projectgroup5.gamedemo.game;
 import com.projectgroup5.gamedemo.dto.RoomDto;
 import com.projectgroup5.gamedemo.event.EventBus;
 import com.projectgroup5.gamedemo.event.PlayerJoinedEvent;
+import com.projectgroup5.gamedemo.replay.ReplayRecorder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * 游戏房间管理器 - 管理所有活跃的游戏世界
@@ -22,11 +27,28 @@ public class GameRoomManager {
     
     // roomId -> GameWorld
     private final Map<Long, GameWorld> activeGames = new ConcurrentHashMap<>();
+
+    // 按 tick 分片划分的房间：partitions.get(shard) = roomId -> GameWorld
+    private final List<Map<Long, GameWorld>> partitions;
     
     private final EventBus eventBus;
+    private final ReplayRecorder replayRecorder;
+    private final int defaultSendHz;
     
-    public GameRoomManager(EventBus eventBus) {
+    public GameRoomManager(EventBus eventBus,
+                           ReplayRecorder replayRecorder,
+                           @Value("${game.tick.shards:0}") int shardCount,
+                           @Value("${game.net.send-hz:20}") int defaultSendHz) {
         this.eventBus = eventBus;
+        this.replayRecorder = replayRecorder;
+        this.defaultSendHz = defaultSendHz;
+
+        // 0 或负数 = 按 CPU 核数
+        int n = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        this.partitions = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            partitions.add(new ConcurrentHashMap<>());
+        }
     }
     
     /**
@@ -44,8 +66,11 @@ public class GameRoomManager {
             roomId,
             roomDto.getMapName(),
             roomDto.getWinMode(),
-            roomDto.getMaxPlayers()
+            roomDto.getMaxPlayers(),
+            ThreadLocalRandom.current().nextLong()   // 模拟种子，写进 GameLog 供回放
         );
+        // 房间没指定发送频率时用服务器默认值
+        world.setSendHz(roomDto.getSendHz() > 0 ? roomDto.getSendHz() : defaultSendHz);
         
         // 初始化所有玩家
         roomDto.getPlayers().forEach(player -> {
@@ -57,10 +82,14 @@ public class GameRoomManager {
         // 设置游戏阶段为倒计时
         world.setPhase(GameWorld.GamePhase.COUNTDOWN);
         world.setGameStartTime(System.currentTimeMillis() + 3000); // 3秒倒计时
+
+        // 开始录制（在交给 tick 线程之前）
+        replayRecorder.start(world);
         
         activeGames.put(roomId, world);
-        logger.info("Created GameWorld (Architecture A) for roomId={}, players={}", 
-            roomId, world.getPlayers().size());
+        partitions.get(partitionOf(roomId)).put(roomId, world);
+        logger.info("Created GameWorld (Architecture A) for roomId={}, players={}, sendHz={}, seed={}", 
+            roomId, world.getPlayers().size(), world.getSendHz(), world.getSeed());
         
         return world;
     }
@@ -82,11 +111,12 @@ public class GameRoomManager {
     }
     
     /**
-     * 移除游戏房间
+     * 移除游戏房间（只在 roomId 仍然指向这个 world 时移除，同一房间新开的一局不受影响）
      */
-    public void removeGameRoom(long roomId) {
-        GameWorld world = activeGames.remove(roomId);
-        if (world != null) {
+    public void removeGameRoom(GameWorld world) {
+        long roomId = world.getRoomId();
+        partitions.get(partitionOf(roomId)).remove(roomId, world);
+        if (activeGames.remove(roomId, world)) {
             logger.info("Removed GameWorld for roomId={}", roomId);
         }
     }
@@ -102,5 +132,26 @@ public class GameRoomManager {
         return activeGames.values();
     }
 
+    /**
+     * 分片数量（= tick 线程数）
+     */
+    public int getPartitionCount() {
+        return partitions.size();
+    }
+
+    /**
+     * 某个分片下的所有房间（只由该分片的 tick 线程遍历）
+     */
+    public Map<Long, GameWorld> getPartition(int index) {
+        return partitions.get(index);
+    }
+
+    /**
+     * roomId -> 分片下标
+     */
+    public int partitionOf(long roomId) {
+        return Math.floorMod(Long.hashCode(roomId), partitions.size());
+    }
+
 }
 
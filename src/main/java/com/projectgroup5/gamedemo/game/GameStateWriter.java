@@ -0,0 +1,412 @@
+package com.projectgroup5.gamedemo.game;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.projectgroup5.gamedemo.metrics.TickMetrics;
+import com.projectgroup5.gamedemo.websocket.BinaryProtocol;
+import com.projectgroup5.gamedemo.websocket.GameWebSocketHandler;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * GAME_STATE 流式序列化器（每个 tick 分片一个，只在该分片线程上用）
+ *
+ * - 直接从 GameWorld 的座位数组 / SoA 存储写 JSON，不构造中间 Map
+ * - JsonGenerator 和字节缓冲区整个生命周期复用，每帧只 reset
+ * - 坐标按两位小数定点输出，避免 Double.toString 的临时字符串
+ * - 增量快照：相对客户端最后 ACK 的快照只发增删改，同一基线 + 同一协议只编码一次
+ * - 同一份差异可以编码成 JSON 或二进制（BinaryProtocol），按客户端协商的协议选择
+ * - 每次实际编码的字节数记到分片和房间的 TickMetrics 上
+ */
+public class GameStateWriter implements GameWebSocketHandler.StateEncoder {
+    private static final SerializableString TYPE = new SerializedString("type");
+    private static final SerializableString GAME_STATE = new SerializedString("GAME_STATE");
+    private static final SerializableString ROOM_ID = new SerializedString("roomId");
+    private static final SerializableString FRAME = new SerializedString("frame");
+    private static final SerializableString PHASE = new SerializedString("phase");
+    private static final SerializableString COUNTDOWN_MS = new SerializedString("countdownMs");
+    private static final SerializableString SEQ = new SerializedString("seq");
+    private static final SerializableString BASE = new SerializedString("base");
+    private static final SerializableString DT = new SerializedString("dt");
+    private static final SerializableString ELAPSED_MS = new SerializedString("elapsedMs");
+    private static final SerializableString PLAYERS = new SerializedString("players");
+    private static final SerializableString BULLETS = new SerializedString("bullets");
+    private static final SerializableString ASTEROIDS = new SerializedString("asteroids");
+    private static final SerializableString PLAYERS_REMOVED = new SerializedString("playersRemoved");
+    private static final SerializableString NAMES = new SerializedString("names");
+    private static final SerializableString BULLETS_REMOVED = new SerializedString("bulletsRemoved");
+    private static final SerializableString ASTEROIDS_REMOVED = new SerializedString("asteroidsRemoved");
+
+    // 一次广播内按基线 seq 缓存编码结果（同一基线的客户端共用一份）
+    private static final int CACHE_SIZE = 8;
+
+    private final Buffer out = new Buffer(4096);
+    private final JsonGenerator gen;
+    private final char[] digits = new char[24];
+
+    private final TickMetrics shardMetrics;
+
+    private final VarIntBuffer bin = new VarIntBuffer(1024);
+    private final SnapshotDiff diff = new SnapshotDiff();
+
+    private final long[] cacheBase = new long[CACHE_SIZE];
+    private final boolean[] cacheBinary = new boolean[CACHE_SIZE];
+    private final WebSocketMessage<?>[] cacheMessage = new WebSocketMessage<?>[CACHE_SIZE];
+    private int cacheCount;
+
+    // 当前这次广播的上下文（prepare 设置）
+    private GameWorld world;
+    private WorldSnapshot current;
+    private SnapshotRing ring;
+    private long now;
+    private double dt;
+
+    public GameStateWriter(JsonFactory factory, TickMetrics shardMetrics) throws IOException {
+        this.shardMetrics = shardMetrics;
+        this.gen = factory.createGenerator(out);
+        // 同一个 generator 连续写多个根对象，不要分隔符
+        this.gen.setRootValueSeparator(null);
+    }
+
+    /**
+     * 开始一次房间广播：之后按各客户端的 ACK 调 encode()
+     */
+    public void prepare(GameWorld world, WorldSnapshot current, SnapshotRing ring, long now, double dt) {
+        this.world = world;
+        this.current = current;
+        this.ring = ring;
+        this.now = now;
+        this.dt = dt;
+        for (int i = 0; i < cacheCount; i++) {
+            cacheMessage[i] = null;
+        }
+        cacheCount = 0;
+    }
+
+    /**
+     * 按客户端最后确认的快照 seq 生成状态帧：基线还在环里就发增量，否则发关键帧
+     */
+    @Override
+    public WebSocketMessage<?> encode(long ackSeq, boolean binary) throws IOException {
+        WorldSnapshot base = ring.get(ackSeq);
+        long key = base == null ? -1 : base.seq;
+        for (int i = 0; i < cacheCount; i++) {
+            if (cacheBase[i] == key && cacheBinary[i] == binary) return cacheMessage[i];
+        }
+
+        diff.compute(current, base);
+        WebSocketMessage<?> message;
+        int bytes;
+        if (binary) {
+            byte[] data = writeBinary(base);
+            message = new BinaryMessage(data);
+            bytes = data.length;
+        } else {
+            message = new TextMessage(write(base));
+            bytes = out.size();
+        }
+        shardMetrics.recordSnapshotBytes(binary, bytes);
+        world.getTickMetrics().recordSnapshotBytes(binary, bytes);
+        if (cacheCount < CACHE_SIZE) {
+            cacheBase[cacheCount] = key;
+            cacheBinary[cacheCount] = binary;
+            cacheMessage[cacheCount] = message;
+            cacheCount++;
+        }
+        return message;
+    }
+
+    /**
+     * 写一条 GAME_STATE：base 为 null 时是关键帧（全量），否则只含相对 base 的增删改
+     *
+     * 实体用定长数组表示：
+     *   玩家 [slot, x, y, hp, score, alive(0/1)]，名字单独在 names: [[slot, username]]
+     *   子弹 [id, owner, trajFrame, trajX, trajY, vx, vy]
+     *   石头 [id, trajFrame, trajX, trajY, vx, vy, radius, hp, isBig(0/1)]
+     * 客户端位置 = trajX/Y + vx/vy * (frame - trajFrame) * dt
+     */
+    private String write(WorldSnapshot base) throws IOException {
+        out.reset();
+
+        gen.writeStartObject();
+        gen.writeFieldName(TYPE);
+        gen.writeString(GAME_STATE);
+        gen.writeFieldName(ROOM_ID);
+        gen.writeNumber(world.getRoomId());
+        gen.writeFieldName(SEQ);
+        gen.writeNumber(current.seq);
+        if (base != null) {
+            gen.writeFieldName(BASE);
+            gen.writeNumber(base.seq);
+        }
+        gen.writeFieldName(FRAME);
+        gen.writeNumber(current.frame);
+        gen.writeFieldName(DT);
+        gen.writeNumber(dt);
+        gen.writeFieldName(PHASE);
+        gen.writeString(world.getPhase().name());
+
+        if (world.getPhase() == GameWorld.GamePhase.COUNTDOWN) {
+            gen.writeFieldName(COUNTDOWN_MS);
+            gen.writeNumber(Math.max(0, world.getGameStartTime() - now));
+        }
+        if (world.getPhase() == GameWorld.GamePhase.IN_PROGRESS) {
+            gen.writeFieldName(ELAPSED_MS);
+            gen.writeNumber(now - world.getGameStartTime());
+        }
+
+        writePlayers();
+        writeLayer(BULLETS, BULLETS_REMOVED, diff.bullets, true);
+        writeLayer(ASTEROIDS, ASTEROIDS_REMOVED, diff.asteroids, false);
+
+        gen.writeEndObject();
+        gen.flush();
+        return out.toUtf8String();
+    }
+
+    /**
+     * 玩家：变化的写 [slot, x, y, hp, score, alive(0/1)]，离开的座位写进 playersRemoved；
+     * 名字只在关键帧或座位表变化时发
+     */
+    private void writePlayers() throws IOException {
+        WorldSnapshot.Players cur = current.players;
+
+        if (diff.sendNames) {
+            gen.writeFieldName(NAMES);
+            gen.writeStartArray();
+            for (PlayerEntity p : world.getPlayerSlots()) {
+                if (p == null) continue;
+                gen.writeStartArray();
+                gen.writeNumber(p.slot);
+                gen.writeString(p.username);
+                gen.writeEndArray();
+            }
+            gen.writeEndArray();
+        }
+
+        gen.writeFieldName(PLAYERS);
+        gen.writeStartArray();
+        for (int k = 0; k < diff.playerCount; k++) {
+            int s = diff.playerSlots[k];
+            gen.writeStartArray();
+            gen.writeNumber(s);
+            writeFixed(cur.qx[s] / 100.0);
+            writeFixed(cur.qy[s] / 100.0);
+            gen.writeNumber(cur.hp[s]);
+            gen.writeNumber(cur.score[s]);
+            gen.writeNumber(cur.alive[s] ? 1 : 0);
+            gen.writeEndArray();
+        }
+        gen.writeEndArray();
+
+        if (diff.keyframe) return;
+        gen.writeFieldName(PLAYERS_REMOVED);
+        gen.writeStartArray();
+        for (int k = 0; k < diff.playersRemovedCount; k++) {
+            gen.writeNumber(diff.playersRemoved[k]);
+        }
+        gen.writeEndArray();
+    }
+
+    private void writeLayer(SerializableString upsertName, SerializableString removedName,
+                            SnapshotDiff.LayerDiff layer, boolean bullet) throws IOException {
+        gen.writeFieldName(upsertName);
+        gen.writeStartArray();
+        for (int k = 0; k < layer.upsertCount; k++) {
+            if (bullet) {
+                writeBullet(layer.upserts[k]);
+            } else {
+                writeAsteroid(layer.upserts[k]);
+            }
+        }
+        gen.writeEndArray();
+
+        if (diff.keyframe) return;
+        gen.writeFieldName(removedName);
+        gen.writeStartArray();
+        for (int k = 0; k < layer.removedCount; k++) {
+            gen.writeNumber(layer.removed[k]);
+        }
+        gen.writeEndArray();
+    }
+
+    private void writeBullet(int i) throws IOException {
+        BulletStore b = world.getBullets();
+        gen.writeStartArray();
+        gen.writeNumber(b.id[i]);
+        gen.writeNumber(b.ownerSlot[i]);
+        gen.writeNumber(b.trajFrame[i]);
+        writeFixed(b.trajX[i]);
+        writeFixed(b.trajY[i]);
+        writeFixed(b.trajVx[i]);
+        writeFixed(b.trajVy[i]);
+        gen.writeEndArray();
+    }
+
+    private void writeAsteroid(int i) throws IOException {
+        AsteroidStore a = world.getAsteroids();
+        gen.writeStartArray();
+        gen.writeNumber(a.id[i]);
+        gen.writeNumber(a.trajFrame[i]);
+        writeFixed(a.trajX[i]);
+        writeFixed(a.trajY[i]);
+        writeFixed(a.trajVx[i]);
+        writeFixed(a.trajVy[i]);
+        writeFixed(a.radius[i]);
+        gen.writeNumber(a.hp[i]);
+        gen.writeNumber(a.big[i] ? 1 : 0);
+        gen.writeEndArray();
+    }
+
+    /**
+     * 二进制 STATE（格式见 BinaryProtocol），与 JSON 内容一一对应
+     */
+    private byte[] writeBinary(WorldSnapshot base) {
+        VarIntBuffer b = bin;
+        b.reset();
+        b.writeByte(BinaryProtocol.MSG_STATE);
+        b.writeVarLong(current.seq);
+        b.writeVarLong(base == null ? 0 : base.seq);
+        b.writeVarLong(current.frame);
+        b.writeVarLong(Math.round(dt * 1_000_000));
+        GameWorld.GamePhase phase = world.getPhase();
+        b.writeByte(phase.ordinal());
+        long timeMs = 0;
+        if (phase == GameWorld.GamePhase.COUNTDOWN) {
+            timeMs = Math.max(0, world.getGameStartTime() - now);
+        } else if (phase == GameWorld.GamePhase.IN_PROGRESS) {
+            timeMs = Math.max(0, now - world.getGameStartTime());
+        }
+        b.writeVarLong(timeMs);
+        b.writeByte(diff.sendNames ? BinaryProtocol.FLAG_NAMES : 0);
+
+        if (diff.sendNames) {
+            PlayerEntity[] slots = world.getPlayerSlots();
+            int count = 0;
+            for (PlayerEntity p : slots) {
+                if (p != null) count++;
+            }
+            b.writeByte(count);
+            for (PlayerEntity p : slots) {
+                if (p == null) continue;
+                b.writeByte(p.slot);
+                b.writeString(p.username);
+            }
+        }
+
+        WorldSnapshot.Players cur = current.players;
+        b.writeVarLong(diff.playerCount);
+        for (int k = 0; k < diff.playerCount; k++) {
+            int s = diff.playerSlots[k];
+            b.writeByte(s);
+            writeQuantized(b, cur.qx[s] / 100.0);
+            writeQuantized(b, cur.qy[s] / 100.0);
+            b.writeSignedVarLong(cur.hp[s]);
+            b.writeSignedVarLong(cur.score[s]);
+            b.writeByte(cur.alive[s] ? 1 : 0);
+        }
+        b.writeVarLong(diff.playersRemovedCount);
+        for (int k = 0; k < diff.playersRemovedCount; k++) {
+            b.writeByte(diff.playersRemoved[k]);
+        }
+
+        BulletStore bullets = world.getBullets();
+        SnapshotDiff.LayerDiff bd = diff.bullets;
+        b.writeVarLong(bd.upsertCount);
+        int prevId = 0;
+        for (int k = 0; k < bd.upsertCount; k++) {
+            int i = bd.upserts[k];
+            b.writeVarLong(bullets.id[i] - prevId);
+            prevId = bullets.id[i];
+            b.writeByte(bullets.ownerSlot[i]);
+            b.writeVarLong(bullets.trajFrame[i]);
+            writeQuantized(b, bullets.trajX[i]);
+            writeQuantized(b, bullets.trajY[i]);
+            writeQuantized(b, bullets.trajVx[i]);
+            writeQuantized(b, bullets.trajVy[i]);
+        }
+        writeRemoved(b, bd);
+
+        AsteroidStore asteroids = world.getAsteroids();
+        SnapshotDiff.LayerDiff ad = diff.asteroids;
+        b.writeVarLong(ad.upsertCount);
+        prevId = 0;
+        for (int k = 0; k < ad.upsertCount; k++) {
+            int i = ad.upserts[k];
+            b.writeVarLong(asteroids.id[i] - prevId);
+            prevId = asteroids.id[i];
+            b.writeVarLong(asteroids.trajFrame[i]);
+            writeQuantized(b, asteroids.trajX[i]);
+            writeQuantized(b, asteroids.trajY[i]);
+            writeQuantized(b, asteroids.trajVx[i]);
+            writeQuantized(b, asteroids.trajVy[i]);
+            writeQuantized(b, asteroids.radius[i]);
+            b.writeSignedVarLong(asteroids.hp[i]);
+            b.writeByte(asteroids.big[i] ? 1 : 0);
+        }
+        writeRemoved(b, ad);
+
+        return b.toByteArray();
+    }
+
+    private static void writeRemoved(VarIntBuffer b, SnapshotDiff.LayerDiff layer) {
+        b.writeVarLong(layer.removedCount);
+        int prevId = 0;
+        for (int k = 0; k < layer.removedCount; k++) {
+            b.writeVarLong(layer.removed[k] - prevId);
+            prevId = layer.removed[k];
+        }
+    }
+
+    private static void writeQuantized(VarIntBuffer b, double value) {
+        b.writeSignedVarLong(Math.round(value * BinaryProtocol.POSITION_SCALE));
+    }
+
+    /**
+     * 两位小数定点输出（-12.5 -> "-12.5"，3.0 -> "3"），不经过 Double.toString
+     */
+    private void writeFixed(double value) throws IOException {
+        long scaled = Math.round(value * 100);
+        boolean negative = scaled < 0;
+        if (negative) scaled = -scaled;
+
+        int pos = digits.length;
+        long frac = scaled % 100;
+        long whole = scaled / 100;
+        if (frac != 0) {
+            if (frac % 10 == 0) {
+                digits[--pos] = (char) ('0' + frac / 10);
+            } else {
+                digits[--pos] = (char) ('0' + frac % 10);
+                digits[--pos] = (char) ('0' + frac / 10);
+            }
+            digits[--pos] = '.';
+        }
+        do {
+            digits[--pos] = (char) ('0' + whole % 10);
+            whole /= 10;
+        } while (whole != 0);
+        if (negative) {
+            digits[--pos] = '-';
+        }
+        gen.writeRawValue(digits, pos, digits.length - pos);
+    }
+
+    /** 可复用的字节缓冲区（reset 不释放底层数组） */
+    private static final class Buffer extends ByteArrayOutputStream {
+        Buffer(int initialSize) {
+            super(initialSize);
+        }
+
+        String toUtf8String() {
+            return new String(buf, 0, count, StandardCharsets.UTF_8);
+        }
+    }
+}
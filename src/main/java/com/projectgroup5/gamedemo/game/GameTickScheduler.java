@@ -1,23 +1,30 @@
 package com.projectgroup5.gamedemo.game;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.projectgroup5.gamedemo.dao.GameLogRepository;
+import com.projectgroup5.gamedemo.dao.GameLogWriter;
 import com.projectgroup5.gamedemo.entity.GameLog;
 import com.projectgroup5.gamedemo.event.EventBus;
 import com.projectgroup5.gamedemo.event.GameEndedEvent;
+import com.projectgroup5.gamedemo.metrics.TickPhase;
+import com.projectgroup5.gamedemo.replay.ReplayRecorder;
+import com.projectgroup5.gamedemo.replay.ReplayWriter;
 import com.projectgroup5.gamedemo.service.LobbyService;
 import com.projectgroup5.gamedemo.websocket.GameWebSocketHandler;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
  * 游戏主循环调度器 - Architecture A 核心
- * 25Hz (每40ms一帧) 的固定时间步长
+ * 模拟频率（game.tick.sim-hz）与快照发送频率（每个房间的 sendHz）分开配置
  *
  * 数据流:
  * Client Input → WebSocket → Event:InputReceived → Physics Tick →
@@ -26,62 +33,106 @@ import java.util.stream.Collectors;
  */
 /**
  * Architecture A 的主游戏循环：
- * - 固定 25 FPS（40ms 一帧）
- * - 从 GameRoomManager 拿到所有活跃的 GameWorld
+ * - 固定时间步长，默认 60 Hz
+ * - 房间按 roomId 哈希到 N 个 TickShard，每个分片一个线程、各自固定频率循环
+ * - 每个分片只处理 GameRoomManager 中属于自己的 GameWorld
  * - 更新物理、碰撞
- * - 通过 GameWebSocketHandler 广播 GAME_STATE
+ * - 游戏中每隔 simHz / sendHz 帧广播一次 GAME_STATE，客户端在两个快照之间插值；
+ *   其他阶段只在阶段/座位表变化或客户端请求关键帧时广播
+ * - 各阶段耗时按房间和分片分别记进 TickMetrics（/metrics）
  */
 @Component
 public class GameTickScheduler {
 
     private static final Logger logger = LoggerFactory.getLogger(GameTickScheduler.class);
 
-    private static final double TICK_RATE = 25.0;        // 25 FPS
-    private static final double DELTA_TIME = 1.0 / TICK_RATE; // 0.04s
+    private final int simHz;
+    private final double deltaTime;   // 秒
+    private final long tickPeriodNanos;
 
     private final GameRoomManager roomManager;
     private final PhysicsEngine physicsEngine;
     private final GameWebSocketHandler webSocketHandler;
     private final EventBus eventBus;
     private final ObjectMapper objectMapper;
-    private final GameLogRepository gameLogRepository;
+    private final GameLogWriter gameLogWriter;
     private final LobbyService lobbyService;
+    private final ReplayRecorder replayRecorder;
+
+    private TickShard[] shards = new TickShard[0];
+    // 每个分片一个 GAME_STATE 序列化器，下标与 shard index 对应
+    private GameStateWriter[] stateWriters = new GameStateWriter[0];
 
     public GameTickScheduler(GameRoomManager roomManager,
                              PhysicsEngine physicsEngine,
                              GameWebSocketHandler webSocketHandler,
                              EventBus eventBus,
                              ObjectMapper objectMapper,
-                             GameLogRepository gameLogRepository,
-                             LobbyService lobbyService) {
+                             GameLogWriter gameLogWriter,
+                             LobbyService lobbyService,
+                             ReplayRecorder replayRecorder,
+                             @Value("${game.tick.sim-hz:60}") int simHz) {
         this.roomManager = roomManager;
         this.physicsEngine = physicsEngine;
         this.webSocketHandler = webSocketHandler;
         this.eventBus = eventBus;
         this.objectMapper = objectMapper;
-        this.gameLogRepository = gameLogRepository;
+        this.gameLogWriter = gameLogWriter;
         this.lobbyService = lobbyService;
+        this.replayRecorder = replayRecorder;
+        this.simHz = Math.max(1, simHz);
+        this.deltaTime = 1.0 / this.simHz;
+        this.tickPeriodNanos = TimeUnit.SECONDS.toNanos(1) / this.simHz;
     }
 
-    /** 唯一的游戏主循环 */
-    @Scheduled(fixedRate = 40) // 约等于 25 FPS
-    public void tick() {
-        roomManager.getAllActiveGames().forEach((roomId, world) -> {
+    /** 每个分片一个 tick 线程 */
+    @PostConstruct
+    public void start() throws IOException {
+        int n = roomManager.getPartitionCount();
+        shards = new TickShard[n];
+        stateWriters = new GameStateWriter[n];
+        for (int i = 0; i < n; i++) {
+            shards[i] = new TickShard(i, tickPeriodNanos);
+            stateWriters[i] = new GameStateWriter(objectMapper.getFactory(), shards[i].getMetrics());
+            shards[i].start(this::tick);
+        }
+        logger.info("Game tick engine started: {} shards @ {} Hz", n, simHz);
+    }
+
+    @PreDestroy
+    public void stop() {
+        for (TickShard shard : shards) {
+            shard.shutdown();
+        }
+    }
+
+    /** 单个分片的游戏主循环 */
+    private void tick(TickShard shard) {
+        roomManager.getPartition(shard.getIndex()).forEach((roomId, world) -> {
             try {
-                processGameWorld(world);
+                processGameWorld(world, shard);
             } catch (Exception e) {
                 logger.error("Error processing game world {}", roomId, e);
             }
         });
     }
 
-    private void processGameWorld(GameWorld world) {
+    /** 各分片的 tick 统计（超时次数、耗时） */
+    public List<TickShard> getShards() {
+        return List.of(shards);
+    }
+
+    private void processGameWorld(GameWorld world, TickShard shard) {
         long now = System.currentTimeMillis();
+        long tickStart = System.nanoTime();
+
+        // 取出本帧输入（非游戏中阶段也要取，避免队列堆满）
+        world.drainInputs();
 
         switch (world.getPhase()) {
             case WAITING:
                 // 等待玩家，不动；纯靠 WebSocket JOIN 把玩家加进来
-                broadcastGameState(world);
+                broadcastOnEvent(world, shard);
                 break;
 
             case COUNTDOWN:
@@ -89,29 +140,48 @@ public class GameTickScheduler {
                     world.setPhase(GameWorld.GamePhase.IN_PROGRESS);
                     logger.info("Game {} started", world.getRoomId());
                 }
-                broadcastGameState(world);
+                // 倒计时由客户端按 countdownMs 自己走，这里只在进入阶段时发一次
+                broadcastOnEvent(world, shard);
                 break;
 
             case IN_PROGRESS:
+                long t = System.nanoTime();
+                // 先把本帧要应用的输入写进回放
+                ReplayWriter replay = world.getReplay();
+                if (replay != null) {
+                    replay.recordTick(world);
+                }
+                // 应用输入：移动 / 射击（所有 GameWorld 修改都在 tick 线程）
+                physicsEngine.applyPendingInputs(world, simTimeMillis(world));
+                t = recordPhase(world, shard, TickPhase.APPLY_INPUTS, t);
+
                 // 1) 物理更新：玩家位置（根据 velocity）、子弹、石头
-                physicsEngine.updatePositions(world, DELTA_TIME);
+                physicsEngine.updatePositions(world, deltaTime);
+                t = recordPhase(world, shard, TickPhase.UPDATE_POSITIONS, t);
 
                 // 2) 碰撞检测：子弹 vs 石头、石头 vs 玩家、子弹 vs 玩家
                 physicsEngine.detectCollisions(world);
+                t = recordPhase(world, shard, TickPhase.DETECT_COLLISIONS, t);
 
                 // 3) 检查是否满足胜利条件
-                if (checkWinCondition(world)) {
-                    finishGame(world);
+                boolean finished = checkWinCondition(world);
+                recordPhase(world, shard, TickPhase.CHECK_WIN_CONDITION, t);
+                if (finished) {
+                    finishGame(world, shard);
                 }
 
-                // 4) 广播状态
-                broadcastGameState(world);
+                // 4) 按房间发送频率广播状态（结束 / 有人加入时立即广播）
+                if (world.getCurrentFrameNumber() % framesPerSend(world) == 0) {
+                    broadcastGameState(world, shard);
+                } else {
+                    broadcastOnEvent(world, shard);
+                }
 
                 // 5) 帧号 +1
                 world.incrementFrame();
 
                 // 打一点简单日志看玩家是否存在
-                if (!world.getPlayers().isEmpty()) {
+                if (logger.isDebugEnabled() && !world.getPlayers().isEmpty()) {
                     world.getPlayers().values().forEach(p ->
                             logger.debug("Room {} Player {} at ({},{}), hp={}, score={}",
                                     world.getRoomId(), p.username, p.x, p.y, p.hp, p.score));
@@ -119,10 +189,34 @@ public class GameTickScheduler {
                 break;
 
             case FINISHED:
-                // 已结束：广播一次最终状态即可，后面会被清理
-                broadcastGameState(world);
+                // 已结束：进入阶段时广播一次最终状态，后面会被清理
+                broadcastOnEvent(world, shard);
                 break;
         }
+        world.getTickMetrics().recordPhase(TickPhase.TOTAL, System.nanoTime() - tickStart);
+    }
+
+    /** 记录一个阶段的耗时（房间 + 分片），返回当前时间作为下一阶段的起点 */
+    private static long recordPhase(GameWorld world, TickShard shard, TickPhase phase, long start) {
+        long end = System.nanoTime();
+        world.getTickMetrics().recordPhase(phase, end - start);
+        shard.getMetrics().recordPhase(phase, end - start);
+        return end;
+    }
+
+    /**
+     * 开局以来的模拟时间（毫秒），由帧号换算
+     * 游戏逻辑只看它、不看墙上时钟：同一种子 + 同样的每帧输入，无论 tick 是否超时都得到同样的结果
+     */
+    private long simTimeMillis(GameWorld world) {
+        return world.getCurrentFrameNumber() * 1000L / simHz;
+    }
+
+    /** 每隔几帧发一次快照：simHz / sendHz，至少 1 */
+    private int framesPerSend(GameWorld world) {
+        int sendHz = world.getSendHz();
+        if (sendHz <= 0 || sendHz >= simHz) return 1;
+        return Math.max(1, Math.round((float) simHz / sendHz));
     }
 
     /** 胜利条件：检查分数/时间目标以及玩家存活状态 */
@@ -154,8 +248,7 @@ public class GameTickScheduler {
         if (winMode.startsWith("TIME_")) {
             String timeStr = winMode.substring(5);
             int minutes = Integer.parseInt(timeStr.substring(0, timeStr.length() - 1));
-            long elapsed = System.currentTimeMillis() - world.getGameStartTime();
-            if (elapsed >= minutes * 60 * 1000L) {
+            if (simTimeMillis(world) >= minutes * 60 * 1000L) {
                 logger.info("Game {} ends: time limit reached", world.getRoomId());
                 return true;
             }
@@ -172,13 +265,16 @@ public class GameTickScheduler {
     }
 
     /** 结束游戏 + 写 GameLog + 通知 Lobby + 延迟清理 GameWorld */
-    private void finishGame(GameWorld world) {
+    private void finishGame(GameWorld world, TickShard shard) {
         if (world.getPhase() == GameWorld.GamePhase.FINISHED) return;
 
         world.setPhase(GameWorld.GamePhase.FINISHED);
         long now = System.currentTimeMillis();
         long elapsedMs = now - world.getGameStartTime();
 
+        // 结束录制（本帧的物理已经算完）
+        String replayFile = replayRecorder.finish(world);
+
         Map<String, Integer> finalScores = world.getPlayers().values().stream()
                 .collect(Collectors.toMap(p -> p.username, p -> p.score));
 
@@ -211,6 +307,7 @@ public class GameTickScheduler {
             meta.put("maxPlayers", world.getMaxPlayers());
             meta.put("architecture", "A");
             meta.put("totalFrames", world.getCurrentFrameNumber());
+            meta.put("seed", world.getSeed());
 
             Map<String, Object> root = new LinkedHashMap<>();
             root.put("players", players);
@@ -223,9 +320,10 @@ public class GameTickScheduler {
             log.setStartedAt(world.getGameStartTime());
             log.setEndedAt(now);
             log.setResultJson(json);
-            gameLogRepository.insert(log);
+            log.setReplayFile(replayFile);
+            gameLogWriter.submit(log);
 
-            logger.info("Game log saved for room {}", world.getRoomId());
+            logger.info("Game log queued for room {}", world.getRoomId());
         } catch (Exception e) {
             logger.error("Failed to save game log for room {}", world.getRoomId(), e);
         }
@@ -233,80 +331,36 @@ public class GameTickScheduler {
         // 通知 Lobby 把房间状态重置
         lobbyService.resetRoomAfterGame(world.getRoomId());
 
-        // 5 秒后清理 GameWorld
-        new Thread(() -> {
-            try {
-                Thread.sleep(5000);
-                roomManager.removeGameRoom(world.getRoomId());
-                logger.info("GameWorld removed for room {}", world.getRoomId());
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-        }).start();
+        // 5 秒后清理 GameWorld（在本分片线程上执行，不再单独起线程）
+        shard.schedule(() -> {
+            roomManager.removeGameRoom(world);
+            logger.info("GameWorld removed for room {}", world.getRoomId());
+        }, 5, TimeUnit.SECONDS);
     }
 
-    /** 构造 GAME_STATE JSON，并通过 GameWebSocketHandler 广播 */
-    private void broadcastGameState(GameWorld world) {
-        try {
-            Map<String, Object> state = new HashMap<>();
-            state.put("type", "GAME_STATE");
-            state.put("roomId", world.getRoomId());
-            state.put("frame", world.getCurrentFrameNumber());
-            state.put("phase", world.getPhase().name());
-
-            if (world.getPhase() == GameWorld.GamePhase.COUNTDOWN) {
-                long remain = world.getGameStartTime() - System.currentTimeMillis();
-                state.put("countdownMs", Math.max(0, remain));
-            }
-
-            if (world.getPhase() == GameWorld.GamePhase.IN_PROGRESS) {
-                long elapsed = System.currentTimeMillis() - world.getGameStartTime();
-                state.put("elapsedMs", elapsed);
-            }
-
-            List<Map<String, Object>> players = new ArrayList<>();
-            world.getPlayers().forEach((u, p) -> {
-                Map<String, Object> m = new HashMap<>();
-                m.put("username", u);
-                m.put("x", p.x);
-                m.put("y", p.y);
-                m.put("hp", p.hp);
-                m.put("score", p.score);
-                m.put("alive", p.alive);
-                players.add(m);
-            });
-            state.put("players", players);
-
-            List<Map<String, Object>> bullets = new ArrayList<>();
-            world.getBullets().forEach((id, b) -> {
-                Map<String, Object> m = new HashMap<>();
-                m.put("id", id);
-                m.put("owner", b.owner);
-                m.put("x", b.x);
-                m.put("y", b.y);
-                bullets.add(m);
-            });
-            state.put("bullets", bullets);
-
-            List<Map<String, Object>> asteroids = new ArrayList<>();
-            world.getAsteroids().forEach((id, a) -> {
-                Map<String, Object> m = new HashMap<>();
-                m.put("id", id);
-                m.put("x", a.x);
-                m.put("y", a.y);
-                m.put("radius", a.radius);
-                m.put("hp", a.hp);
-                m.put("isBig", a.isBig);
-                asteroids.add(m);
-            });
-            state.put("asteroids", asteroids);
-
-            String json = objectMapper.writeValueAsString(state);
-            webSocketHandler.broadcastToRoom(world.getRoomId(), json);
+    /** 只在阶段/座位表变化或有客户端请求关键帧时广播 */
+    private void broadcastOnEvent(GameWorld world, TickShard shard) {
+        if (world.hasBroadcastEvent()) {
+            broadcastGameState(world, shard);
+        }
+    }
 
+    /**
+     * 记录快照并广播 GAME_STATE：每个客户端按自己最后 ACK 的快照收增量，
+     * 没有可用基线（刚加入 / ACK 太旧）时收关键帧
+     */
+    private void broadcastGameState(GameWorld world, TickShard shard) {
+        long start = System.nanoTime();
+        try {
+            world.markBroadcast();
+            SnapshotRing ring = world.getSnapshots();
+            WorldSnapshot snapshot = ring.capture(world, deltaTime);
+            GameStateWriter writer = stateWriters[shard.getIndex()];
+            writer.prepare(world, snapshot, ring, System.currentTimeMillis(), deltaTime);
+            webSocketHandler.broadcastStateToRoom(world.getRoomId(), writer);
         } catch (Exception e) {
             logger.error("Failed to broadcast game state", e);
         }
+        recordPhase(world, shard, TickPhase.BROADCAST_GAME_STATE, start);
     }
 }
-
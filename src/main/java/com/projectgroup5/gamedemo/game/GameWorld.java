@@ -1,5 +1,8 @@
 package com.projectgroup5.gamedemo.game;
 
+import com.projectgroup5.gamedemo.metrics.TickMetrics;
+import com.projectgroup5.gamedemo.replay.ReplayWriter;
+
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -8,24 +11,65 @@ import java.util.concurrent.ConcurrentHashMap;
  * 单个房间的完整游戏状态
  */
 public class GameWorld {
+    private static final int INPUT_QUEUE_CAPACITY = 256;
+    private static final int SNAPSHOT_HISTORY = 32;
+
     private final long roomId;
     private final String mapName;
     private final String winMode;
     private final int maxPlayers;
+
+    // 模拟用的随机数：种子在创建房间时确定，同一种子 + 同样的输入序列得到同样的结果
+    private final long seed;
+    private final SplitMix64 random;
     
     // 游戏时间
     private long gameStartTime;
     private long currentFrameNumber = 0;
     
-    // 玩家状态
+    // 玩家状态：username 索引给连接/大厅用，slot 数组给 tick 热路径用
     private final Map<String, PlayerEntity> players = new ConcurrentHashMap<>();
+    private final PlayerEntity[] playerSlots;
+    // 座位表每变一次 +1（增量快照据此决定是否重发玩家名字）
+    private volatile int rosterVersion;
+
+    // 本房间内单调递增的实体 ID（子弹、石头共用）
+    private int nextEntityId = 1;
     
-    // 游戏实体
-    private final Map<String, BulletEntity> bullets = new ConcurrentHashMap<>();
-    private final Map<String, AsteroidEntity> asteroids = new ConcurrentHashMap<>();
+    // 输入队列：WebSocket 线程只往这里投递，tick 线程每帧开始时取出
+    private final InputRing inputRing = new InputRing(INPUT_QUEUE_CAPACITY);
+    // 本帧每个座位最后一次的按键（-1 表示本帧没收到输入）与是否请求过射击
+    private final int[] pendingButtons;
+    private final boolean[] pendingFire;
+    private final InputRing.Consumer inputSink = this::bufferInput;
+
+    // 最近的广播快照（增量编码的基线）
+    private final SnapshotRing snapshots = new SnapshotRing(SNAPSHOT_HISTORY);
+
+    // 快照发送频率（Hz），与模拟频率无关，由 GameTickScheduler 换算成每隔几帧发一次
+    private int sendHz;
+    // 上一次广播时的阶段 / 座位表（只在 tick 线程读写），用于非游戏阶段的事件驱动广播
+    private GamePhase broadcastPhase;
+    private int broadcastRosterVersion = -1;
+    // 有客户端需要关键帧（刚加入 / 基线丢失），由 WebSocket 线程置位
+    private volatile boolean snapshotRequested;
+
+    // 游戏实体（SoA 存储，只在 tick 线程上读写）
+    private final BulletStore bullets = new BulletStore();
+    private final AsteroidStore asteroids = new AsteroidStore();
     
     // 石头生成计时器（毫秒）
     private double asteroidSpawnTimer = 0;
+
+    // 本房间各 tick 阶段耗时 / 快照字节数（/metrics 按房间输出）
+    private final TickMetrics tickMetrics = new TickMetrics();
+
+    // 对局录制（没开录制时为 null），建房时设置，之后只在 tick 线程使用
+    private ReplayWriter replay;
+
+    // 碰撞检测 broadphase 的复用网格（只在 tick 线程使用）
+    private final SpatialHashGrid asteroidGrid = new SpatialHashGrid(
+            PhysicsEngine.WORLD_WIDTH, PhysicsEngine.WORLD_HEIGHT, PhysicsEngine.GRID_CELL_SIZE);
     
     // 游戏阶段
     private volatile GamePhase phase = GamePhase.WAITING;
@@ -37,39 +81,162 @@ public class GameWorld {
         FINISHED      // 已结束
     }
 
-    public GameWorld(long roomId, String mapName, String winMode, int maxPlayers) {
+    public GameWorld(long roomId, String mapName, String winMode, int maxPlayers, long seed) {
         this.roomId = roomId;
         this.mapName = mapName;
         this.winMode = winMode;
         this.maxPlayers = Math.min(maxPlayers, 4);
+        this.seed = seed;
+        this.random = new SplitMix64(seed);
+        this.playerSlots = new PlayerEntity[this.maxPlayers];
+        this.pendingButtons = new int[this.maxPlayers];
+        this.pendingFire = new boolean[this.maxPlayers];
+        Arrays.fill(pendingButtons, -1);
     }
 
+    /*
+     * 座位表修改（addPlayer / addPlayerAt / removePlayer）会动 playerSlots 和 SoA 子弹存储，
+     * 只能在模拟这个世界的线程上调用：线上房间在 GameRoomManager 建房时（交给 tick 线程之前），
+     * 回放在 ReplaySimulation 自己的线程上。WebSocket 线程只读 players。
+     */
+
     /**
-     * 初始化玩家（分散初始位置）
+     * 初始化玩家（占用最小的空座位，按座位分散初始位置）
      */
     public void addPlayer(String username) {
-        if (players.size() >= maxPlayers) {
+        int slot = -1;
+        for (int i = 0; i < playerSlots.length; i++) {
+            if (playerSlots[i] == null) {
+                slot = i;
+                break;
+            }
+        }
+        if (slot < 0) {
             throw new IllegalStateException("房间已满");
         }
-        
-        // 根据玩家数量分散位置
+        placePlayer(slot, username);
+    }
+
+    /**
+     * 把玩家放到指定座位（回放按录制的座位表还原），座位上原来的玩家被移除
+     */
+    public void addPlayerAt(int slot, String username) {
+        PlayerEntity occupant = playerSlots[slot];
+        if (occupant != null) {
+            if (occupant.username.equals(username)) return;
+            removePlayer(occupant.username);
+        }
+        if (players.containsKey(username)) {
+            removePlayer(username);
+        }
+        placePlayer(slot, username);
+    }
+
+    private void placePlayer(int slot, String username) {
+        // 根据座位号分散位置
         double baseX = 240;
         double spacing = 60;
-        double offsetX = (players.size() - (maxPlayers - 1) / 2.0) * spacing;
+        double offsetX = (slot - (maxPlayers - 1) / 2.0) * spacing;
         
         PlayerEntity player = new PlayerEntity(
+            slot,
             username,
             baseX + offsetX,
             500 // Y位置固定在底部
         );
         
+        playerSlots[slot] = player;
         players.put(username, player);
+        rosterVersion++;
     }
     
     public void removePlayer(String username) {
-        players.remove(username);
+        PlayerEntity player = players.remove(username);
+        if (player == null) return;
+        playerSlots[player.slot] = null;
+        rosterVersion++;
         // 移除该玩家的所有子弹
-        bullets.entrySet().removeIf(e -> e.getValue().owner.equals(username));
+        bullets.removeByOwner(player.slot);
+    }
+
+    /**
+     * 取出输入队列：移动按最后一条为准，射击只要本帧出现过就记一次
+     * 结果留在 pendingButtons / pendingFire，由 PhysicsEngine 消费后清空
+     */
+    public int drainInputs() {
+        return inputRing.drain(inputSink);
+    }
+
+    private void bufferInput(int slot, int buttons) {
+        if (slot >= maxPlayers) return;
+        pendingButtons[slot] = buttons;
+        if ((buttons & InputRing.BTN_FIRE) != 0) {
+            pendingFire[slot] = true;
+        }
+    }
+
+    /**
+     * 请求 tick 线程尽快广播一次快照（不必等到下一个发送周期）
+     */
+    public void requestSnapshot() {
+        snapshotRequested = true;
+    }
+
+    /**
+     * 自上次广播以来是否发生了需要立即广播的事件：阶段变化、座位表变化或有客户端请求（只在 tick 线程调用）
+     */
+    public boolean hasBroadcastEvent() {
+        return snapshotRequested || phase != broadcastPhase || rosterVersion != broadcastRosterVersion;
+    }
+
+    /**
+     * 记录本次广播对应的阶段和座位表（在采集快照之前调用，之后发生的变化留给下一帧）
+     */
+    public void markBroadcast() {
+        snapshotRequested = false;
+        broadcastPhase = phase;
+        broadcastRosterVersion = rosterVersion;
+    }
+
+    /**
+     * 本房间的随机数发生器（只在 tick 线程调用）
+     */
+    public SplitMix64 getRandom() {
+        return random;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public ReplayWriter getReplay() {
+        return replay;
+    }
+
+    public void setReplay(ReplayWriter replay) {
+        this.replay = replay;
+    }
+
+    /**
+     * 分配一个新的实体 ID（只在 tick 线程调用）
+     */
+    public int nextEntityId() {
+        return nextEntityId++;
+    }
+
+    /**
+     * 座位数组，空座位为 null（热路径直接遍历，不走 Map）
+     */
+    public PlayerEntity[] getPlayerSlots() {
+        return playerSlots;
+    }
+
+    public int getRosterVersion() {
+        return rosterVersion;
+    }
+
+    public PlayerEntity getPlayerBySlot(int slot) {
+        return slot >= 0 && slot < playerSlots.length ? playerSlots[slot] : null;
     }
     
     // Getters
@@ -97,14 +264,38 @@ public class GameWorld {
         return players; 
     }
     
-    public Map<String, BulletEntity> getBullets() { 
+    public InputRing getInputRing() {
+        return inputRing;
+    }
+
+    public SnapshotRing getSnapshots() {
+        return snapshots;
+    }
+
+    public int[] getPendingButtons() {
+        return pendingButtons;
+    }
+
+    public boolean[] getPendingFire() {
+        return pendingFire;
+    }
+    
+    public BulletStore getBullets() { 
         return bullets; 
     }
     
-    public Map<String, AsteroidEntity> getAsteroids() {
+    public AsteroidStore getAsteroids() {
         return asteroids;
     }
     
+    public TickMetrics getTickMetrics() {
+        return tickMetrics;
+    }
+
+    public SpatialHashGrid getAsteroidGrid() {
+        return asteroidGrid;
+    }
+    
     public double getAsteroidSpawnTimer() {
         return asteroidSpawnTimer;
     }
@@ -132,5 +323,13 @@ public class GameWorld {
     public int getMaxPlayers() {
         return maxPlayers;
     }
+
+    public int getSendHz() {
+        return sendHz;
+    }
+
+    public void setSendHz(int sendHz) {
+        this.sendHz = sendHz;
+    }
 }
 
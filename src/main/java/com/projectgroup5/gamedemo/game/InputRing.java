@@ -0,0 +1,88 @@
+package com.projectgroup5.gamedemo.game;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 房间输入队列（有界、多生产者单消费者、无锁）
+ *
+ * - 生产者：Tomcat WebSocket 线程，offer() 只做一次 CAS + 一次写，不分配对象
+ * - 消费者：房间所在分片的 tick 线程，每帧开始时 drain()
+ * - 每条输入压成一个 long：座位号 + 按键位，0 表示槽位空
+ * - 队列满时直接丢弃（下一条输入马上会覆盖移动状态，丢几条无所谓）
+ */
+public class InputRing {
+    public static final int BTN_UP = 1;
+    public static final int BTN_DOWN = 1 << 1;
+    public static final int BTN_LEFT = 1 << 2;
+    public static final int BTN_RIGHT = 1 << 3;
+    public static final int BTN_FIRE = 1 << 4;
+
+    private static final int SLOT_SHIFT = 8;
+    private static final long PRESENT = 1L << 62;   // 保证编码后非 0
+
+    /** 消费回调（tick 线程上执行） */
+    public interface Consumer {
+        void accept(int slot, int buttons);
+    }
+
+    private final int mask;
+    private final AtomicLongArray buffer;
+    private final AtomicLong tail = new AtomicLong();   // 生产者争用
+    private volatile long head;                         // 只有消费者写
+    private final AtomicLong dropped = new AtomicLong();
+
+    public InputRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.buffer = new AtomicLongArray(size);
+    }
+
+    /**
+     * 投递一条输入，队列满返回 false
+     */
+    public boolean offer(int slot, int buttons) {
+        long t;
+        do {
+            t = tail.get();
+            if (t - head > mask) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        } while (!tail.compareAndSet(t, t + 1));
+        buffer.lazySet((int) (t & mask), encode(slot, buttons));
+        return true;
+    }
+
+    /**
+     * 取出当前所有已发布的输入，返回条数
+     * 遇到已占位但还没写完的槽位就停下，留到下一帧
+     */
+    public int drain(Consumer consumer) {
+        long h = head;
+        int count = 0;
+        while (true) {
+            int index = (int) (h & mask);
+            long record = buffer.get(index);
+            if (record == 0) break;
+            buffer.lazySet(index, 0);
+            h++;
+            count++;
+            consumer.accept((int) (record >>> SLOT_SHIFT) & 0xFF, (int) record & 0xFF);
+        }
+        head = h;
+        return count;
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    private static long encode(int slot, int buttons) {
+        return PRESENT | ((long) (slot & 0xFF) << SLOT_SHIFT) | (buttons & 0xFF);
+    }
+}
@@ -5,6 +5,7 @@ import com.projectgroup5.gamedemo.event.EventBus;
 import com.projectgroup5.gamedemo.event.ScoreUpdatedEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 /**
@@ -16,16 +17,29 @@ public class PhysicsEngine {
     private static final Logger logger = LoggerFactory.getLogger(PhysicsEngine.class);
     
     private static final double PLAYER_SPEED = 200.0; // pixels/second
-    private static final int WORLD_WIDTH = 480;
-    private static final int WORLD_HEIGHT = 640;
+    static final int WORLD_WIDTH = 480;
+    static final int WORLD_HEIGHT = 640;
+    // 网格边长必须 >= 最大碰撞距离（大石头 26 + 玩家 16 = 42），这样只查 3x3 邻格即可
+    static final double GRID_CELL_SIZE = 48.0;
     private static final double ASTEROID_SPAWN_INTERVAL_MS = 800.0; // 每800ms生成一个石头
     private static final double ASTEROID_SPAWN_X_MARGIN = 30.0; // 离边界30px
     private static final int MAX_ASTEROIDS = 20;
 
     private final EventBus eventBus;
+    private volatile BroadphaseStrategy broadphase;
     
-    public PhysicsEngine(EventBus eventBus) {
+    public PhysicsEngine(EventBus eventBus,
+                         @Value("${game.physics.broadphase:SPATIAL_HASH}") BroadphaseStrategy broadphase) {
         this.eventBus = eventBus;
+        this.broadphase = broadphase;
+    }
+
+    public BroadphaseStrategy getBroadphase() {
+        return broadphase;
+    }
+
+    public void setBroadphase(BroadphaseStrategy broadphase) {
+        this.broadphase = broadphase;
     }
     
     /**
@@ -39,12 +53,24 @@ public class PhysicsEngine {
 //            return;
 //        }
         
+        int buttons = 0;
+        if (input.isMoveUp()) buttons |= InputRing.BTN_UP;
+        if (input.isMoveDown()) buttons |= InputRing.BTN_DOWN;
+        if (input.isMoveLeft()) buttons |= InputRing.BTN_LEFT;
+        if (input.isMoveRight()) buttons |= InputRing.BTN_RIGHT;
+        applyMovement(player, buttons);
+    }
+
+    /**
+     * 按键位 -> 速度
+     */
+    public void applyMovement(PlayerEntity player, int buttons) {
         double vx = 0, vy = 0;
         
-        if (input.isMoveUp()) vy -= 1;
-        if (input.isMoveDown()) vy += 1;
-        if (input.isMoveLeft()) vx -= 1;
-        if (input.isMoveRight()) vx += 1;
+        if ((buttons & InputRing.BTN_UP) != 0) vy -= 1;
+        if ((buttons & InputRing.BTN_DOWN) != 0) vy += 1;
+        if ((buttons & InputRing.BTN_LEFT) != 0) vx -= 1;
+        if ((buttons & InputRing.BTN_RIGHT) != 0) vx += 1;
         
         // 归一化对角线移动（避免斜向移动更快）
         double magnitude = Math.sqrt(vx * vx + vy * vy);
@@ -57,13 +83,39 @@ public class PhysicsEngine {
         player.velocityY = vy;
     }
     
+    /**
+     * 应用本帧从输入队列取出的输入（tick 开始时调用）
+     * 移动：每个座位最后一条生效；射击：本帧请求过就尝试一次，受冷却限制
+     * currentTime 是模拟时间（按帧号换算的毫秒），不读墙上时钟，保证可重放
+     */
+    public void applyPendingInputs(GameWorld world, long currentTime) {
+        int[] buttons = world.getPendingButtons();
+        boolean[] fire = world.getPendingFire();
+        PlayerEntity[] slots = world.getPlayerSlots();
+
+        for (int s = 0; s < slots.length; s++) {
+            PlayerEntity player = slots[s];
+            if (player != null && player.alive) {
+                if (buttons[s] >= 0) {
+                    applyMovement(player, buttons[s]);
+                }
+                if (fire[s] && canFire(player, currentTime)) {
+                    spawnBullet(world, player);
+                    player.lastFireTime = currentTime;
+                }
+            }
+            buttons[s] = -1;
+            fire[s] = false;
+        }
+    }
+
     /**
      * 更新所有实体位置（固定时间步长）
      */
     public void updatePositions(GameWorld world, double deltaSeconds) {
         // 更新玩家位置
-        world.getPlayers().values().forEach(player -> {
-            if (player.alive) {
+        for (PlayerEntity player : world.getPlayerSlots()) {
+            if (player != null && player.alive) {
                 player.x += player.velocityX * deltaSeconds;
                 player.y += player.velocityY * deltaSeconds;
                 
@@ -73,25 +125,34 @@ public class PhysicsEngine {
                 player.y = Math.max(PlayerEntity.HEIGHT / 2, 
                     Math.min(WORLD_HEIGHT - PlayerEntity.HEIGHT / 2, player.y));
             }
-        });
+        }
         
-        // 更新子弹位置
-        world.getBullets().values().removeIf(bullet -> {
-            bullet.x += bullet.velocityX * deltaSeconds;
-            bullet.y += bullet.velocityY * deltaSeconds;
+        // 更新子弹位置（倒序遍历，swap-remove 不会跳过元素）
+        BulletStore bullets = world.getBullets();
+        double[] bx = bullets.x, by = bullets.y, bvx = bullets.vx, bvy = bullets.vy;
+        for (int i = bullets.size() - 1; i >= 0; i--) {
+            bx[i] += bvx[i] * deltaSeconds;
+            by[i] += bvy[i] * deltaSeconds;
             
             // 移除超出边界的子弹
-            return bullet.x < -10 || bullet.x > WORLD_WIDTH + 10 ||
-                   bullet.y < -10 || bullet.y > WORLD_HEIGHT + 10;
-        });
+            if (bx[i] < -10 || bx[i] > WORLD_WIDTH + 10 ||
+                by[i] < -10 || by[i] > WORLD_HEIGHT + 10) {
+                bullets.remove(i);
+            }
+        }
         
         // 更新石头位置（向下掉落）
-        world.getAsteroids().values().removeIf(asteroid -> {
-            asteroid.y += asteroid.velocityY * deltaSeconds;
+        AsteroidStore asteroids = world.getAsteroids();
+        double[] ax = asteroids.x, ay = asteroids.y, avx = asteroids.vx, avy = asteroids.vy;
+        for (int i = asteroids.size() - 1; i >= 0; i--) {
+            ax[i] += avx[i] * deltaSeconds;
+            ay[i] += avy[i] * deltaSeconds;
             
             // 移除飞出屏幕底部的石头
-            return asteroid.isOffScreen(WORLD_HEIGHT);
-        });
+            if (asteroids.isOffScreen(i, WORLD_HEIGHT)) {
+                asteroids.remove(i);
+            }
+        }
         
         // 生成新石头
         spawnAsteroids(world, deltaSeconds);
@@ -112,13 +173,13 @@ public class PhysicsEngine {
         if (timer >= ASTEROID_SPAWN_INTERVAL_MS) {
             timer = 0;
 
+            SplitMix64 random = world.getRandom();
             double x = ASTEROID_SPAWN_X_MARGIN +
-                    Math.random() * (WORLD_WIDTH - 2 * ASTEROID_SPAWN_X_MARGIN);
+                    random.nextDouble() * (WORLD_WIDTH - 2 * ASTEROID_SPAWN_X_MARGIN);
 
-            boolean isBig = Math.random() < 0.4;
+            boolean isBig = random.nextDouble() < 0.4;
 
-            AsteroidEntity asteroid = new AsteroidEntity(x, -30, isBig);
-            world.getAsteroids().put(asteroid.id, asteroid);
+            world.getAsteroids().add(world.nextEntityId(), x, -30, isBig, random.nextDouble());
 
             logger.debug("Spawned asteroid at x={}, isBig={}, total={}",
                     x, isBig, world.getAsteroids().size());
@@ -128,123 +189,230 @@ public class PhysicsEngine {
     }
     
     /**
-     * 检测碰撞并发布事件
+     * 检测碰撞并发布事件（按配置的 broadphase 策略）
+     * 被击毁的子弹/石头先把 hp 置 0，最后统一 removeDead()，保证遍历期间下标不变
      */
     public void detectCollisions(GameWorld world) {
+        if (broadphase == BroadphaseStrategy.SPATIAL_HASH) {
+            detectCollisionsSpatialHash(world);
+        } else {
+            detectCollisionsBruteForce(world);
+        }
+        world.getBullets().removeDead();
+        world.getAsteroids().removeDead();
+    }
+
+    /**
+     * 原始实现：全量两两比较，O(B·A + A·P + B·P)
+     */
+    void detectCollisionsBruteForce(GameWorld world) {
         long roomId = world.getRoomId();
+        BulletStore bullets = world.getBullets();
+        AsteroidStore asteroids = world.getAsteroids();
         
         // 子弹 vs 石头
-        world.getBullets().values().removeIf(bullet -> {
-            for (AsteroidEntity asteroid : world.getAsteroids().values()) {
-                if (checkCircleCollision(
-                    bullet.x, bullet.y, BulletEntity.RADIUS,
-                    asteroid.x, asteroid.y, asteroid.radius)) {
-                    
-                    // 石头受伤
-                    asteroid.hp -= bullet.damage;
-                    
-                    if (asteroid.hp <= 0) {
-                        // 石头被摧毁，击毁者加分
-                        PlayerEntity shooter = world.getPlayers().get(bullet.owner);
-                        if (shooter != null) {
-                            int points = asteroid.isBig ? 10 : 5;
-                            shooter.score += points;
-                            eventBus.publish(new ScoreUpdatedEvent(
-                                roomId, shooter.username, points, shooter.score));
-                            logger.debug("Player {} destroyed asteroid, +{} points", 
-                                shooter.username, points);
-                        }
-                        
-                        // 标记石头待删除
-                        world.getAsteroids().remove(asteroid.id);
-                    }
+        for (int b = 0; b < bullets.size(); b++) {
+            for (int a = 0; a < asteroids.size(); a++) {
+                if (asteroids.hp[a] > 0 && checkCircleCollision(
+                    bullets.x[b], bullets.y[b], BulletStore.RADIUS,
+                    asteroids.x[a], asteroids.y[a], asteroids.radius[a])) {
                     
-                    return true; // 移除子弹
+                    bulletHitAsteroid(world, roomId, b, a);
+                    break;
                 }
             }
-            return false;
-        });
+        }
         
         // 石头 vs 玩家
-        world.getAsteroids().values().removeIf(asteroid -> {
-            for (PlayerEntity player : world.getPlayers().values()) {
-                if (!player.alive) continue;
+        for (int a = 0; a < asteroids.size(); a++) {
+            if (asteroids.hp[a] <= 0) continue;
+            for (PlayerEntity player : world.getPlayerSlots()) {
+                if (player == null || !player.alive) continue;
                 
                 // 矩形与圆形碰撞检测（简化为圆形）
                 if (checkCircleCollision(
-                    asteroid.x, asteroid.y, asteroid.radius,
+                    asteroids.x[a], asteroids.y[a], asteroids.radius[a],
                     player.x, player.y, PlayerEntity.COLLISION_RADIUS)) {
                     
-                    // 玩家受伤
-                    player.hp -= 1;
-                    if (player.hp <= 0) {
-                        player.hp = 0;
-                        player.alive = false;
-                        logger.info("Player {} destroyed by asteroid", player.username);
-                    }
-                    
-                    eventBus.publish(new CollisionDetectedEvent(
-                        roomId, 
-                        "asteroid", 
-                        player.username,
-                        CollisionDetectedEvent.CollisionType.BULLET_HIT_PLAYER
-                    ));
-                    
-                    return true; // 移除石头
+                    asteroidHitPlayer(world, roomId, a, player);
+                    break;
                 }
             }
-            return false;
-        });
+        }
         
         // 子弹 vs 玩家（PvP碰撞，如果需要）
-        world.getBullets().values().removeIf(bullet -> {
-            for (PlayerEntity player : world.getPlayers().values()) {
-                if (!player.alive) continue;
-                if (player.username.equals(bullet.owner)) continue; // 不能打到自己
-                
+        hitPlayersWithBullets(world, roomId);
+    }
+    
+    /**
+     * 网格实现：石头按位置放进 SpatialHashGrid，子弹/玩家只和 3x3 邻格里的石头比较。
+     * 玩家最多 4 个，子弹 vs 玩家直接遍历玩家即可，不需要再建网格。
+     */
+    void detectCollisionsSpatialHash(GameWorld world) {
+        long roomId = world.getRoomId();
+        BulletStore bullets = world.getBullets();
+        AsteroidStore asteroids = world.getAsteroids();
+        SpatialHashGrid grid = world.getAsteroidGrid();
+
+        // 石头下标放进网格
+        grid.clear();
+        for (int a = 0; a < asteroids.size(); a++) {
+            grid.insert(a, asteroids.x[a], asteroids.y[a]);
+        }
+
+        // 子弹 vs 石头
+        for (int b = 0; b < bullets.size(); b++) {
+            int a = findAsteroidNear(grid, asteroids, bullets.x[b], bullets.y[b], BulletStore.RADIUS);
+            if (a >= 0) {
+                bulletHitAsteroid(world, roomId, b, a);
+            }
+        }
+
+        // 石头 vs 玩家
+        for (PlayerEntity player : world.getPlayerSlots()) {
+            if (player == null || !player.alive) continue;
+
+            int a = findAsteroidNear(grid, asteroids, player.x, player.y, PlayerEntity.COLLISION_RADIUS);
+            while (a >= 0 && player.alive) {
+                asteroidHitPlayer(world, roomId, a, player);
+                a = findAsteroidNear(grid, asteroids, player.x, player.y, PlayerEntity.COLLISION_RADIUS);
+            }
+        }
+
+        // 子弹 vs 玩家
+        hitPlayersWithBullets(world, roomId);
+    }
+
+    /**
+     * 在 (x, y) 的 3x3 邻格里找与半径 r 的圆相交、且还存在的石头中下标最小的一个；没有返回 -1
+     * （和 BRUTE_FORCE 按下标顺序取第一个的规则一致，两种策略结果完全相同）
+     */
+    private int findAsteroidNear(SpatialHashGrid grid, AsteroidStore asteroids,
+                                 double x, double y, double r) {
+        int c0 = grid.col(x - grid.getCellSize());
+        int c1 = grid.col(x + grid.getCellSize());
+        int r0 = grid.row(y - grid.getCellSize());
+        int r1 = grid.row(y + grid.getCellSize());
+        int found = -1;
+        for (int row = r0; row <= r1; row++) {
+            for (int col = c0; col <= c1; col++) {
+                for (int i = grid.first(col, row); i >= 0; i = grid.next(i)) {
+                    if ((found < 0 || i < found) && asteroids.hp[i] > 0 && checkCircleCollision(
+                            x, y, r, asteroids.x[i], asteroids.y[i], asteroids.radius[i])) {
+                        found = i;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * 子弹 b 命中石头 a：石头掉血，打爆则给射手加分；子弹标记销毁
+     */
+    private void bulletHitAsteroid(GameWorld world, long roomId, int b, int a) {
+        BulletStore bullets = world.getBullets();
+        AsteroidStore asteroids = world.getAsteroids();
+
+        // 石头受伤
+        asteroids.hp[a] -= BulletStore.DAMAGE;
+        
+        if (asteroids.hp[a] <= 0) {
+            // 石头被摧毁，击毁者加分
+            PlayerEntity shooter = world.getPlayerBySlot(bullets.ownerSlot[b]);
+            if (shooter != null) {
+                int points = asteroids.big[a] ? 10 : 5;
+                shooter.score += points;
+                eventBus.publish(new ScoreUpdatedEvent(
+                    roomId, shooter.username, points, shooter.score));
+                logger.debug("Player {} destroyed asteroid, +{} points", 
+                    shooter.username, points);
+            }
+        }
+        
+        bullets.hp[b] = 0; // 移除子弹
+    }
+
+    /**
+     * 石头 a 撞到玩家：玩家掉 1 血，石头标记销毁
+     */
+    private void asteroidHitPlayer(GameWorld world, long roomId, int a, PlayerEntity player) {
+        // 玩家受伤
+        player.hp -= 1;
+        if (player.hp <= 0) {
+            player.hp = 0;
+            player.alive = false;
+            logger.info("Player {} destroyed by asteroid", player.username);
+        }
+        
+        eventBus.publish(new CollisionDetectedEvent(
+            roomId, 
+            "asteroid", 
+            player.username,
+            CollisionDetectedEvent.CollisionType.BULLET_HIT_PLAYER
+        ));
+        
+        world.getAsteroids().hp[a] = 0; // 移除石头
+    }
+
+    /**
+     * 子弹 vs 所有玩家（PvP）
+     */
+    private void hitPlayersWithBullets(GameWorld world, long roomId) {
+        BulletStore bullets = world.getBullets();
+        for (int b = 0; b < bullets.size(); b++) {
+            if (bullets.hp[b] <= 0) continue;
+            int ownerSlot = bullets.ownerSlot[b];
+
+            for (PlayerEntity player : world.getPlayerSlots()) {
+                if (player == null || !player.alive) continue;
+                if (player.slot == ownerSlot) continue; // 不能打到自己
+
                 if (checkCircleCollision(
-                    bullet.x, bullet.y, BulletEntity.RADIUS,
+                    bullets.x[b], bullets.y[b], BulletStore.RADIUS,
                     player.x, player.y, PlayerEntity.COLLISION_RADIUS)) {
-                    
+
                     // 发布碰撞事件
+                    PlayerEntity killer = world.getPlayerBySlot(ownerSlot);
+                    String ownerName = killer != null ? killer.username : "unknown";
                     eventBus.publish(new CollisionDetectedEvent(
-                        roomId, 
-                        bullet.owner, 
+                        roomId,
+                        ownerName,
                         player.username,
                         CollisionDetectedEvent.CollisionType.BULLET_HIT_PLAYER
                     ));
-                    
+
                     // 应用伤害
-                    player.hp -= bullet.damage;
+                    player.hp -= BulletStore.DAMAGE;
                     if (player.hp <= 0) {
                         player.hp = 0;
                         player.alive = false;
-                        logger.info("Player {} eliminated by {}", player.username, bullet.owner);
-                        
+                        logger.info("Player {} eliminated by {}", player.username, ownerName);
+
                         // 击杀者加分
-                        PlayerEntity killer = world.getPlayers().get(bullet.owner);
                         if (killer != null) {
                             int oldScore = killer.score;
                             killer.score += 50;
                             eventBus.publish(new ScoreUpdatedEvent(
                                 roomId, killer.username, 50, killer.score));
-                            logger.info("Player {} scored kill: {} -> {}", 
+                            logger.info("Player {} scored kill: {} -> {}",
                                 killer.username, oldScore, killer.score);
                         }
                     }
-                    
-                    return true; // 移除子弹
+
+                    bullets.hp[b] = 0; // 移除子弹
+                    break;
                 }
             }
-            return false;
-        });
+        }
     }
     
     /**
-     * 创建子弹
+     * 创建子弹（玩家机头位置，向上飞）
      */
-    public BulletEntity createBullet(String owner, double x, double y) {
-        return new BulletEntity(owner, x, y);
+    public void spawnBullet(GameWorld world, PlayerEntity player) {
+        world.getBullets().add(world.nextEntityId(), player.slot,
+                player.x, player.y - PlayerEntity.HEIGHT / 2);
     }
     
     /**
@@ -256,14 +424,14 @@ public class PhysicsEngine {
     }
     
     /**
-     * 圆形碰撞检测
+     * 圆形碰撞检测（比较距离平方，不开方）
      */
     private boolean checkCircleCollision(double x1, double y1, double r1,
                                          double x2, double y2, double r2) {
         double dx = x1 - x2;
         double dy = y1 - y2;
-        double distance = Math.sqrt(dx * dx + dy * dy);
-        return distance < (r1 + r2);
+        double rs = r1 + r2;
+        return dx * dx + dy * dy < rs * rs;
     }
 }
 
@@ -4,20 +4,22 @@ package com.projectgroup5.gamedemo.game;
  * 玩家实体（服务器权威）
  */
 public class PlayerEntity {
+    public final int slot;          // 房间内座位号 0..maxPlayers-1，热路径用它代替 username
     public String username;
     public double x, y;
     public double velocityX, velocityY;
     public int hp;
     public int score;
     public boolean alive;
-    public long lastFireTime = 0;
+    public long lastFireTime = Long.MIN_VALUE / 2;   // 模拟时间（毫秒），初始值保证第 0 帧就能开火
     
     // 碰撞体积
     public static final double WIDTH = 32;
     public static final double HEIGHT = 32;
     public static final double COLLISION_RADIUS = 16;
     
-    public PlayerEntity(String username, double x, double y) {
+    public PlayerEntity(int slot, String username, double x, double y) {
+        this.slot = slot;
         this.username = username;
         this.x = x;
         this.y = y;
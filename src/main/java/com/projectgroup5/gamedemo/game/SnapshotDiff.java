@@ -0,0 +1,82 @@
+package com.projectgroup5.gamedemo.game;
+
+import java.util.Arrays;
+
+/**
+ * 当前快照相对基线的差异（与线上编码格式无关，JSON / 二进制共用）
+ *
+ * base 为 null 时等价于关键帧：全部实体都是 upsert，没有 removed。
+ * 数组复用，只在 tick 线程上使用。
+ */
+class SnapshotDiff {
+    boolean keyframe;
+    boolean sendNames;
+
+    int playerCount;
+    int[] playerSlots = new int[4];
+    int playersRemovedCount;
+    int[] playersRemoved = new int[4];
+
+    final LayerDiff bullets = new LayerDiff();
+    final LayerDiff asteroids = new LayerDiff();
+
+    /** 一类实体的差异：upsert 给出实体存储下标（id 升序），removed 给出 id */
+    static final class LayerDiff {
+        int upsertCount;
+        int[] upserts = new int[32];
+        int removedCount;
+        int[] removed = new int[32];
+
+        void compute(WorldSnapshot.Layer cur, WorldSnapshot.Layer base) {
+            upsertCount = 0;
+            removedCount = 0;
+            int j = 0;
+            for (int i = 0; i < cur.count; i++) {
+                int id = cur.id(i);
+                if (base != null) {
+                    while (j < base.count && base.id(j) < id) j++;
+                    if (j < base.count && base.id(j) == id && !cur.changed(i, base, j)) continue;
+                }
+                if (upsertCount == upserts.length) upserts = Arrays.copyOf(upserts, upsertCount * 2);
+                upserts[upsertCount++] = cur.index(i);
+            }
+
+            if (base == null) return;
+            int i = 0;
+            for (j = 0; j < base.count; j++) {
+                int id = base.id(j);
+                while (i < cur.count && cur.id(i) < id) i++;
+                if (i >= cur.count || cur.id(i) != id) {
+                    if (removedCount == removed.length) removed = Arrays.copyOf(removed, removedCount * 2);
+                    removed[removedCount++] = id;
+                }
+            }
+        }
+    }
+
+    void compute(WorldSnapshot current, WorldSnapshot base) {
+        keyframe = base == null;
+        sendNames = base == null || base.rosterVersion != current.rosterVersion;
+
+        WorldSnapshot.Players cur = current.players;
+        int n = cur.present.length;
+        if (playerSlots.length < n) {
+            playerSlots = new int[n];
+            playersRemoved = new int[n];
+        }
+        playerCount = 0;
+        playersRemovedCount = 0;
+        for (int s = 0; s < n; s++) {
+            if (cur.present[s]) {
+                if (base == null || cur.changed(s, base.players)) {
+                    playerSlots[playerCount++] = s;
+                }
+            } else if (base != null && base.players.present[s]) {
+                playersRemoved[playersRemovedCount++] = s;
+            }
+        }
+
+        bullets.compute(current.bullets, base == null ? null : base.bullets);
+        asteroids.compute(current.asteroids, base == null ? null : base.asteroids);
+    }
+}
@@ -0,0 +1,49 @@
+package com.projectgroup5.gamedemo.game;
+
+/**
+ * 每个房间最近 N 个快照的环形缓冲区（只在 tick 线程上读写）
+ *
+ * seq 每次广播 +1（与游戏帧号无关：倒计时、结束阶段帧号不变，但快照内容会变），
+ * 客户端 ACK 的就是 seq。ACK 太旧（已被覆盖）时 get() 返回 null，调用方改发关键帧。
+ */
+public class SnapshotRing {
+    // 轨迹偏差超过这个像素数才重新锚定
+    private static final double TRAJECTORY_EPSILON = 0.5;
+
+    private final WorldSnapshot[] ring;
+    private long nextSeq = 1;
+
+    public SnapshotRing(int capacity) {
+        ring = new WorldSnapshot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new WorldSnapshot();
+        }
+    }
+
+    /**
+     * 锚定轨迹并记录当前世界为新快照
+     */
+    public WorldSnapshot capture(GameWorld world, double dt) {
+        long frame = world.getCurrentFrameNumber();
+        world.getBullets().anchorTrajectories(frame, dt, TRAJECTORY_EPSILON);
+        world.getAsteroids().anchorTrajectories(frame, dt, TRAJECTORY_EPSILON);
+
+        long seq = nextSeq++;
+        WorldSnapshot snapshot = ring[(int) (seq % ring.length)];
+        snapshot.capture(seq, frame, world);
+        return snapshot;
+    }
+
+    /**
+     * 取 seq 对应的快照，不在环里返回 null
+     */
+    public WorldSnapshot get(long seq) {
+        if (seq <= 0) return null;
+        WorldSnapshot snapshot = ring[(int) (seq % ring.length)];
+        return snapshot.seq == seq ? snapshot : null;
+    }
+
+    public int capacity() {
+        return ring.length;
+    }
+}
@@ -0,0 +1,87 @@
+package com.projectgroup5.gamedemo.game;
+
+import java.util.Arrays;
+
+/**
+ * 均匀网格空间哈希（碰撞检测 broadphase）
+ *
+ * - 覆盖整个世界，格子边长 >= 最大碰撞距离，所以只需查 3x3 邻格
+ * - 每个格子是一条用数组串起来的单链表：head[cell] -> next[item] -> ...
+ * - 每帧 clear() + insert() 重建，数组复用，不产生垃圾
+ * - 世界外的实体被夹到边缘格子里（保守，不会漏检）
+ */
+public class SpatialHashGrid {
+    private static final int EMPTY = -1;
+
+    private final double cellSize;
+    private final double invCellSize;
+    private final int cols;
+    private final int rows;
+
+    private final int[] head;
+    private int[] next = new int[64];
+
+    public SpatialHashGrid(double width, double height, double cellSize) {
+        this.cellSize = cellSize;
+        this.invCellSize = 1.0 / cellSize;
+        this.cols = (int) Math.ceil(width / cellSize);
+        this.rows = (int) Math.ceil(height / cellSize);
+        this.head = new int[cols * rows];
+        Arrays.fill(head, EMPTY);
+    }
+
+    /**
+     * 清空所有格子（O(格子数)，与实体数无关）
+     */
+    public void clear() {
+        Arrays.fill(head, EMPTY);
+    }
+
+    /**
+     * 插入实体下标 item（调用方保证同一帧内不重复）
+     */
+    public void insert(int item, double x, double y) {
+        if (item >= next.length) {
+            next = Arrays.copyOf(next, Math.max(item + 1, next.length * 2));
+        }
+        int cell = row(y) * cols + col(x);
+        next[item] = head[cell];
+        head[cell] = item;
+    }
+
+    public int col(double x) {
+        int c = (int) Math.floor(x * invCellSize);
+        return c < 0 ? 0 : (c >= cols ? cols - 1 : c);
+    }
+
+    public int row(double y) {
+        int r = (int) Math.floor(y * invCellSize);
+        return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
+    }
+
+    /**
+     * 格子 (c, r) 链表的第一个实体，没有返回 -1
+     */
+    public int first(int c, int r) {
+        return head[r * cols + c];
+    }
+
+    /**
+     * 同一格子链表中的下一个实体，没有返回 -1
+     */
+    public int next(int item) {
+        return next[item];
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+}
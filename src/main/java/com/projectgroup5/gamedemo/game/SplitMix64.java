@@ -0,0 +1,47 @@
+package com.projectgroup5.gamedemo.game;
+
+/**
+ * 房间自己的伪随机数发生器（SplitMix64）
+ *
+ * - 每个 GameWorld 一个，只在 tick 线程上用，不加锁，也不和其他房间争用全局 Random
+ * - 同一个种子 + 同样的每帧输入 = 完全相同的模拟（回放 / 回归测试依赖这一点）
+ * - 算法写死在这里而不用 java.util.SplittableRandom，保证换 JDK 后老录像还能重放
+ */
+public final class SplitMix64 {
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+    private long state;
+
+    public SplitMix64(long seed) {
+        this.state = seed;
+    }
+
+    public long nextLong() {
+        return mix(state += GOLDEN_GAMMA);
+    }
+
+    /** [0, 1) 均匀分布，53 位精度 */
+    public double nextDouble() {
+        return (nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+
+    /** [0, bound) */
+    public int nextInt(int bound) {
+        if (bound <= 0) throw new IllegalArgumentException("bound must be positive");
+        return (int) (((nextLong() >>> 33) * bound) >>> 31);
+    }
+
+    /**
+     * 派生一个独立的子发生器（比如给某个子系统单独一条随机流，互不影响取数顺序）
+     */
+    public SplitMix64 split() {
+        return new SplitMix64(nextLong());
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
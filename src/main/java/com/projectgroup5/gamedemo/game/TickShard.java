@@ -0,0 +1,167 @@
+package com.projectgroup5.gamedemo.game;
+
+import com.projectgroup5.gamedemo.metrics.TickMetrics;
+import com.projectgroup5.gamedemo.metrics.TickPhase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Tick 分片 - 一个独立线程 + 自己的固定频率循环
+ * 房间按 roomId 哈希到分片，慢房间只会拖慢同分片的房间
+ */
+public class TickShard {
+    private static final Logger logger = LoggerFactory.getLogger(TickShard.class);
+
+    // 超时告警的最小间隔，避免刷屏
+    private static final long OVERRUN_LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    // HotSpot 的线程分配计数器，不支持时为 null（分配统计恒为 0）
+    private static final com.sun.management.ThreadMXBean THREAD_MX = threadMXBean();
+
+    private final int index;
+    private final long periodNanos;
+    private final ScheduledExecutorService executor;
+
+    // 超时统计（只有本分片线程写，其他线程读）
+    private final AtomicLong ticks = new AtomicLong();
+    private final AtomicLong overruns = new AtomicLong();
+    private volatile long lastTickNanos;
+    private volatile long maxTickNanos;
+    private volatile long totalTickNanos;
+    private volatile long lastTickAllocatedBytes;
+    private volatile long totalAllocatedBytes;
+    private long lastOverrunLogNanos;
+    // 本分片所有房间合计的各阶段耗时分布（TOTAL 为整次 tick）
+    private final TickMetrics metrics = new TickMetrics();
+
+    public TickShard(int index, long periodNanos) {
+        this.index = index;
+        this.periodNanos = periodNanos;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "game-tick-" + index);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 启动固定频率循环，body 收到的是本分片自身
+     */
+    public void start(Consumer<TickShard> body) {
+        executor.scheduleAtFixedRate(() -> runTick(body), 0, periodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void runTick(Consumer<TickShard> body) {
+        long allocStart = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            body.accept(this);
+        } catch (Throwable t) {
+            // 异常会让 scheduleAtFixedRate 停掉整个分片，这里必须兜住
+            logger.error("Tick shard {} failed", index, t);
+        }
+        long elapsed = System.nanoTime() - start;
+        metrics.recordPhase(TickPhase.TOTAL, elapsed);
+        long allocated = allocatedBytes() - allocStart;
+        lastTickAllocatedBytes = allocated;
+        totalAllocatedBytes += allocated;
+
+        ticks.incrementAndGet();
+        lastTickNanos = elapsed;
+        totalTickNanos += elapsed;
+        if (elapsed > maxTickNanos) {
+            maxTickNanos = elapsed;
+        }
+        if (elapsed > periodNanos) {
+            long count = overruns.incrementAndGet();
+            long now = System.nanoTime();
+            if (now - lastOverrunLogNanos >= OVERRUN_LOG_INTERVAL_NANOS) {
+                lastOverrunLogNanos = now;
+                logger.warn("Tick shard {} overran: {} us > {} us budget (overruns={})",
+                        index, elapsed / 1000, periodNanos / 1000, count);
+            }
+        }
+    }
+
+    /**
+     * 在本分片线程上延迟执行（保证与 tick 串行）
+     */
+    public void schedule(Runnable task, long delay, TimeUnit unit) {
+        executor.schedule(() -> {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                logger.error("Delayed task on tick shard {} failed", index, t);
+            }
+        }, delay, unit);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public long getPeriodNanos() {
+        return periodNanos;
+    }
+
+    public TickMetrics getMetrics() {
+        return metrics;
+    }
+
+    public long getTicks() {
+        return ticks.get();
+    }
+
+    public long getOverruns() {
+        return overruns.get();
+    }
+
+    public long getLastTickNanos() {
+        return lastTickNanos;
+    }
+
+    public long getMaxTickNanos() {
+        return maxTickNanos;
+    }
+
+    public long getTotalTickNanos() {
+        return totalTickNanos;
+    }
+
+    /** 上一帧在本分片线程上分配的字节数 */
+    public long getLastTickAllocatedBytes() {
+        return lastTickAllocatedBytes;
+    }
+
+    public long getTotalAllocatedBytes() {
+        return totalAllocatedBytes;
+    }
+
+    private static long allocatedBytes() {
+        return THREAD_MX != null ? THREAD_MX.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        try {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean mx
+                    && mx.isThreadAllocatedMemorySupported()) {
+                mx.setThreadAllocatedMemoryEnabled(true);
+                return mx;
+            }
+        } catch (Throwable t) {
+            logger.warn("Thread allocation counter unavailable", t);
+        }
+        return null;
+    }
+}
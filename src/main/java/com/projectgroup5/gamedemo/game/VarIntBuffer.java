@@ -0,0 +1,69 @@
+package com.projectgroup5.gamedemo.game;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 可复用的二进制写缓冲区（varint / zigzag，与 protobuf 相同的编码规则）
+ */
+public class VarIntBuffer {
+    private byte[] buf;
+    private int size;
+
+    public VarIntBuffer(int initialCapacity) {
+        buf = new byte[initialCapacity];
+    }
+
+    public void reset() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void writeByte(int b) {
+        ensure(1);
+        buf[size++] = (byte) b;
+    }
+
+    /** 无符号 varint：每字节 7 位，高位为 1 表示后面还有 */
+    public void writeVarLong(long v) {
+        ensure(10);
+        while ((v & ~0x7FL) != 0) {
+            buf[size++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buf[size++] = (byte) v;
+    }
+
+    /** 有符号 varint（zigzag：0,-1,1,-2 -> 0,1,2,3） */
+    public void writeSignedVarLong(long v) {
+        writeVarLong((v << 1) ^ (v >> 63));
+    }
+
+    /** 长度前缀的 UTF-8 字符串 */
+    public void writeString(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length);
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buf, size, bytes.length);
+        size += bytes.length;
+    }
+
+    /** 把已写内容的 [offset, offset + length) 追加到 out（不分配） */
+    public void writeTo(ByteBuffer out, int offset, int length) {
+        out.put(buf, offset, length);
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buf, size);
+    }
+
+    private void ensure(int extra) {
+        if (size + extra > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + extra));
+        }
+    }
+}
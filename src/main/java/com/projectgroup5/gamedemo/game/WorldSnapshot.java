@@ -0,0 +1,121 @@
+package com.projectgroup5.gamedemo.game;
+
+import java.util.Arrays;
+
+/**
+ * 单帧快照（增量编码的基线）
+ *
+ * 只记录判断"实体是否变化"所需的字段：id、轨迹锚点帧、hp；
+ * 玩家按座位记录编码后的（定点）坐标、hp、分数、存活。
+ * 每层按 id 升序排列，基线与当前帧可以归并比较。
+ * 数组在 SnapshotRing 里循环复用，不随帧分配。
+ */
+public class WorldSnapshot {
+    long seq = -1;
+    long frame;
+    int rosterVersion;
+    final Players players = new Players();
+    final Layer bullets = new Layer();
+    final Layer asteroids = new Layer();
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public long getFrame() {
+        return frame;
+    }
+
+    void capture(long seq, long frame, GameWorld world) {
+        this.seq = seq;
+        this.frame = frame;
+        this.rosterVersion = world.getRosterVersion();
+        players.capture(world.getPlayerSlots());
+        bullets.capture(world.getBullets());
+        asteroids.capture(world.getAsteroids());
+    }
+
+    /** 按座位记录的玩家状态（坐标按 1/100 像素取整，和线上编码一致） */
+    static final class Players {
+        boolean[] present = new boolean[0];
+        long[] qx = new long[0];
+        long[] qy = new long[0];
+        int[] hp = new int[0];
+        int[] score = new int[0];
+        boolean[] alive = new boolean[0];
+
+        boolean changed(int s, Players base) {
+            return !base.present[s] || qx[s] != base.qx[s] || qy[s] != base.qy[s]
+                    || hp[s] != base.hp[s] || score[s] != base.score[s] || alive[s] != base.alive[s];
+        }
+
+        void capture(PlayerEntity[] slots) {
+            int n = slots.length;
+            if (present.length != n) {
+                present = new boolean[n];
+                qx = new long[n];
+                qy = new long[n];
+                hp = new int[n];
+                score = new int[n];
+                alive = new boolean[n];
+            }
+            for (int s = 0; s < n; s++) {
+                PlayerEntity p = slots[s];
+                present[s] = p != null;
+                if (p == null) continue;
+                qx[s] = Math.round(p.x * 100);
+                qy[s] = Math.round(p.y * 100);
+                hp[s] = p.hp;
+                score[s] = p.score;
+                alive[s] = p.alive;
+            }
+        }
+    }
+
+    /** 一类实体的快照 */
+    static final class Layer {
+        int count;
+        // 高 32 位 id，低 32 位本帧在实体存储里的下标（只在本帧编码时有效）
+        long[] keys = new long[32];
+        long[] trajFrame = new long[32];
+        int[] hp = new int[32];
+
+        int id(int i) {
+            return (int) (keys[i] >>> 32);
+        }
+
+        int index(int i) {
+            return (int) keys[i];
+        }
+
+        /** 与另一个快照里的同一实体相比是否需要重发 */
+        boolean changed(int i, Layer base, int j) {
+            return trajFrame[i] != base.trajFrame[j] || hp[i] != base.hp[j];
+        }
+
+        void capture(EntityStore store) {
+            int n = store.size();
+            if (keys.length < n) {
+                int cap = Math.max(n, keys.length * 2);
+                keys = new long[cap];
+                trajFrame = new long[cap];
+                hp = new int[cap];
+            }
+            for (int i = 0; i < n; i++) {
+                keys[i] = ((long) idOf(store, i) << 32) | i;
+            }
+            Arrays.sort(keys, 0, n);
+            for (int i = 0; i < n; i++) {
+                int idx = (int) keys[i];
+                trajFrame[i] = store.trajFrame[idx];
+                hp[i] = store.hp[idx];
+            }
+            count = n;
+        }
+
+        private static int idOf(EntityStore store, int i) {
+            if (store instanceof BulletStore b) return b.id[i];
+            return ((AsteroidStore) store).id[i];
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package com.projectgroup5.gamedemo.metrics;
+
+import com.projectgroup5.gamedemo.dao.GameLogWriter;
+import com.projectgroup5.gamedemo.game.GameRoomManager;
+import com.projectgroup5.gamedemo.game.GameTickScheduler;
+import com.projectgroup5.gamedemo.game.GameWorld;
+import com.projectgroup5.gamedemo.game.TickShard;
+import com.projectgroup5.gamedemo.service.LobbyService;
+import com.projectgroup5.gamedemo.websocket.GameWebSocketHandlerB;
+import com.projectgroup5.gamedemo.websocket.LobbyWebSocketHandler;
+import com.projectgroup5.gamedemo.websocket.OutboundDispatcher;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * /metrics 的数据来源：把各组件已有的计数器和 TickMetrics 直方图汇总成
+ * Prometheus 文本格式或 JSON
+ *
+ * - tick 阶段耗时：按分片（所有房间合计）和按房间各一份
+ * - 快照编码字节数（json / binary）、每个房间的实体数
+ * - 出站队列深度、GameLog 写入队列、大厅房间数 / 订阅数
+ * - 进程 CPU 时间 / 堆 / 线程数（压测工具用来算服务器 CPU 占用）
+ * 只在抓取时读，不在热路径上做任何额外工作
+ */
+@Service
+public class MetricsService {
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final double NANOS_PER_MILLI = 1e6;
+    private static final TickPhase[] PHASES = TickPhase.values();
+
+    private final GameTickScheduler tickScheduler;
+    private final GameRoomManager roomManager;
+    private final OutboundDispatcher outbound;
+    private final GameLogWriter gameLogWriter;
+    private final LobbyService lobbyService;
+    private final LobbyWebSocketHandler lobbyWebSocketHandler;
+    private final GameWebSocketHandlerB archBHandler;
+
+    private final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+    public MetricsService(GameTickScheduler tickScheduler,
+                          GameRoomManager roomManager,
+                          OutboundDispatcher outbound,
+                          GameLogWriter gameLogWriter,
+                          LobbyService lobbyService,
+                          LobbyWebSocketHandler lobbyWebSocketHandler,
+                          GameWebSocketHandlerB archBHandler) {
+        this.tickScheduler = tickScheduler;
+        this.roomManager = roomManager;
+        this.outbound = outbound;
+        this.gameLogWriter = gameLogWriter;
+        this.lobbyService = lobbyService;
+        this.lobbyWebSocketHandler = lobbyWebSocketHandler;
+        this.archBHandler = archBHandler;
+    }
+
+    /** 抓取时刻的房间列表（带所在分片） */
+    private List<RoomEntry> rooms() {
+        List<RoomEntry> rooms = new ArrayList<>();
+        for (int i = 0; i < roomManager.getPartitionCount(); i++) {
+            for (GameWorld world : roomManager.getPartition(i).values()) {
+                rooms.add(new RoomEntry(i, world));
+            }
+        }
+        return rooms;
+    }
+
+    private static class RoomEntry {
+        final int shard;
+        final GameWorld world;
+
+        RoomEntry(int shard, GameWorld world) {
+            this.shard = shard;
+            this.world = world;
+        }
+
+        String roomLabel() {
+            return Long.toString(world.getRoomId());
+        }
+
+        String shardLabel() {
+            return Integer.toString(shard);
+        }
+    }
+
+    // ================== Prometheus ==================
+
+    public String prometheus() {
+        List<TickShard> shards = tickScheduler.getShards();
+        List<RoomEntry> rooms = rooms();
+        PrometheusWriter w = new PrometheusWriter();
+
+        w.family("game_tick_budget_seconds", "gauge", "Tick period of each shard (time budget per tick)");
+        for (TickShard shard : shards) {
+            w.sample("game_tick_budget_seconds", shard.getPeriodNanos() / NANOS_PER_SECOND,
+                    "shard", Integer.toString(shard.getIndex()));
+        }
+        w.family("game_tick_overruns_total", "counter", "Ticks that took longer than the budget");
+        for (TickShard shard : shards) {
+            w.sample("game_tick_overruns_total", shard.getOverruns(), "shard", Integer.toString(shard.getIndex()));
+        }
+        w.family("game_shard_rooms", "gauge", "Active game worlds on each shard");
+        for (TickShard shard : shards) {
+            w.sample("game_shard_rooms", roomManager.getPartition(shard.getIndex()).size(),
+                    "shard", Integer.toString(shard.getIndex()));
+        }
+
+        w.family("game_shard_tick_phase_seconds", "summary", "Tick phase duration summed over the rooms of a shard");
+        for (TickShard shard : shards) {
+            String label = Integer.toString(shard.getIndex());
+            for (TickPhase phase : PHASES) {
+                w.summary("game_shard_tick_phase_seconds", shard.getMetrics().getPhase(phase).snapshot(),
+                        NANOS_PER_SECOND, "shard", label, "phase", phase.getLabel());
+            }
+        }
+        w.family("game_room_tick_phase_seconds", "summary", "Tick phase duration of a single room");
+        for (RoomEntry room : rooms) {
+            for (TickPhase phase : PHASES) {
+                w.summary("game_room_tick_phase_seconds", room.world.getTickMetrics().getPhase(phase).snapshot(),
+                        NANOS_PER_SECOND, "room", room.roomLabel(), "shard", room.shardLabel(),
+                        "phase", phase.getLabel());
+            }
+        }
+
+        w.family("game_shard_snapshot_bytes", "summary", "Encoded GAME_STATE size per distinct encoding");
+        for (TickShard shard : shards) {
+            String label = Integer.toString(shard.getIndex());
+            w.summary("game_shard_snapshot_bytes", shard.getMetrics().getSnapshotBytes(false).snapshot(),
+                    1, "shard", label, "protocol", "json");
+            w.summary("game_shard_snapshot_bytes", shard.getMetrics().getSnapshotBytes(true).snapshot(),
+                    1, "shard", label, "protocol", "binary");
+        }
+        w.family("game_room_snapshot_bytes", "summary", "Encoded GAME_STATE size of a single room");
+        for (RoomEntry room : rooms) {
+            TickMetrics m = room.world.getTickMetrics();
+            w.summary("game_room_snapshot_bytes", m.getSnapshotBytes(false).snapshot(), 1,
+                    "room", room.roomLabel(), "shard", room.shardLabel(), "protocol", "json");
+            w.summary("game_room_snapshot_bytes", m.getSnapshotBytes(true).snapshot(), 1,
+                    "room", room.roomLabel(), "shard", room.shardLabel(), "protocol", "binary");
+        }
+
+        w.family("game_room_entities", "gauge", "Live entities in a room");
+        for (RoomEntry room : rooms) {
+            GameWorld world = room.world;
+            w.sample("game_room_entities", world.getPlayers().size(),
+                    "room", room.roomLabel(), "shard", room.shardLabel(), "kind", "players");
+            w.sample("game_room_entities", world.getBullets().size(),
+                    "room", room.roomLabel(), "shard", room.shardLabel(), "kind", "bullets");
+            w.sample("game_room_entities", world.getAsteroids().size(),
+                    "room", room.roomLabel(), "shard", room.shardLabel(), "kind", "asteroids");
+        }
+        w.family("game_room_frame", "gauge", "Current simulation frame of a room");
+        for (RoomEntry room : rooms) {
+            w.sample("game_room_frame", room.world.getCurrentFrameNumber(),
+                    "room", room.roomLabel(), "shard", room.shardLabel());
+        }
+
+        w.family("ws_outbound_sessions", "gauge", "WebSocket sessions with an outbound queue")
+                .sample("ws_outbound_sessions", outbound.getSessionCount());
+        w.family("ws_outbound_queue_depth", "gauge", "Frames waiting in all session send queues")
+                .sample("ws_outbound_queue_depth", outbound.getQueuedFrames());
+        w.family("ws_outbound_lane_queue_depth", "gauge", "Frames waiting in all session send queues, by lane")
+                .sample("ws_outbound_lane_queue_depth", outbound.getQueuedControlFrames(), "lane", "control")
+                .sample("ws_outbound_lane_queue_depth", outbound.getQueuedStateFrames(), "lane", "state");
+        w.family("ws_outbound_queue_depth_max", "gauge", "Deepest single session send queue")
+                .sample("ws_outbound_queue_depth_max", outbound.getMaxQueueDepth());
+        w.family("ws_outbound_frames_queued_total", "counter", "Frames accepted into send queues")
+                .sample("ws_outbound_frames_queued_total", outbound.getFramesQueued());
+        w.family("ws_outbound_stale_frames_dropped_total", "counter", "State frames replaced before being sent")
+                .sample("ws_outbound_stale_frames_dropped_total", outbound.getStaleFramesDropped());
+        w.family("ws_outbound_slow_consumer_disconnects_total", "counter", "Sessions closed for falling behind")
+                .sample("ws_outbound_slow_consumer_disconnects_total", outbound.getSlowConsumerDisconnects());
+        w.family("ws_outbound_bytes_sent_total", "counter", "Message payload bytes written to sessions")
+                .sample("ws_outbound_bytes_sent_total", outbound.getBytesSent());
+        w.family("ws_outbound_budget_deferrals_total", "counter", "Times a session's state lane waited for its byte budget")
+                .sample("ws_outbound_budget_deferrals_total", outbound.getBudgetDeferrals());
+        w.family("ws_relay_positions_coalesced_total", "counter", "Arch B position messages superseded in the relay bundler")
+                .sample("ws_relay_positions_coalesced_total", archBHandler.getRelayCoalesced());
+
+        w.family("gamelog_queue_depth", "gauge", "Game logs waiting to be written")
+                .sample("gamelog_queue_depth", gameLogWriter.getQueueDepth());
+        w.family("gamelog_submitted_total", "counter", "Game logs accepted by the writer")
+                .sample("gamelog_submitted_total", gameLogWriter.getSubmitted());
+        w.family("gamelog_rejected_total", "counter", "Game logs dropped because the queue was full")
+                .sample("gamelog_rejected_total", gameLogWriter.getRejected());
+        w.family("gamelog_written_total", "counter", "Game logs committed to the database")
+                .sample("gamelog_written_total", gameLogWriter.getWritten());
+        w.family("gamelog_failed_total", "counter", "Game logs that could not be written")
+                .sample("gamelog_failed_total", gameLogWriter.getFailed());
+        w.family("gamelog_commits_total", "counter", "Write transactions")
+                .sample("gamelog_commits_total", gameLogWriter.getCommits());
+        w.family("gamelog_commit_seconds_total", "counter", "Time spent in write transactions")
+                .sample("gamelog_commit_seconds_total", gameLogWriter.getTotalCommitNanos() / NANOS_PER_SECOND);
+
+        w.family("lobby_rooms", "gauge", "Rooms in the lobby")
+                .sample("lobby_rooms", lobbyService.getRoomCount());
+        w.family("lobby_version", "counter", "Lobby snapshot version (one per table change)")
+                .sample("lobby_version", lobbyService.getVersion());
+        w.family("lobby_subscribers", "gauge", "Sessions subscribed to /ws/lobby")
+                .sample("lobby_subscribers", lobbyWebSocketHandler.getSubscriberCount());
+
+        w.family("process_cpu_seconds_total", "counter", "CPU time used by the server process")
+                .sample("process_cpu_seconds_total", processCpuNanos() / NANOS_PER_SECOND);
+        w.family("process_cpu_usage", "gauge", "Recent CPU usage of the server process (0-1 of all cores)")
+                .sample("process_cpu_usage", processCpuLoad());
+        w.family("jvm_available_processors", "gauge", "Cores available to the JVM")
+                .sample("jvm_available_processors", os.getAvailableProcessors());
+        w.family("jvm_heap_used_bytes", "gauge", "Used heap")
+                .sample("jvm_heap_used_bytes", memory.getHeapMemoryUsage().getUsed());
+        w.family("jvm_threads", "gauge", "Live JVM threads")
+                .sample("jvm_threads", ManagementFactory.getThreadMXBean().getThreadCount());
+
+        return w.toString();
+    }
+
+    // ================== JSON ==================
+
+    public Map<String, Object> json() {
+        Map<String, Object> root = new LinkedHashMap<>();
+
+        List<Map<String, Object>> shardList = new ArrayList<>();
+        for (TickShard shard : tickScheduler.getShards()) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("shard", shard.getIndex());
+            m.put("rooms", roomManager.getPartition(shard.getIndex()).size());
+            m.put("budgetMs", shard.getPeriodNanos() / NANOS_PER_MILLI);
+            m.put("ticks", shard.getTicks());
+            m.put("overruns", shard.getOverruns());
+            m.put("phasesMs", phases(shard.getMetrics()));
+            m.put("snapshotBytes", snapshotBytes(shard.getMetrics()));
+            shardList.add(m);
+        }
+        root.put("shards", shardList);
+
+        List<Map<String, Object>> roomList = new ArrayList<>();
+        for (RoomEntry room : rooms()) {
+            GameWorld world = room.world;
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("roomId", world.getRoomId());
+            m.put("shard", room.shard);
+            m.put("phase", world.getPhase().name());
+            m.put("frame", world.getCurrentFrameNumber());
+            Map<String, Object> entities = new LinkedHashMap<>();
+            entities.put("players", world.getPlayers().size());
+            entities.put("bullets", world.getBullets().size());
+            entities.put("asteroids", world.getAsteroids().size());
+            m.put("entities", entities);
+            m.put("phasesMs", phases(world.getTickMetrics()));
+            m.put("snapshotBytes", snapshotBytes(world.getTickMetrics()));
+            roomList.add(m);
+        }
+        root.put("rooms", roomList);
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("sessions", outbound.getSessionCount());
+        out.put("queuedFrames", outbound.getQueuedFrames());
+        out.put("queuedControlFrames", outbound.getQueuedControlFrames());
+        out.put("queuedStateFrames", outbound.getQueuedStateFrames());
+        out.put("maxQueueDepth", outbound.getMaxQueueDepth());
+        out.put("framesQueued", outbound.getFramesQueued());
+        out.put("staleFramesDropped", outbound.getStaleFramesDropped());
+        out.put("slowConsumerDisconnects", outbound.getSlowConsumerDisconnects());
+        out.put("bytesPerSecondBudget", outbound.getBytesPerSecond());
+        out.put("bytesSent", outbound.getBytesSent());
+        out.put("budgetDeferrals", outbound.getBudgetDeferrals());
+        out.put("relayPositionsCoalesced", archBHandler.getRelayCoalesced());
+        root.put("outbound", out);
+
+        Map<String, Object> gamelog = new LinkedHashMap<>();
+        gamelog.put("queueDepth", gameLogWriter.getQueueDepth());
+        gamelog.put("submitted", gameLogWriter.getSubmitted());
+        gamelog.put("rejected", gameLogWriter.getRejected());
+        gamelog.put("written", gameLogWriter.getWritten());
+        gamelog.put("failed", gameLogWriter.getFailed());
+        gamelog.put("commits", gameLogWriter.getCommits());
+        gamelog.put("totalCommitMs", gameLogWriter.getTotalCommitNanos() / NANOS_PER_MILLI);
+        root.put("gamelog", gamelog);
+
+        Map<String, Object> lobby = new LinkedHashMap<>();
+        lobby.put("rooms", lobbyService.getRoomCount());
+        lobby.put("version", lobbyService.getVersion());
+        lobby.put("subscribers", lobbyWebSocketHandler.getSubscriberCount());
+        root.put("lobby", lobby);
+
+        Map<String, Object> process = new LinkedHashMap<>();
+        process.put("cpuSeconds", processCpuNanos() / NANOS_PER_SECOND);
+        process.put("cpuUsage", processCpuLoad());
+        process.put("availableProcessors", os.getAvailableProcessors());
+        process.put("heapUsedBytes", memory.getHeapMemoryUsage().getUsed());
+        process.put("threads", ManagementFactory.getThreadMXBean().getThreadCount());
+        root.put("process", process);
+
+        return root;
+    }
+
+    /** 进程累计 CPU 时间，不支持时为 0 */
+    private long processCpuNanos() {
+        if (os instanceof com.sun.management.OperatingSystemMXBean sun) {
+            return Math.max(0, sun.getProcessCpuTime());
+        }
+        return 0;
+    }
+
+    private double processCpuLoad() {
+        if (os instanceof com.sun.management.OperatingSystemMXBean sun) {
+            return Math.max(0, sun.getProcessCpuLoad());
+        }
+        return 0;
+    }
+
+    private static Map<String, Object> phases(TickMetrics metrics) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        for (TickPhase phase : PHASES) {
+            m.put(phase.getLabel(), summary(metrics.getPhase(phase).snapshot(), NANOS_PER_MILLI));
+        }
+        return m;
+    }
+
+    private static Map<String, Object> snapshotBytes(TickMetrics metrics) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("json", summary(metrics.getSnapshotBytes(false).snapshot(), 1));
+        m.put("binary", summary(metrics.getSnapshotBytes(true).snapshot(), 1));
+        return m;
+    }
+
+    private static Map<String, Object> summary(Histogram.Snapshot h, double unit) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("count", h.getCount());
+        m.put("mean", h.getMean() / unit);
+        m.put("p50", h.valueAtPercentile(50) / unit);
+        m.put("p90", h.valueAtPercentile(90) / unit);
+        m.put("p99", h.valueAtPercentile(99) / unit);
+        m.put("p999", h.valueAtPercentile(99.9) / unit);
+        m.put("max", h.getMax() / unit);
+        return m;
+    }
+}
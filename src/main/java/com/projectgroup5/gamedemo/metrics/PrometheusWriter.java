@@ -0,0 +1,88 @@
+package com.projectgroup5.gamedemo.metrics;
+
+/**
+ * Prometheus 文本格式（0.0.4）的最小实现
+ * 同一个指标族的样本必须连续输出，调用方按族分组写
+ */
+class PrometheusWriter {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final StringBuilder sb = new StringBuilder(16 * 1024);
+
+    /** 指标族头：# HELP / # TYPE */
+    PrometheusWriter family(String name, String type, String help) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        return this;
+    }
+
+    /** labels 按 key, value, key, value ... 给出 */
+    PrometheusWriter sample(String name, double value, String... labels) {
+        sb.append(name);
+        appendLabels(labels, null);
+        sb.append(' ').append(format(value)).append('\n');
+        return this;
+    }
+
+    /**
+     * summary 样本：分位数 + _sum + _count，另附一个 _max（单独的 gauge 语义）
+     * unit 是输出单位对应的原始值（纳秒 -> 秒传 1e9，不换算传 1）
+     */
+    PrometheusWriter summary(String name, Histogram.Snapshot h, double unit, String... labels) {
+        for (double q : QUANTILES) {
+            sb.append(name);
+            appendLabels(labels, Double.toString(q));
+            sb.append(' ').append(format(h.valueAtPercentile(q * 100) / unit)).append('\n');
+        }
+        sb.append(name).append("_sum");
+        appendLabels(labels, null);
+        sb.append(' ').append(format(h.getSum() / unit)).append('\n');
+        sb.append(name).append("_count");
+        appendLabels(labels, null);
+        sb.append(' ').append(h.getCount()).append('\n');
+        sb.append(name).append("_max");
+        appendLabels(labels, null);
+        sb.append(' ').append(format(h.getMax() / unit)).append('\n');
+        return this;
+    }
+
+    private void appendLabels(String[] labels, String quantile) {
+        if (labels.length == 0 && quantile == null) return;
+        sb.append('{');
+        for (int i = 0; i + 1 < labels.length; i += 2) {
+            if (i > 0) sb.append(',');
+            sb.append(labels[i]).append("=\"");
+            escape(labels[i + 1]);
+            sb.append('"');
+        }
+        if (quantile != null) {
+            if (labels.length > 0) sb.append(',');
+            sb.append("quantile=\"").append(quantile).append('"');
+        }
+        sb.append('}');
+    }
+
+    private void escape(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> sb.append("\\\\");
+                case '"' -> sb.append("\\\"");
+                case '\n' -> sb.append("\\n");
+                default -> sb.append(c);
+            }
+        }
+    }
+
+    private static String format(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    @Override
+    public String toString() {
+        return sb.toString();
+    }
+}
@@ -0,0 +1,35 @@
+package com.projectgroup5.gamedemo.metrics;
+
+/**
+ * 一组 tick 指标：各阶段耗时（纳秒）+ 每次编码的快照字节数
+ * 每个 TickShard 一份，每个 GameWorld 一份，跟随对象生命周期
+ */
+public class TickMetrics {
+    private static final TickPhase[] PHASES = TickPhase.values();
+
+    private final Histogram[] phases = new Histogram[PHASES.length];
+    private final Histogram jsonSnapshotBytes = new Histogram();
+    private final Histogram binarySnapshotBytes = new Histogram();
+
+    public TickMetrics() {
+        for (int i = 0; i < phases.length; i++) {
+            phases[i] = new Histogram();
+        }
+    }
+
+    public void recordPhase(TickPhase phase, long nanos) {
+        phases[phase.ordinal()].record(nanos);
+    }
+
+    public void recordSnapshotBytes(boolean binary, int bytes) {
+        (binary ? binarySnapshotBytes : jsonSnapshotBytes).record(bytes);
+    }
+
+    public Histogram getPhase(TickPhase phase) {
+        return phases[phase.ordinal()];
+    }
+
+    public Histogram getSnapshotBytes(boolean binary) {
+        return binary ? binarySnapshotBytes : jsonSnapshotBytes;
+    }
+}
@@ -0,0 +1,24 @@
+package com.projectgroup5.gamedemo.metrics;
+
+/**
+ * Arch A 一帧里分别计时的阶段（label 用在 /metrics 的 phase 标签上）
+ */
+public enum TickPhase {
+    APPLY_INPUTS("applyInputs"),
+    UPDATE_POSITIONS("updatePositions"),
+    DETECT_COLLISIONS("detectCollisions"),
+    CHECK_WIN_CONDITION("checkWinCondition"),
+    BROADCAST_GAME_STATE("broadcastGameState"),
+    // 整帧：分片上是一次 tick 的总耗时，房间上是该房间在这一帧里的总耗时
+    TOTAL("total");
+
+    private final String label;
+
+    TickPhase(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
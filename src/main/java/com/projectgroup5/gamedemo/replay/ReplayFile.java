@@ -0,0 +1,172 @@
+package com.projectgroup5.gamedemo.replay;
+
+import com.projectgroup5.gamedemo.game.BroadphaseStrategy;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 读入内存的一份回放（格式见 ReplayFormat）：文件头 + 记录区
+ *
+ * 加载时把记录区完整扫一遍：校验 tag，算出总帧数。
+ * 没有 END 记录（录制中途中断）时总帧数取最后一条记录的帧号 + 1。
+ */
+public final class ReplayFile {
+    private final String fileName;
+    private final long roomId;
+    private final long seed;
+    private final int simHz;
+    private final int maxPlayers;
+    private final BroadphaseStrategy broadphase;
+    private final long createdAtMillis;
+    private final String mapName;
+    private final String winMode;
+
+    private final byte[] data;
+    private final int recordsStart;
+    private final long totalFrames;
+    private final boolean complete;
+
+    private ReplayFile(String fileName, byte[] data) throws IOException {
+        this.fileName = fileName;
+        this.data = data;
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(data);
+            if (buf.getInt() != ReplayFormat.MAGIC) {
+                throw new IOException("Not a replay file: " + fileName);
+            }
+            int version = buf.get();
+            if (version != ReplayFormat.VERSION) {
+                throw new IOException("Unsupported replay version " + version + ": " + fileName);
+            }
+            roomId = readVarLong(buf);
+            seed = readSignedVarLong(buf);
+            simHz = (int) readVarLong(buf);
+            maxPlayers = (int) readVarLong(buf);
+            broadphase = BroadphaseStrategy.values()[(int) readVarLong(buf)];
+            createdAtMillis = readVarLong(buf);
+            mapName = readString(buf);
+            winMode = readString(buf);
+            recordsStart = buf.position();
+
+            // 扫一遍记录区
+            long frame = 0;
+            long end = -1;
+            while (buf.hasRemaining() && end < 0) {
+                int tag = buf.get();
+                if (tag == ReplayFormat.TAG_NONE) break;
+                frame += readVarLong(buf);
+                switch (tag) {
+                    case ReplayFormat.TAG_ROSTER -> skipRoster(buf);
+                    case ReplayFormat.TAG_INPUT -> {
+                        int mask = buf.get() & 0xFF;
+                        buf.position(buf.position() + Integer.bitCount(mask));
+                    }
+                    case ReplayFormat.TAG_END -> end = frame;
+                    default -> throw new IOException("Corrupt replay " + fileName + ": tag " + tag);
+                }
+            }
+            complete = end >= 0;
+            totalFrames = complete ? end : frame + 1;
+        } catch (BufferUnderflowException | IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Corrupt replay " + fileName, e);
+        }
+    }
+
+    public static ReplayFile read(Path path) throws IOException {
+        return new ReplayFile(path.getFileName().toString(), Files.readAllBytes(path));
+    }
+
+    /** 记录区的只读视图（每次调用返回一个新的游标） */
+    ByteBuffer records() {
+        ByteBuffer buf = ByteBuffer.wrap(data).asReadOnlyBuffer();
+        buf.position(recordsStart);
+        return buf;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public long getRoomId() {
+        return roomId;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getSimHz() {
+        return simHz;
+    }
+
+    public int getMaxPlayers() {
+        return maxPlayers;
+    }
+
+    public BroadphaseStrategy getBroadphase() {
+        return broadphase;
+    }
+
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
+    public String getMapName() {
+        return mapName;
+    }
+
+    public String getWinMode() {
+        return winMode;
+    }
+
+    /** 需要模拟的帧数 */
+    public long getTotalFrames() {
+        return totalFrames;
+    }
+
+    /** 是否有 END 记录（false = 录制中途中断，只能回放到中断处） */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public int getSizeBytes() {
+        return data.length;
+    }
+
+    // ================== 编码（与 VarIntBuffer 对应） ==================
+
+    static long readVarLong(ByteBuffer buf) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = buf.get();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    static long readSignedVarLong(ByteBuffer buf) throws IOException {
+        long v = readVarLong(buf);
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    static String readString(ByteBuffer buf) throws IOException {
+        int length = (int) readVarLong(buf);
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void skipRoster(ByteBuffer buf) throws IOException {
+        int n = (int) readVarLong(buf);
+        for (int i = 0; i < n; i++) {
+            int length = (int) readVarLong(buf);
+            buf.position(buf.position() + length);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.projectgroup5.gamedemo.replay;
+
+/**
+ * 回放文件格式（.rpl，只追加）
+ *
+ * 文件头：
+ *   int   MAGIC ("GRPL")
+ *   byte  VERSION
+ *   varint roomId, seed(zigzag), simHz, maxPlayers, broadphase 序号, createdAtMillis
+ *   string mapName, winMode
+ *
+ * 之后是一条条记录，每条以 tag 开头，frameDelta 是相对上一条记录的帧号差（首条相对第 0 帧）：
+ *   TAG_ROSTER  varint frameDelta, varint n, n 个 string   座位表（空串 = 空座位），在该帧输入之前生效
+ *   TAG_INPUT   varint frameDelta, byte slotMask, 每个置位座位一个 byte   该帧实际应用的按键（含射击位）
+ *   TAG_END     varint frameDelta   正常结束，frameDelta 指向最后一帧之后（即总帧数）
+ *
+ * 没有记录的帧 = 没有任何输入。文件按段预分配，未写到的部分全是 0，
+ * 读到 tag 0 说明录制中途中断（进程崩溃），前面的内容仍然可以回放。
+ */
+public final class ReplayFormat {
+    public static final int MAGIC = 0x4752504C;   // "GRPL"
+    public static final int VERSION = 1;
+
+    public static final int TAG_NONE = 0;
+    public static final int TAG_ROSTER = 1;
+    public static final int TAG_INPUT = 2;
+    public static final int TAG_END = 3;
+
+    public static final String FILE_SUFFIX = ".rpl";
+
+    private ReplayFormat() {
+    }
+}
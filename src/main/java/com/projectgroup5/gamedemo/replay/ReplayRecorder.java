@@ -0,0 +1,158 @@
+package com.projectgroup5.gamedemo.replay;
+
+import com.projectgroup5.gamedemo.game.GameWorld;
+import com.projectgroup5.gamedemo.game.PhysicsEngine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Architecture A 对局录制：种子 + 房间配置 + 每帧实际应用的输入，每局一个 .rpl 文件
+ *
+ * - start()：建房时打开文件写文件头，挂到 GameWorld 上，之后由 tick 线程逐帧写
+ * - finish()：结局时写结束标记，返回文件名（存进 GameLog.replayFile）
+ * - 后台单线程：预分配下一段、结局后落盘截断、执行保留策略
+ * - 保留策略：超过 max-age-days 的删掉，总大小超过 max-total-mb 时从最旧的开始删（正在录的不删）
+ */
+@Component
+public class ReplayRecorder {
+    private static final Logger logger = LoggerFactory.getLogger(ReplayRecorder.class);
+
+    private final boolean enabled;
+    private final Path dir;
+    private final int segmentBytes;
+    private final long maxAgeMillis;
+    private final long maxTotalBytes;
+    private final int simHz;
+    private final PhysicsEngine physicsEngine;
+
+    // 正在录制的文件（保留策略跳过它们）
+    private final Set<String> active = ConcurrentHashMap.newKeySet();
+    private ExecutorService maintenance;
+
+    public ReplayRecorder(PhysicsEngine physicsEngine,
+                          @Value("${game.replay.enabled:true}") boolean enabled,
+                          @Value("${game.replay.dir:./replays}") String dir,
+                          @Value("${game.replay.segment-kb:256}") int segmentKb,
+                          @Value("${game.replay.max-age-days:14}") int maxAgeDays,
+                          @Value("${game.replay.max-total-mb:1024}") long maxTotalMb,
+                          @Value("${game.tick.sim-hz:60}") int simHz) {
+        this.physicsEngine = physicsEngine;
+        this.enabled = enabled;
+        this.dir = Paths.get(dir);
+        this.segmentBytes = Math.max(4, segmentKb) * 1024;
+        this.maxAgeMillis = TimeUnit.DAYS.toMillis(Math.max(1, maxAgeDays));
+        this.maxTotalBytes = Math.max(1, maxTotalMb) * 1024 * 1024;
+        this.simHz = Math.max(1, simHz);
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) return;
+        Files.createDirectories(dir);
+        maintenance = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "replay-maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+        maintenance.execute(this::enforceRetention);
+        logger.info("Recording replays to {}", dir.toAbsolutePath());
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (maintenance == null) return;
+        maintenance.shutdown();
+        maintenance.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 开始录制（建房时调用，GameWorld 还没交给 tick 线程）
+     */
+    public void start(GameWorld world) {
+        if (!enabled) return;
+        long now = System.currentTimeMillis();
+        Path path = dir.resolve(now + "-room" + world.getRoomId() + ReplayFormat.FILE_SUFFIX);
+        try {
+            ReplayWriter writer = new ReplayWriter(path, segmentBytes, maintenance, world,
+                    physicsEngine.getBroadphase(), simHz, now);
+            active.add(writer.getFileName());
+            world.setReplay(writer);
+        } catch (IOException e) {
+            logger.warn("Cannot record replay for room {}: {}", world.getRoomId(), e.toString());
+        }
+    }
+
+    /**
+     * 结束录制（tick 线程，在当前帧的物理更新之后调用），返回回放文件名；没有录制或录制失败返回 null
+     */
+    public String finish(GameWorld world) {
+        ReplayWriter writer = world.getReplay();
+        if (writer == null) return null;
+        world.setReplay(null);
+        // 帧号在本帧结束时才 +1，所以已模拟的帧数是当前帧号 + 1
+        writer.finish(world.getCurrentFrameNumber() + 1);
+        maintenance.execute(() -> {
+            writer.close();
+            active.remove(writer.getFileName());
+            logger.info("Replay {} saved ({} bytes)", writer.getFileName(), writer.length());
+            enforceRetention();
+        });
+        return writer.isFailed() ? null : writer.getFileName();
+    }
+
+    /**
+     * 按文件名找回放文件（只接受本目录下的 .rpl 文件名，防止路径穿越）
+     */
+    public Path resolve(String fileName) {
+        if (fileName == null || !fileName.endsWith(ReplayFormat.FILE_SUFFIX)
+                || fileName.contains("/") || fileName.contains("\\")) {
+            return null;
+        }
+        Path path = dir.resolve(fileName);
+        return Files.isRegularFile(path) ? path : null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** 保留策略（只在后台线程执行） */
+    private void enforceRetention() {
+        File[] files = dir.toFile().listFiles((d, name) -> name.endsWith(ReplayFormat.FILE_SUFFIX)
+                && !active.contains(name));
+        if (files == null) return;
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+
+        long cutoff = System.currentTimeMillis() - maxAgeMillis;
+        long total = Arrays.stream(files).mapToLong(File::length).sum();
+        int deleted = 0;
+        for (File f : files) {
+            if (f.lastModified() >= cutoff && total <= maxTotalBytes) break;
+            long length = f.length();
+            if (f.delete()) {
+                total -= length;
+                deleted++;
+            }
+        }
+        if (deleted > 0) {
+            logger.info("Replay retention removed {} file(s), {} bytes kept", deleted, total);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.projectgroup5.gamedemo.replay;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.projectgroup5.gamedemo.dao.GameLogRepository;
+import com.projectgroup5.gamedemo.entity.GameLog;
+import com.projectgroup5.gamedemo.game.PlayerEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 回放查询与快进重放
+ *
+ * - 按 GameLog id 找到回放文件并加载
+ * - 快进：不限速地重新模拟整局（可重复多次，当作物理引擎的浸泡测试），
+ *   报告模拟速度，并和 GameLog 里记录的最终结果对比，验证确定性
+ */
+@Service
+public class ReplayService {
+    private static final Logger logger = LoggerFactory.getLogger(ReplayService.class);
+
+    private final GameLogRepository gameLogRepository;
+    private final ReplayRecorder recorder;
+    private final ObjectMapper objectMapper;
+
+    public ReplayService(GameLogRepository gameLogRepository,
+                         ReplayRecorder recorder,
+                         ObjectMapper objectMapper) {
+        this.gameLogRepository = gameLogRepository;
+        this.recorder = recorder;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 加载某局的回放；没有这局、没有录制或文件已被保留策略清理时返回 empty
+     */
+    public Optional<ReplayFile> load(long gameLogId) throws IOException {
+        Optional<GameLog> log = gameLogRepository.findById(gameLogId);
+        if (log.isEmpty() || log.get().getReplayFile() == null) {
+            return Optional.empty();
+        }
+        Path path = recorder.resolve(log.get().getReplayFile());
+        if (path == null) {
+            return Optional.empty();
+        }
+        return Optional.of(ReplayFile.read(path));
+    }
+
+    /** 回放的基本信息 */
+    public Map<String, Object> describe(long gameLogId, ReplayFile replay) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("gameLogId", gameLogId);
+        m.put("file", replay.getFileName());
+        m.put("sizeBytes", replay.getSizeBytes());
+        m.put("roomId", replay.getRoomId());
+        m.put("seed", replay.getSeed());
+        m.put("mapName", replay.getMapName());
+        m.put("winMode", replay.getWinMode());
+        m.put("maxPlayers", replay.getMaxPlayers());
+        m.put("simHz", replay.getSimHz());
+        m.put("broadphase", replay.getBroadphase());
+        m.put("totalFrames", replay.getTotalFrames());
+        m.put("durationMs", replay.getTotalFrames() * 1000L / replay.getSimHz());
+        m.put("complete", replay.isComplete());
+        m.put("recordedAt", replay.getCreatedAtMillis());
+        return m;
+    }
+
+    /**
+     * 快进重放 repeat 次，返回模拟速度、最终玩家状态，以及是否与记录的结果一致
+     */
+    public Optional<Map<String, Object>> simulate(long gameLogId, int repeat) throws IOException {
+        Optional<ReplayFile> replayOpt = load(gameLogId);
+        if (replayOpt.isEmpty()) {
+            return Optional.empty();
+        }
+        ReplayFile replay = replayOpt.get();
+
+        List<Map<String, Object>> first = null;
+        boolean deterministic = true;
+        long frames = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < repeat; i++) {
+            ReplaySimulation sim = new ReplaySimulation(replay);
+            while (sim.step()) {
+                frames++;
+            }
+            List<Map<String, Object>> players = finalPlayers(sim);
+            if (first == null) {
+                first = players;
+            } else if (!first.equals(players)) {
+                deterministic = false;
+            }
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        double seconds = Math.max(1e-9, elapsedNanos / 1e9);
+
+        Map<String, Object> m = describe(gameLogId, replay);
+        m.put("repeat", repeat);
+        m.put("framesSimulated", frames);
+        m.put("wallMs", elapsedNanos / 1_000_000.0);
+        m.put("framesPerSecond", Math.round(frames / seconds));
+        m.put("realtimeFactor", Math.round(frames / seconds / replay.getSimHz()));
+        m.put("deterministic", deterministic);
+        m.put("players", first);
+        m.put("matchesRecordedResult", matchesRecorded(gameLogId, first));
+        return Optional.of(m);
+    }
+
+    private static List<Map<String, Object>> finalPlayers(ReplaySimulation sim) {
+        List<Map<String, Object>> players = new ArrayList<>();
+        for (PlayerEntity p : sim.getWorld().getPlayerSlots()) {
+            if (p == null) continue;
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("username", p.username);
+            m.put("score", p.score);
+            m.put("hp", p.hp);
+            m.put("alive", p.alive);
+            players.add(m);
+        }
+        return players;
+    }
+
+    /** 和 GameLog.result_json 里每个玩家的 score / hp / alive 对比 */
+    private Boolean matchesRecorded(long gameLogId, List<Map<String, Object>> players) {
+        Optional<GameLog> log = gameLogRepository.findById(gameLogId);
+        if (log.isEmpty()) return null;
+        try {
+            JsonNode recorded = objectMapper.readTree(log.get().getResultJson()).get("players");
+            if (recorded == null || recorded.size() != players.size()) return false;
+            for (JsonNode r : recorded) {
+                String username = r.path("username").asText();
+                Map<String, Object> p = players.stream()
+                        .filter(x -> username.equals(x.get("username")))
+                        .findFirst().orElse(null);
+                if (p == null
+                        || r.path("score").asInt() != (int) p.get("score")
+                        || r.path("hp").asInt() != (int) p.get("hp")
+                        || r.path("alive").asBoolean() != (boolean) p.get("alive")) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            logger.warn("Cannot parse result_json of game log {}: {}", gameLogId, e.getMessage());
+            return null;
+        }
+    }
+}
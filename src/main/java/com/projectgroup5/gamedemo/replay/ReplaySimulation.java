@@ -0,0 +1,144 @@
+package com.projectgroup5.gamedemo.replay;
+
+import com.projectgroup5.gamedemo.event.EventBus;
+import com.projectgroup5.gamedemo.game.GameWorld;
+import com.projectgroup5.gamedemo.game.InputRing;
+import com.projectgroup5.gamedemo.game.PhysicsEngine;
+import com.projectgroup5.gamedemo.game.PlayerEntity;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 按回放重新模拟一局：同样的种子 + 同样的每帧输入 -> 和原局一模一样的 GameWorld
+ *
+ * - 每帧的步骤与 GameTickScheduler 的 IN_PROGRESS 分支相同（输入 -> 位置 -> 碰撞），时间全部按帧号算
+ * - 用自己的 PhysicsEngine 和 EventBus，不会把碰撞 / 得分事件发到线上的订阅者
+ * - 不是线程安全的，一个实例只在一个线程上推进
+ */
+public class ReplaySimulation {
+    private final ReplayFile replay;
+    private final PhysicsEngine physics;
+    private final GameWorld world;
+    private final double deltaTime;
+    private final ByteBuffer records;
+
+    // 下一条记录：tag 和它所在的帧（没有更多记录时 tag = TAG_NONE）
+    private int nextTag;
+    private long nextFrame;
+
+    public ReplaySimulation(ReplayFile replay) {
+        this.replay = replay;
+        this.physics = new PhysicsEngine(new EventBus(), replay.getBroadphase());
+        this.world = new GameWorld(replay.getRoomId(), replay.getMapName(), replay.getWinMode(),
+                replay.getMaxPlayers(), replay.getSeed());
+        this.world.setGameStartTime(0);
+        this.world.setPhase(GameWorld.GamePhase.IN_PROGRESS);
+        this.deltaTime = 1.0 / replay.getSimHz();
+        this.records = replay.records();
+        readNext();
+    }
+
+    /**
+     * 模拟一帧，已经到结尾时返回 false
+     */
+    public boolean step() {
+        if (isFinished()) return false;
+        long frame = world.getCurrentFrameNumber();
+        while (nextTag != ReplayFormat.TAG_NONE && nextTag != ReplayFormat.TAG_END && nextFrame == frame) {
+            if (nextTag == ReplayFormat.TAG_ROSTER) {
+                applyRoster();
+            } else {
+                applyInput();
+            }
+            readNext();
+        }
+
+        physics.applyPendingInputs(world, getSimTimeMillis());
+        physics.updatePositions(world, deltaTime);
+        physics.detectCollisions(world);
+        world.incrementFrame();
+        if (isFinished()) {
+            world.setPhase(GameWorld.GamePhase.FINISHED);
+        }
+        return true;
+    }
+
+    /** 连续模拟最多 frames 帧，返回实际模拟的帧数 */
+    public int advance(int frames) {
+        int n = 0;
+        while (n < frames && step()) {
+            n++;
+        }
+        return n;
+    }
+
+    public boolean isFinished() {
+        return world.getCurrentFrameNumber() >= replay.getTotalFrames();
+    }
+
+    public GameWorld getWorld() {
+        return world;
+    }
+
+    public ReplayFile getReplay() {
+        return replay;
+    }
+
+    public double getDeltaTime() {
+        return deltaTime;
+    }
+
+    /** 当前帧对应的模拟时间（毫秒），和线上 tick 的换算一致 */
+    public long getSimTimeMillis() {
+        return world.getCurrentFrameNumber() * 1000L / replay.getSimHz();
+    }
+
+    private void readNext() {
+        try {
+            if (!records.hasRemaining()) {
+                nextTag = ReplayFormat.TAG_NONE;
+                return;
+            }
+            nextTag = records.get();
+            if (nextTag != ReplayFormat.TAG_NONE) {
+                nextFrame += ReplayFile.readVarLong(records);
+            }
+        } catch (IOException e) {
+            // 加载时已经完整校验过
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void applyRoster() {
+        try {
+            int n = (int) ReplayFile.readVarLong(records);
+            PlayerEntity[] slots = world.getPlayerSlots();
+            for (int slot = 0; slot < n; slot++) {
+                String username = ReplayFile.readString(records);
+                if (slot >= slots.length) continue;
+                if (!username.isEmpty()) {
+                    world.addPlayerAt(slot, username);
+                } else if (slots[slot] != null) {
+                    world.removePlayer(slots[slot].username);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void applyInput() {
+        int[] buttons = world.getPendingButtons();
+        boolean[] fire = world.getPendingFire();
+        int mask = records.get() & 0xFF;
+        for (int slot = 0; slot < 8; slot++) {
+            if ((mask & (1 << slot)) == 0) continue;
+            int b = records.get() & 0xFF;
+            if (slot >= buttons.length) continue;
+            buttons[slot] = b;
+            fire[slot] = (b & InputRing.BTN_FIRE) != 0;
+        }
+    }
+}
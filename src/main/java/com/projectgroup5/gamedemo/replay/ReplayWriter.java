@@ -0,0 +1,272 @@
+package com.projectgroup5.gamedemo.replay;
+
+import com.projectgroup5.gamedemo.game.BroadphaseStrategy;
+import com.projectgroup5.gamedemo.game.GameWorld;
+import com.projectgroup5.gamedemo.game.InputRing;
+import com.projectgroup5.gamedemo.game.PlayerEntity;
+import com.projectgroup5.gamedemo.game.VarIntBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 单局回放的写入端（格式见 ReplayFormat）
+ *
+ * - 文件按固定大小的段预分配：先写 0 占住磁盘块，再 mmap 并逐页触碰，
+ *   tick 线程写记录只是往已经映射好的内存里拷几个字节，不做系统调用也不缺页
+ * - 当前段用过一半时让后台线程准备下一段；来不及时才在 tick 线程上同步准备
+ *   （后台任务和同步准备按段用 CAS 抢占，谁抢到谁准备；tick 线程已经切过去以后才轮到的后台任务直接放弃，
+ *   不会再往正在写的段里写 0）
+ * - 记录可以跨段，段与段首尾相接，中间没有空隙
+ * - 打开文件在建房线程，recordTick / finish 在房间的 tick 线程，close 在后台线程
+ * - 写入出错只停止录制，不影响游戏
+ */
+public class ReplayWriter {
+    private static final Logger logger = LoggerFactory.getLogger(ReplayWriter.class);
+
+    private static final int PAGE_SIZE = 4096;
+    private static final ByteBuffer ZEROS = ByteBuffer.allocateDirect(64 * 1024).asReadOnlyBuffer();
+    private static final int MOVE_MASK = InputRing.BTN_UP | InputRing.BTN_DOWN
+            | InputRing.BTN_LEFT | InputRing.BTN_RIGHT;
+
+    /** 一段已映射好的文件区域 */
+    private static final class Segment {
+        final long start;
+        final MappedByteBuffer buffer;
+
+        Segment(long start, MappedByteBuffer buffer) {
+            this.start = start;
+            this.buffer = buffer;
+        }
+    }
+
+    /** 交给后台准备的下一段：claimed 抢到的一方负责准备，另一方不碰这段文件 */
+    private static final class PendingSegment {
+        final long start;
+        final AtomicBoolean claimed = new AtomicBoolean();
+        final CompletableFuture<Segment> result = new CompletableFuture<>();
+
+        PendingSegment(long start) {
+            this.start = start;
+        }
+    }
+
+    private final String fileName;
+    private final FileChannel channel;
+    private final int segmentBytes;
+    private final Executor preparer;
+    private final VarIntBuffer scratch = new VarIntBuffer(64);
+
+    private Segment segment;
+    private volatile long segmentStart;  // 当前段的起点，后台任务据此判断自己是否已经过时
+    private PendingSegment next;         // 已经交给后台的下一段（只在 tick 线程读写）
+
+    private long lastFrame;
+    private int rosterVersion = -1;
+    private volatile boolean failed;
+    private boolean finished;
+
+    ReplayWriter(Path path, int segmentBytes, Executor preparer, GameWorld world,
+                 BroadphaseStrategy broadphase, int simHz, long createdAtMillis) throws IOException {
+        this.fileName = path.getFileName().toString();
+        this.segmentBytes = segmentBytes;
+        this.preparer = preparer;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            this.segment = prepare(0);
+            MappedByteBuffer buf = segment.buffer;
+            buf.putInt(ReplayFormat.MAGIC);
+            buf.put((byte) ReplayFormat.VERSION);
+            scratch.writeVarLong(world.getRoomId());
+            scratch.writeSignedVarLong(world.getSeed());
+            scratch.writeVarLong(simHz);
+            scratch.writeVarLong(world.getMaxPlayers());
+            scratch.writeVarLong(broadphase.ordinal());
+            scratch.writeVarLong(createdAtMillis);
+            scratch.writeString(world.getMapName());
+            scratch.writeString(world.getWinMode());
+            append(0);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 记录本帧要应用的输入（tick 线程，在 PhysicsEngine.applyPendingInputs 之前调用）
+     * 座位表有变化时先写一条 ROSTER；本帧没有任何输入就什么都不写
+     */
+    public void recordTick(GameWorld world) {
+        if (failed || finished) return;
+        long frame = world.getCurrentFrameNumber();
+
+        if (world.getRosterVersion() != rosterVersion) {
+            scratch.reset();
+            scratch.writeByte(ReplayFormat.TAG_ROSTER);
+            scratch.writeVarLong(frame - lastFrame);
+            // 座位表只在模拟线程上修改（见 GameWorld），这里读到的座位表和版本号一致
+            rosterVersion = world.getRosterVersion();
+            PlayerEntity[] slots = world.getPlayerSlots();
+            scratch.writeVarLong(slots.length);
+            for (PlayerEntity p : slots) {
+                scratch.writeString(p == null ? "" : p.username);
+            }
+            append(frame);
+        }
+
+        int[] buttons = world.getPendingButtons();
+        boolean[] fire = world.getPendingFire();
+        int mask = 0;
+        for (int s = 0; s < buttons.length; s++) {
+            if (buttons[s] >= 0 || fire[s]) mask |= 1 << s;
+        }
+        if (mask == 0) return;
+
+        scratch.reset();
+        scratch.writeByte(ReplayFormat.TAG_INPUT);
+        scratch.writeVarLong(frame - lastFrame);
+        scratch.writeByte(mask);
+        for (int s = 0; s < buttons.length; s++) {
+            if ((mask & (1 << s)) != 0) {
+                int move = buttons[s] >= 0 ? buttons[s] & MOVE_MASK : 0;
+                scratch.writeByte(move | (fire[s] ? InputRing.BTN_FIRE : 0));
+            }
+        }
+        append(frame);
+    }
+
+    /**
+     * 写结束标记（tick 线程），totalFrames = 已模拟的帧数
+     */
+    void finish(long totalFrames) {
+        if (failed || finished) return;
+        scratch.reset();
+        scratch.writeByte(ReplayFormat.TAG_END);
+        scratch.writeVarLong(totalFrames - lastFrame);
+        append(totalFrames);
+        finished = true;
+    }
+
+    /**
+     * 落盘并把文件截到实际长度（后台线程，finish 之后调用）
+     * Windows 上映射还在时不能截断，保留预分配的 0，读端遇到 END / tag 0 就停
+     */
+    void close() {
+        long length = length();
+        try {
+            channel.force(true);
+            try {
+                channel.truncate(length);
+            } catch (IOException e) {
+                logger.debug("Could not truncate replay {}: {}", fileName, e.getMessage());
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to flush replay {}", fileName, e);
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.debug("Failed to close replay {}", fileName, e);
+            }
+        }
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    /** 已写入的字节数 */
+    public long length() {
+        return segment.start + segment.buffer.position();
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    private void append(long frame) {
+        try {
+            int size = scratch.size();
+            int offset = 0;
+            while (true) {
+                MappedByteBuffer buf = segment.buffer;
+                int n = Math.min(size - offset, buf.remaining());
+                scratch.writeTo(buf, offset, n);
+                offset += n;
+                if (offset == size) break;
+                advance();
+            }
+            lastFrame = frame;
+
+            if (next == null && segment.buffer.position() > segmentBytes / 2) {
+                PendingSegment pending = new PendingSegment(segment.start + segmentBytes);
+                next = pending;
+                preparer.execute(() -> prepareNext(pending));
+            }
+        } catch (IOException e) {
+            failed = true;
+            logger.error("Replay {} stopped recording at frame {}", fileName, frame, e);
+        }
+    }
+
+    /** 切到下一段：后台已经在准备就等它，还没开始就抢过来自己准备 */
+    private void advance() throws IOException {
+        long start = segment.start + segmentBytes;
+        PendingSegment pending = next;
+        next = null;
+        Segment s = null;
+        if (pending != null && pending.start == start && !pending.claimed.compareAndSet(false, true)) {
+            try {
+                s = pending.result.join();
+            } catch (CompletionException e) {
+                // 后台失败时它没有写出任何东西，这里重新准备一次，真有问题在这里报
+                logger.debug("Background preparation of replay segment at {} for {} failed: {}",
+                        start, fileName, e.getCause().getMessage());
+            }
+        }
+        if (s == null) {
+            s = prepare(start);
+        }
+        segment = s;
+        segmentStart = start;
+    }
+
+    /** 后台线程：准备下一段；tick 线程已经自己准备（或已经切过去）时什么也不做 */
+    private void prepareNext(PendingSegment pending) {
+        if (failed || finished || pending.start <= segmentStart
+                || !pending.claimed.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            pending.result.complete(prepare(pending.start));
+        } catch (IOException | RuntimeException e) {
+            pending.result.completeExceptionally(e);
+        }
+    }
+
+    /** 写 0 分配 [start, start + segmentBytes) 的磁盘块，映射并逐页触碰 */
+    private Segment prepare(long start) throws IOException {
+        long end = start + segmentBytes;
+        for (long p = start; p < end; ) {
+            ByteBuffer zeros = ZEROS.duplicate();
+            zeros.limit((int) Math.min(zeros.capacity(), end - p));
+            p += channel.write(zeros, p);
+        }
+        MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_WRITE, start, segmentBytes);
+        for (int i = 0; i < segmentBytes; i += PAGE_SIZE) {
+            buf.put(i, (byte) 0);
+        }
+        return new Segment(start, buf);
+    }
+}
@@ -3,7 +3,7 @@ package com.projectgroup5.gamedemo.service;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.projectgroup5.gamedemo.dto.GameHeartbeatRequest;
-import com.projectgroup5.gamedemo.dao.GameLogRepository;
+import com.projectgroup5.gamedemo.dao.GameLogWriter;
 import com.projectgroup5.gamedemo.dto.GameScoreEntry;
 import com.projectgroup5.gamedemo.entity.GameLog;
 import org.springframework.stereotype.Service;
@@ -34,17 +34,17 @@ public class GameService {
     // roomId -> GameSession
     private final Map<Long, GameSession> sessions = new ConcurrentHashMap<>();
 
-    private final GameLogRepository gameLogRepository;
+    private final GameLogWriter gameLogWriter;
     private final ObjectMapper objectMapper;
     private final LobbyService lobbyService;
 
     // 心跳超时时间（一个玩家超过这个时间不发心跳，就当离线并结束）
     private static final long PLAYER_TIMEOUT_MILLIS = 30_000L;
 
-    public GameService(GameLogRepository gameLogRepository,
+    public GameService(GameLogWriter gameLogWriter,
                        ObjectMapper objectMapper,
                        LobbyService lobbyService) {
-        this.gameLogRepository = gameLogRepository;
+        this.gameLogWriter = gameLogWriter;
         this.objectMapper = objectMapper;
         this.lobbyService = lobbyService;
     }
@@ -177,7 +177,7 @@ public class GameService {
         log.setEndedAt(session.endedAt);
         log.setResultJson(json);
 
-        gameLogRepository.insert(log);
+        gameLogWriter.submit(log);
 
         // ★ 通知 Lobby：这一局结束了，重置房间状态（started=false、全部未准备）
         lobbyService.resetRoomAfterGame(session.roomId);
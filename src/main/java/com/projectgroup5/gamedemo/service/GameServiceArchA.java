@@ -3,7 +3,7 @@ package com.projectgroup5.gamedemo.service;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.projectgroup5.gamedemo.dto.GameHeartbeatRequest;
-import com.projectgroup5.gamedemo.dao.GameLogRepository;
+import com.projectgroup5.gamedemo.dao.GameLogWriter;
 import com.projectgroup5.gamedemo.dto.GameScoreEntry;
 import com.projectgroup5.gamedemo.entity.GameLog;
 import org.springframework.context.annotation.Lazy;
@@ -34,7 +34,7 @@ public class GameServiceArchA {
     // roomId -> Session
     private final Map<Long, Session> sessions = new ConcurrentHashMap<>();
 
-    private final GameLogRepository logRepository;
+    private final GameLogWriter logWriter;
     private final LobbyService lobbyService;
     private final ObjectMapper objectMapper;
 
@@ -43,10 +43,10 @@ public class GameServiceArchA {
     private static final int MAX_SCORE_PER_SEC = 100;
     private static final long PLAYER_TIMEOUT_MS = 30_000;
 
-    public GameServiceArchA(GameLogRepository logRepository,
+    public GameServiceArchA(GameLogWriter logWriter,
                             @Lazy LobbyService lobbyService,
                             ObjectMapper objectMapper) {
-        this.logRepository = logRepository;
+        this.logWriter = logWriter;
         this.lobbyService = lobbyService;
         this.objectMapper = objectMapper;
     }
@@ -169,7 +169,7 @@ public class GameServiceArchA {
         log.setStartedAt(session.startedAt);
         log.setEndedAt(session.endedAt);
         log.setResultJson(json);
-        logRepository.insert(log);
+        logWriter.submit(log);
 
         // 通知 Lobby：本局结束，重置房间状态
         lobbyService.resetRoomAfterGame(session.roomId);
@@ -3,7 +3,7 @@ package com.projectgroup5.gamedemo.service;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.projectgroup5.gamedemo.dto.GameHeartbeatRequest;
-import com.projectgroup5.gamedemo.dao.GameLogRepository;
+import com.projectgroup5.gamedemo.dao.GameLogWriter;
 import com.projectgroup5.gamedemo.dto.GameScoreEntry;
 import com.projectgroup5.gamedemo.entity.GameLog;
 import org.springframework.context.annotation.Lazy;
@@ -33,16 +33,16 @@ public class GameServiceArchB {
 
     private final Map<Long, Session> sessions = new ConcurrentHashMap<>();
 
-    private final GameLogRepository logRepository;
+    private final GameLogWriter logWriter;
     private final LobbyService lobbyService;
     private final ObjectMapper objectMapper;
 
     private static final long PLAYER_TIMEOUT_MS = 30_000;
 
-    public GameServiceArchB(GameLogRepository logRepository,
+    public GameServiceArchB(GameLogWriter logWriter,
                             @Lazy LobbyService lobbyService,
                             ObjectMapper objectMapper) {
-        this.logRepository = logRepository;
+        this.logWriter = logWriter;
         this.lobbyService = lobbyService;
         this.objectMapper = objectMapper;
     }
@@ -140,7 +140,7 @@ public class GameServiceArchB {
         log.setStartedAt(session.startedAt);
         log.setEndedAt(session.endedAt);
         log.setResultJson(json);
-        logRepository.insert(log);
+        logWriter.submit(log);
 
         lobbyService.resetRoomAfterGame(session.roomId);
         sessions.remove(session.roomId);
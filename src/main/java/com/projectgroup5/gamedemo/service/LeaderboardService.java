@@ -0,0 +1,164 @@
+package com.projectgroup5.gamedemo.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.projectgroup5.gamedemo.dao.GameLogListener;
+import com.projectgroup5.gamedemo.dao.GameLogRepository;
+import com.projectgroup5.gamedemo.dto.LeaderboardEntryDto;
+import com.projectgroup5.gamedemo.entity.GameLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * 排行榜读模型
+ *
+ * - 启动时扫一遍 game_logs 建立每个玩家的总分 / 场次
+ * - 之后每写入一条 GameLog（GameLogWriter 提交成功后回调）只累加这一局
+ * - 所有玩家按总分放在一个有序集合里，一局只重排这一局的玩家（O(log P)），前 N 名直接从头取
+ * - 前 N 名在更新时算好缓存起来，读请求直接返回，版本号用作 ETag
+ */
+@Service
+public class LeaderboardService implements GameLogListener {
+    private static final Logger logger = LoggerFactory.getLogger(LeaderboardService.class);
+
+    public static final int TOP_N = 10;
+
+    // 总分高的在前，同分按用户名
+    private static final Comparator<LeaderboardEntryDto> RANKING =
+            Comparator.comparingInt(LeaderboardEntryDto::getTotalScore).reversed()
+                    .thenComparing(LeaderboardEntryDto::getUsername);
+
+    private final GameLogRepository gameLogRepository;
+    private final ObjectMapper objectMapper;
+
+    // username -> 当前成绩，ranking 是同一批对象按名次排好；都只在持锁时读写，放进去的对象不再修改
+    private final Map<String, LeaderboardEntryDto> totals = new HashMap<>();
+    private final TreeSet<LeaderboardEntryDto> ranking = new TreeSet<>(RANKING);
+    private boolean loaded;
+    // 重建时 findAll 读到的最大日志 id：重建期间提交、已经被读到的日志回调过来时跳过，不重复累加
+    private long loadedUpToId;
+
+    // 进程启动时间参与 ETag，重启后版本号从 0 开始也不会和旧 ETag 撞上
+    private final long epoch = System.currentTimeMillis();
+    private volatile Top top = new Top(List.of(), 0, 0);
+
+    /** 某个版本的前 N 名（不可变） */
+    public static class Top {
+        private final List<LeaderboardEntryDto> entries;
+        private final long version;
+        private final String etag;
+
+        Top(List<LeaderboardEntryDto> entries, long version, long epoch) {
+            this.entries = entries;
+            this.version = version;
+            this.etag = "\"lb-" + Long.toString(epoch, 36) + "-" + version + "\"";
+        }
+
+        public List<LeaderboardEntryDto> getEntries() {
+            return entries;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+    }
+
+    public LeaderboardService(GameLogRepository gameLogRepository, ObjectMapper objectMapper) {
+        this.gameLogRepository = gameLogRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 全量重建（DatabaseInitializer 建完表之后执行）
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        List<GameLog> allLogs = gameLogRepository.findAll();
+        totals.clear();
+        ranking.clear();
+        loadedUpToId = 0;
+        for (GameLog log : allLogs) {
+            accumulate(log);
+            loadedUpToId = Math.max(loadedUpToId, log.getId());
+        }
+        loaded = true;
+        publish();
+        logger.info("Leaderboard built from {} game logs ({} players) in {} ms",
+                allLogs.size(), totals.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * 新的一局已写入数据库：只累加这一局
+     * 重建之前到达的日志已经在表里了，重建时会读到，这里跳过；
+     * 重建拿锁之后、查询之前提交的日志既被 findAll 读到又会回调过来，按 id 跳过
+     */
+    @Override
+    public synchronized void onGameLogWritten(GameLog log) {
+        if (!loaded) return;
+        if (log.getId() != null && log.getId() <= loadedUpToId) return;
+        if (accumulate(log)) {
+            publish();
+        }
+    }
+
+    public Top getTop() {
+        return top;
+    }
+
+    /** 解析一局的 result_json 并累加，返回是否有玩家数据 */
+    private boolean accumulate(GameLog log) {
+        String resultJson = log.getResultJson();
+        if (resultJson == null || resultJson.isEmpty()) {
+            logger.debug("Skipping log {} - empty result_json", log.getId());
+            return false;
+        }
+        try {
+            JsonNode playersNode = objectMapper.readTree(resultJson).get("players");
+            if (playersNode == null || !playersNode.isArray() || playersNode.isEmpty()) {
+                return false;
+            }
+            for (JsonNode playerNode : playersNode) {
+                String username = playerNode.get("username").asText();
+                int score = playerNode.get("score").asInt();
+                LeaderboardEntryDto old = totals.get(username);
+                LeaderboardEntryDto entry = old == null
+                        ? new LeaderboardEntryDto(username, score, 1)
+                        : new LeaderboardEntryDto(username, old.getTotalScore() + score, old.getGamesPlayed() + 1);
+                if (old != null) {
+                    ranking.remove(old);
+                }
+                totals.put(username, entry);
+                ranking.add(entry);
+            }
+            return true;
+        } catch (Exception e) {
+            logger.warn("Failed to parse result_json for log {}: {}", log.getId(), e.getMessage());
+            return false;
+        }
+    }
+
+    /** 从有序集合头上取前 N 名并发布新版本（持锁调用） */
+    private void publish() {
+        List<LeaderboardEntryDto> entries = new ArrayList<>(TOP_N);
+        for (LeaderboardEntryDto entry : ranking) {
+            if (entries.size() == TOP_N) break;
+            entries.add(entry);
+        }
+        top = new Top(List.copyOf(entries), top.getVersion() + 1, epoch);
+    }
+}
@@ -0,0 +1,12 @@
+package com.projectgroup5.gamedemo.service;
+
+import com.projectgroup5.gamedemo.dto.LobbySlotDto;
+
+/**
+ * 大厅变更通知
+ * 在变化的房间锁内回调：同一张桌子按版本号顺序，不同桌子之间不保证顺序
+ * 实现里只能做不阻塞的事（比如投递到出站队列）
+ */
+public interface LobbyListener {
+    void onSlotChanged(long version, LobbySlotDto slot);
+}
@@ -1,37 +1,65 @@
 package com.projectgroup5.gamedemo.service;
 
 import com.projectgroup5.gamedemo.dto.CreateRoomRequest;
+import com.projectgroup5.gamedemo.dto.GameRoomConfigDto;
 import com.projectgroup5.gamedemo.dto.LobbySlotDto;
 import com.projectgroup5.gamedemo.dto.PlayerInfoDto;
 import com.projectgroup5.gamedemo.dto.RoomDto;
-import com.projectgroup5.gamedemo.game.GameRoomManager;
+import com.projectgroup5.gamedemo.dto.RoomPageDto;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
-
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+
+/**
+ * 大厅 / 房间注册表
+ *
+ * 并发模型：
+ * - 每个房间自己加锁（synchronized(room)），不同房间的操作互不阻塞
+ * - roomId -> Room、username -> roomId 两个索引都是 ConcurrentHashMap；
+ *   "一个玩家只能在一个房间"靠 userToRoom.putIfAbsent 原子占位
+ * - 桌号动态分配，没有上限，优先复用最小的空桌号
+ * - 桌子按桌发布：分块的 AtomicReferenceArray 里每格一个不可变 LobbySlotDto，
+ *   改一张桌子只换这一格（O(1)），带上全局递增的版本号；没有全局锁
+ * - 同一张桌子的写入由房间锁串行（桌号回收前先发布空桌），所以每张桌子的版本单调递增，
+ *   客户端按桌取较大版本合并即可，不要求不同桌子之间的推送顺序
+ * - 整个大厅的读（GET /api/lobby、/ws/lobby 快照）在读的时候拼列表，按写入计数缓存，没有变化时直接复用
+ * - 房间搜索（GET /api/lobby/rooms）走 RoomSearchIndex 二级索引，在房间锁内随桌子一起更新
+ */
 @Service
 public class LobbyService {
     private static final Logger logger = LoggerFactory.getLogger(LobbyService.class);
 
-    private static final int TABLE_COUNT = 20;
+    // 大厅至少显示这么多张桌子（空桌也显示）
+    private static final int MIN_TABLES = 20;
+    // 桌子按 64 张一块存放，桌号增长时只追加新块
+    private static final int CHUNK_BITS = 6;
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
 
     public LobbyService(GameServiceArchA gameServiceArchA, GameServiceArchB gameServiceArchB) {
         this.gameServiceArchA = gameServiceArchA;
         this.gameServiceArchB = gameServiceArchB;
+        chunk(MIN_TABLES - 1);
     }
 
-    // 房间内部模型
-    public static class Room {
+    // 房间内部模型（可变字段只在持有该房间锁时修改），不对外暴露，外部只拿 RoomDto / GameRoomConfigDto 副本
+    private static class Room {
         public long roomId;
         public int tableIndex;
         public int maxPlayers;
         public String mapName;
         public String winMode;
+        public int sendHz;                     // Arch A 快照发送频率，0 = 服务器默认
         public String ownerName;
-        public boolean started;                // 是否已经开始游戏
+        public volatile boolean started;       // 是否已经开始游戏
         public String architectureMode;
 
         // 玩家列表（第一个一定是房主）
@@ -40,77 +68,116 @@ public class LobbyService {
         public Set<String> readyPlayers = new HashSet<>();
 
         // ★ 新增：当前房间使用的架构模式 (A / B)
-        public GameMode mode = GameMode.ARCH_A;
-        
+        public volatile GameMode mode = GameMode.ARCH_A;
+
         // 🔥 新增：游戏局数ID，每次开始新游戏时+1，用于前端检测"新游戏开始"
         public int gameSessionId = 0;
+
+        // 最后一个人离开后置 true，之后拿到这个对象的操作都直接放弃
+        boolean closed;
+    }
+
+    /** 拼好的整个大厅（不可变），writes 是拼的时候已完成的写入次数，用来判断缓存是否过期 */
+    private static class LobbySnapshot {
+        final long version;
+        final long writes;
+        final List<LobbySlotDto> slots;
+
+        LobbySnapshot(long version, long writes, List<LobbySlotDto> slots) {
+            this.version = version;
+            this.writes = writes;
+            this.slots = slots;
+        }
     }
 
-    private final Room[] tables = new Room[TABLE_COUNT];
     private final AtomicLong roomIdGenerator = new AtomicLong(1);
 
     // 方便查找：roomId -> Room
-    private final Map<Long, Room> roomsById = new HashMap<>();
+    private final Map<Long, Room> roomsById = new ConcurrentHashMap<>();
     // 每个玩家最多在一个房间：username -> roomId
-    private final Map<String, Long> userToRoom = new HashMap<>();
-    private final AtomicLong roomIdSeq = new AtomicLong(1);
+    private final Map<String, Long> userToRoom = new ConcurrentHashMap<>();
+
+    // 桌号分配：先用回收的最小桌号，没有再往后开新桌
+    private final ConcurrentSkipListSet<Integer> freeTables = new ConcurrentSkipListSet<>();
+    private final AtomicInteger nextTable = new AtomicInteger();
+
     private final GameServiceArchA gameServiceArchA;
     private final GameServiceArchB gameServiceArchB;
 
+    // 桌子：第 i 张在 chunks[i >> CHUNK_BITS] 的第 (i & CHUNK_MASK) 格
+    private final List<AtomicReferenceArray<LobbySlotDto>> chunks = new CopyOnWriteArrayList<>();
+    // versions 在写入前取号，writes 在写入完成后 +1
+    private final AtomicLong versions = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private volatile LobbySnapshot cached = new LobbySnapshot(0, -1, List.of());
+    private final List<LobbyListener> listeners = new CopyOnWriteArrayList<>();
+    private final RoomSearchIndex searchIndex = new RoomSearchIndex();
+
+    public void addListener(LobbyListener listener) {
+        listeners.add(listener);
+    }
 
-    // 获取大厅快照
-    public synchronized List<LobbySlotDto> getLobbySnapshot() {
-        List<LobbySlotDto> list = new ArrayList<>();
-        for (int i = 0; i < TABLE_COUNT; i++) {
-            LobbySlotDto slot = new LobbySlotDto();
-            slot.setIndex(i);
-            Room r = tables[i];
-            if (r == null) {
-                slot.setOccupied(false);
-                slot.setRoom(null);
-            } else {
-                slot.setOccupied(true);
-                slot.setRoom(toDto(r));
-            }
-            list.add(slot);
+    /**
+     * 取完整快照交给 consumer（version 是快照里最大的桌子版本）
+     * 不加锁：调用前先订阅变更通知，快照前后的增量按桌子版本合并，不会丢
+     */
+    public void withSnapshot(BiConsumer<Long, List<LobbySlotDto>> consumer) {
+        LobbySnapshot s = snapshot();
+        consumer.accept(s.version, s.slots);
+    }
+
+    public long getVersion() {
+        return versions.get();
+    }
+
+    // 获取大厅快照（不加锁；没有新的写入时直接复用上次拼好的不可变列表）
+    public List<LobbySlotDto> getLobbySnapshot() {
+        return snapshot().slots;
+    }
+
+    /**
+     * 按条件分页查房间（参数为 null 表示不限），按 roomId 升序
+     * afterRoomId 是上一页返回的游标，第一页传 0
+     */
+    public RoomPageDto searchRooms(String mapName, String winMode, GameMode mode, Boolean hasFreeSlot,
+                                   long afterRoomId, int limit) {
+        String architecture = mode == null ? null : (mode == GameMode.ARCH_B ? "B" : "A");
+        List<RoomDto> rooms = searchIndex.query(mapName, winMode, architecture, hasFreeSlot, afterRoomId, limit);
+
+        RoomPageDto page = new RoomPageDto();
+        if (rooms.size() > limit) {
+            rooms = rooms.subList(0, limit);
+            page.setNextCursor(Long.toString(rooms.get(limit - 1).getRoomId()));
         }
-        return list;
+        page.setRooms(rooms);
+        return page;
     }
 
     // 创建房间（房主自动加入）
-    public synchronized RoomDto createRoom(CreateRoomRequest req, String ownerName) {
-        // 已经在别的房间里了，拒绝
-        if (userToRoom.containsKey(ownerName)) {
-            return null;
-        }
+    public RoomDto createRoom(CreateRoomRequest req, String ownerName) {
+        long roomId = roomIdGenerator.getAndIncrement();
 
-        // 找空桌子
-        int freeIndex = -1;
-        for (int i = 0; i < TABLE_COUNT; i++) {
-            if (tables[i] == null) {
-                freeIndex = i;
-                break;
-            }
-        }
-        if (freeIndex == -1) {
+        // 已经在别的房间里了，拒绝
+        if (userToRoom.putIfAbsent(ownerName, roomId) != null) {
             return null;
         }
 
         Room r = new Room();
-        r.roomId = roomIdGenerator.getAndIncrement();
-        r.tableIndex = freeIndex;
+        r.roomId = roomId;
+        r.tableIndex = allocateTable();
         r.maxPlayers = Math.max(1, Math.min(4, req.getMaxPlayers()));
         r.mapName = req.getMapName();
         r.winMode = req.getWinMode();
+        r.sendHz = Math.max(0, req.getSendHz());
         r.ownerName = ownerName;
         r.started = false;
         r.players.add(ownerName);          // 房主加入
 
-        tables[freeIndex] = r;
-        roomsById.put(r.roomId, r);
-        userToRoom.put(ownerName, r.roomId);
-
-        return toDto(r);
+        synchronized (r) {
+            roomsById.put(roomId, r);
+            slotChanged(r);
+            return toDto(r);
+        }
     }
 
     /**
@@ -125,122 +192,150 @@ public class LobbyService {
             throw new IllegalArgumentException("Room not found: " + roomId);
         }
 
-        if (!Objects.equals(room.ownerName, username)) {
-            throw new IllegalStateException("Only room owner can start the game");
-        }
+        synchronized (room) {
+            if (room.closed) {
+                throw new IllegalArgumentException("Room not found: " + roomId);
+            }
 
-        if (room.started) {
-            // 已经开始就不重复设置
-            return;
-        }
+            if (!Objects.equals(room.ownerName, username)) {
+                throw new IllegalStateException("Only room owner can start the game");
+            }
 
-        if (!room.readyPlayers.containsAll(room.players)) {
-            throw new IllegalStateException("Not all players are ready");
-        }
+            if (room.started) {
+                // 已经开始就不重复设置
+                return;
+            }
+
+            if (!room.readyPlayers.containsAll(room.players)) {
+                throw new IllegalStateException("Not all players are ready");
+            }
 
-        room.mode = mode != null ? mode : GameMode.ARCH_A;
-        room.started = true;
-        // 🔥 每次开始新游戏时，gameSessionId +1
-        room.gameSessionId++;
-        logger.info("Room {} starting game session #{} with mode {}", 
-                roomId, room.gameSessionId, room.mode);
-
-        // ★ 根据 mode 初始化对应的 GameService
-        if (room.mode == GameMode.ARCH_A) {
-            gameServiceArchA.startSession(room.roomId, room.players);
-        } else {
-            gameServiceArchB.startSession(room.roomId, room.players);
+            room.mode = mode != null ? mode : GameMode.ARCH_A;
+            room.started = true;
+            // 🔥 每次开始新游戏时，gameSessionId +1
+            room.gameSessionId++;
+            logger.info("Room {} starting game session #{} with mode {}",
+                    roomId, room.gameSessionId, room.mode);
+            slotChanged(room);
+
+            // ★ 根据 mode 初始化对应的 GameService
+            if (room.mode == GameMode.ARCH_A) {
+                gameServiceArchA.startSession(room.roomId, room.players);
+            } else {
+                gameServiceArchB.startSession(room.roomId, room.players);
+            }
         }
     }
 
 
     // 加入房间
-    public synchronized RoomDto joinRoom(long roomId, String username) {
-        // 已在一个房间里，且不是当前房间 => 拒绝
-        Long current = userToRoom.get(username);
-        if (current != null && current != roomId) {
-            return null;
-        }
-
+    public RoomDto joinRoom(long roomId, String username) {
         Room r = roomsById.get(roomId);
-        if (r == null || r.started) return null;
-        if (r.players.size() >= r.maxPlayers) return null;
+        if (r == null) return null;
 
-        r.players.add(username);
-        userToRoom.put(username, roomId);
-        // 加入时默认未准备
-        r.readyPlayers.remove(username);
+        synchronized (r) {
+            if (r.closed || r.started) return null;
+            if (r.players.size() >= r.maxPlayers && !r.players.contains(username)) return null;
 
-        return toDto(r);
+            // 已在一个房间里，且不是当前房间 => 拒绝
+            Long current = userToRoom.putIfAbsent(username, roomId);
+            if (current != null && current != roomId) {
+                return null;
+            }
+
+            r.players.add(username);
+            // 加入时默认未准备
+            r.readyPlayers.remove(username);
+            slotChanged(r);
+
+            return toDto(r);
+        }
     }
 
     // 离开房间
-    public synchronized void leaveRoom(long roomId, String username) {
+    public void leaveRoom(long roomId, String username) {
         Room r = roomsById.get(roomId);
         if (r == null) return;
-        if (!r.players.remove(username)) return;
 
-        userToRoom.remove(username);
-        r.readyPlayers.remove(username);
+        synchronized (r) {
+            if (r.closed) return;
+            if (!r.players.remove(username)) return;
 
-        if (r.players.isEmpty()) {
-            // 房间没人了，清空桌子
-            tables[r.tableIndex] = null;
-            roomsById.remove(roomId);
-            return;
-        }
+            userToRoom.remove(username, roomId);
+            r.readyPlayers.remove(username);
+
+            if (r.players.isEmpty()) {
+                // 房间没人了，清空桌子（先发布空桌，再回收桌号，避免新房间的推送排到前面）
+                r.closed = true;
+                roomsById.remove(roomId, r);
+                publish(r.tableIndex, null);
+                freeTables.add(r.tableIndex);
+                return;
+            }
 
-        // 房主离开 -> 把第一个玩家设成新房主
-        if (username.equals(r.ownerName)) {
-            r.ownerName = r.players.iterator().next();
+            // 房主离开 -> 把第一个玩家设成新房主
+            if (username.equals(r.ownerName)) {
+                r.ownerName = r.players.iterator().next();
+            }
+            slotChanged(r);
         }
     }
 
     // 切换准备状态（房主不用准备）
-    public synchronized RoomDto toggleReady(long roomId, String username) {
+    public RoomDto toggleReady(long roomId, String username) {
         Room r = roomsById.get(roomId);
-        if (r == null || r.started) return null;
-        if (!r.players.contains(username)) return null;
-        if (username.equals(r.ownerName)) return toDto(r);
+        if (r == null) return null;
 
-        if (r.readyPlayers.contains(username)) {
-            r.readyPlayers.remove(username);
-        } else {
-            r.readyPlayers.add(username);
+        synchronized (r) {
+            if (r.closed || r.started) return null;
+            if (!r.players.contains(username)) return null;
+            if (username.equals(r.ownerName)) return toDto(r);
+
+            if (r.readyPlayers.contains(username)) {
+                r.readyPlayers.remove(username);
+            } else {
+                r.readyPlayers.add(username);
+            }
+            slotChanged(r);
+            return toDto(r);
         }
-        return toDto(r);
     }
 
     // 房主点击开始
-    public synchronized RoomDto startGame(long roomId, String ownerName) {
+    public RoomDto startGame(long roomId, String ownerName) {
         return startGame(roomId, ownerName, null);
     }
 
     // 🔥 新增：支持指定架构模式
-    public synchronized RoomDto startGame(long roomId, String ownerName, GameMode mode) {
+    public RoomDto startGame(long roomId, String ownerName, GameMode mode) {
         Room r = roomsById.get(roomId);
         if (r == null) return null;
-        if (!ownerName.equals(r.ownerName)) return null;
-        if (r.started) return toDto(r);
-
-        // （可选）要求所有非房主玩家都准备好再开始
-        for (String p : r.players) {
-            if (p.equals(r.ownerName)) continue;
-            if (!r.readyPlayers.contains(p)) {
-                return null; // 还有人没准备
+
+        synchronized (r) {
+            if (r.closed) return null;
+            if (!ownerName.equals(r.ownerName)) return null;
+            if (r.started) return toDto(r);
+
+            // （可选）要求所有非房主玩家都准备好再开始
+            for (String p : r.players) {
+                if (p.equals(r.ownerName)) continue;
+                if (!r.readyPlayers.contains(p)) {
+                    return null; // 还有人没准备
+                }
             }
-        }
 
-        r.started = true;
-        // 🔥 设置架构模式（如果提供）
-        if (mode != null) {
-            r.mode = mode;
+            r.started = true;
+            // 🔥 设置架构模式（如果提供）
+            if (mode != null) {
+                r.mode = mode;
+            }
+            slotChanged(r);
+            return toDto(r);
         }
-        return toDto(r);
     }
 
     // 查询某个玩家当前房间（用于前端判断是否在房间里）
-    public synchronized Long getRoomIdByUser(String username) {
+    public Long getRoomIdByUser(String username) {
         return userToRoom.get(username);
     }
 
@@ -251,14 +346,18 @@ public class LobbyService {
      * - 保留玩家列表和 mode，方便下一局继续在同一架构模式下玩
      */
     // 🔥 重置房间状态（游戏结束后）
-    public synchronized void resetRoomAfterGame(long roomId) {
+    public void resetRoomAfterGame(long roomId) {
         Room r = roomsById.get(roomId);
         if (r == null) return;
-        
-        r.started = false;
-        // 清空准备状态，让玩家重新准备
-        r.readyPlayers.clear();
-        
+
+        synchronized (r) {
+            if (r.closed) return;
+            r.started = false;
+            // 清空准备状态，让玩家重新准备
+            r.readyPlayers.clear();
+            slotChanged(r);
+        }
+
         logger.info("Room {} reset after game: started=false, ready cleared", roomId);
     }
 
@@ -270,6 +369,7 @@ public class LobbyService {
         dto.setCurrentPlayers(r.players.size());
         dto.setMapName(r.mapName);
         dto.setWinMode(r.winMode);
+        dto.setSendHz(r.sendHz);
         dto.setOwnerName(r.ownerName);
         dto.setStarted(r.started);
         // 🔥 设置架构模式
@@ -299,20 +399,122 @@ public class LobbyService {
         return room.mode;
     }
 
-    /** 也顺便提供一个 RoomDto 用来给前端查询房间配置（mode/map/maxPlayers 等） */
-    public Optional<Room> findRoom(long roomId) {
-        return Optional.ofNullable(roomsById.get(roomId));
+    /** 给前端查询房间配置（mode/map/maxPlayers 等）：持房间锁拷一份出来，已关闭的房间当作不存在 */
+    public Optional<GameRoomConfigDto> findRoomConfig(long roomId) {
+        Room room = roomsById.get(roomId);
+        if (room == null) {
+            return Optional.empty();
+        }
+        synchronized (room) {
+            if (room.closed) {
+                return Optional.empty();
+            }
+            GameRoomConfigDto dto = new GameRoomConfigDto();
+            dto.setRoomId(room.roomId);
+            dto.setMode(room.mode);
+            dto.setMapName(room.mapName);
+            dto.setWinMode(room.winMode);
+            dto.setMaxPlayers(room.maxPlayers);
+            return Optional.of(dto);
+        }
     }
 
     /**
      * 判断某个用户当前是否在指定 room 里
      */
-    public synchronized boolean isPlayerInRoom(long roomId, String username) {
+    public boolean isPlayerInRoom(long roomId, String username) {
         Room room = roomsById.get(roomId);
         if (room == null) {
             return false;
         }
-        return room.players.contains(username);
+        synchronized (room) {
+            return !room.closed && room.players.contains(username);
+        }
     }
 
+    public int getRoomCount() {
+        return roomsById.size();
+    }
+
+    // ================== 桌号 / 快照发布 ==================
+
+    private int allocateTable() {
+        Integer index = freeTables.pollFirst();
+        return index != null ? index : nextTable.getAndIncrement();
+    }
+
+    /** 房间状态变了：发布它所在的桌子（持有房间锁时调用） */
+    private void slotChanged(Room r) {
+        publish(r.tableIndex, toDto(r));
+    }
+
+    /**
+     * 换掉一张桌子（room 为 null 表示空桌），更新搜索索引并通知订阅者
+     * 只在持有这张桌子所属房间的锁时调用，所以同一张桌子的写入、索引更新和通知都是串行的
+     */
+    private void publish(int index, RoomDto room) {
+        LobbySlotDto slot = new LobbySlotDto(index, versions.incrementAndGet(), room);
+        LobbySlotDto previous = chunk(index).getAndSet(index & CHUNK_MASK, slot);
+        if (previous.isOccupied()) {
+            searchIndex.remove(previous.getRoom());
+        }
+        if (slot.isOccupied()) {
+            searchIndex.add(slot.getRoom());
+        }
+        writes.incrementAndGet();
+
+        for (LobbyListener listener : listeners) {
+            try {
+                listener.onSlotChanged(slot.getVersion(), slot);
+            } catch (Exception e) {
+                logger.error("Lobby listener {} failed", listener.getClass().getSimpleName(), e);
+            }
+        }
+    }
+
+    /** 桌号所在的块，不够时追加（只在桌号超过现有容量时进一次锁） */
+    private AtomicReferenceArray<LobbySlotDto> chunk(int index) {
+        int c = index >>> CHUNK_BITS;
+        if (c >= chunks.size()) {
+            synchronized (chunks) {
+                while (c >= chunks.size()) {
+                    AtomicReferenceArray<LobbySlotDto> chunk = new AtomicReferenceArray<>(1 << CHUNK_BITS);
+                    int base = chunks.size() << CHUNK_BITS;
+                    for (int i = 0; i < chunk.length(); i++) {
+                        chunk.set(i, new LobbySlotDto(base + i, 0, null));
+                    }
+                    chunks.add(chunk);
+                }
+            }
+        }
+        return chunks.get(c);
+    }
+
+    /**
+     * 拼整个大厅：末尾多出来的空桌收缩掉，最少保留 MIN_TABLES 张
+     * 先读 writes 再读桌子，读到的计数之前完成的写入一定都在列表里，之后的写入会让缓存过期
+     */
+    private LobbySnapshot snapshot() {
+        long w = writes.get();
+        LobbySnapshot s = cached;
+        if (s.writes == w) return s;
+
+        List<LobbySlotDto> slots = new ArrayList<>(chunks.size() << CHUNK_BITS);
+        for (AtomicReferenceArray<LobbySlotDto> chunk : chunks) {
+            for (int i = 0; i < chunk.length(); i++) {
+                slots.add(chunk.get(i));
+            }
+        }
+        int size = slots.size();
+        while (size > MIN_TABLES && !slots.get(size - 1).isOccupied()) {
+            size--;
+        }
+        long version = 0;
+        for (int i = 0; i < size; i++) {
+            version = Math.max(version, slots.get(i).getVersion());
+        }
+        s = new LobbySnapshot(version, w, Collections.unmodifiableList(new ArrayList<>(slots.subList(0, size))));
+        cached = s;
+        return s;
+    }
 }
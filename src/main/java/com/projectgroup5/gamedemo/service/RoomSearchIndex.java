@@ -0,0 +1,85 @@
+package com.projectgroup5.gamedemo.service;
+
+import com.projectgroup5.gamedemo.dto.RoomDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * 大厅房间的二级索引（mapName / winMode / 架构模式 / 是否有空位）
+ *
+ * - 四个条件每个要么指定要么不限，共 16 种组合；每个房间按自己的属性放进这 16 个组合各自的有序集合
+ * - 任何查询都正好落在其中一个集合上，按 roomId 升序，用上一页最后一个 roomId 作游标
+ * - 所以一页的代价只和页大小有关（O(log n + limit)），和房间总数无关
+ * - 写入在各自房间的锁内进行，不同房间并发写；读不加锁（跳表弱一致遍历）
+ */
+class RoomSearchIndex {
+    private static final String ANY = "*";
+    private static final int COMBINATIONS = 1 << 4;
+
+    private final Map<String, ConcurrentSkipListMap<Long, RoomDto>> sets = new ConcurrentHashMap<>();
+
+    void add(RoomDto room) {
+        for (int mask = 0; mask < COMBINATIONS; mask++) {
+            // 放进 compute 里做：和 remove 删空集合是同一个 key 上的原子操作，不会放进已经摘掉的集合
+            sets.compute(keyOf(room, mask), (k, set) -> {
+                if (set == null) set = new ConcurrentSkipListMap<>();
+                set.put(room.getRoomId(), room);
+                return set;
+            });
+        }
+    }
+
+    void remove(RoomDto room) {
+        for (int mask = 0; mask < COMBINATIONS; mask++) {
+            // 集合空了就删掉（mapName 由客户端提交，取值不受控）
+            sets.computeIfPresent(keyOf(room, mask), (k, set) -> {
+                set.remove(room.getRoomId());
+                return set.isEmpty() ? null : set;
+            });
+        }
+    }
+
+    /**
+     * 查询 roomId > after 的前 limit 个房间，参数为 null 表示不限
+     * 多取一个用来判断是否还有下一页
+     */
+    List<RoomDto> query(String mapName, String winMode, String architecture, Boolean hasFreeSlot,
+                        long after, int limit) {
+        String key = key(mapName == null ? ANY : mapName,
+                winMode == null ? ANY : winMode,
+                architecture == null ? ANY : architecture,
+                hasFreeSlot == null ? ANY : hasFreeSlot.toString());
+        List<RoomDto> result = new ArrayList<>(limit + 1);
+        ConcurrentSkipListMap<Long, RoomDto> set = sets.get(key);
+        if (set == null) return result;
+        for (RoomDto room : set.tailMap(after, false).values()) {
+            result.add(room);
+            if (result.size() > limit) break;
+        }
+        return result;
+    }
+
+    /** 可以加入：没开始且还有空位 */
+    static boolean hasFreeSlot(RoomDto room) {
+        return !room.isStarted() && room.getCurrentPlayers() < room.getMaxPlayers();
+    }
+
+    private static String keyOf(RoomDto room, int mask) {
+        return key((mask & 1) != 0 ? nullToEmpty(room.getMapName()) : ANY,
+                (mask & 2) != 0 ? nullToEmpty(room.getWinMode()) : ANY,
+                (mask & 4) != 0 ? room.getArchitecture() : ANY,
+                (mask & 8) != 0 ? Boolean.toString(hasFreeSlot(room)) : ANY);
+    }
+
+    private static String key(String mapName, String winMode, String architecture, String free) {
+        return mapName + '\u0000' + winMode + '\u0000' + architecture + '\u0000' + free;
+    }
+
+    private static String nullToEmpty(String s) {
+        return s == null ? "" : s;
+    }
+}
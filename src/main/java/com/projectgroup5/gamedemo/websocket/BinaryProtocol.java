@@ -0,0 +1,37 @@
+package com.projectgroup5.gamedemo.websocket;
+
+/**
+ * /ws/game 的二进制子协议（JOIN_GAME 时 protocol:"binary" 协商，JSON 仍可用于调试）
+ *
+ * 客户端 -> 服务器（定长，大端）：
+ *   INPUT  [0x01][buttons u8][inputSeq u32][ackSeq i32]      共 10 字节
+ *   ACK    [0x02][ackSeq i32]                                 共 5 字节
+ *   buttons 位定义同 InputRing：UP=1 DOWN=2 LEFT=4 RIGHT=8 FIRE=16；ackSeq = -1 表示请求关键帧
+ *
+ * 服务器 -> 客户端（varint / zigzag）：
+ *   STATE  [0x10] seq, base(0 = 关键帧), frame, dtMicros, phase u8, timeMs, flags u8,
+ *          [names: count u8, (slot u8, len + utf8)*]  (flags & 1)
+ *          players:   count, (slot u8, x, y, hp, score, alive u8)*
+ *          playersRemoved: count, slot u8*
+ *          bullets:   count, (idDelta, owner u8, trajFrame, x, y, vx, vy)*
+ *          bulletsRemoved: count, idDelta*
+ *          asteroids: count, (idDelta, trajFrame, x, y, vx, vy, radius, hp, isBig u8)*
+ *          asteroidsRemoved: count, idDelta*
+ *   坐标、速度、半径都是 POSITION_SCALE 定点（zigzag varint）；id 按升序给出与前一个的差值
+ */
+public final class BinaryProtocol {
+    public static final int MSG_INPUT = 0x01;
+    public static final int MSG_ACK = 0x02;
+    public static final int MSG_STATE = 0x10;
+
+    public static final int INPUT_LENGTH = 10;
+    public static final int ACK_LENGTH = 5;
+
+    public static final int FLAG_NAMES = 1;
+
+    /** 1/16 像素精度 */
+    public static final int POSITION_SCALE = 16;
+
+    private BinaryProtocol() {
+    }
+}
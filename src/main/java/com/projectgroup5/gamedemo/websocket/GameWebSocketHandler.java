@@ -12,12 +12,13 @@ import org.springframework.web.socket.*;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * WebSocket 核心处理器
- * - Architecture A: Server-authoritative
+ * - Architecture A: Server-authoritative（JSON 或二进制子协议，见 BinaryProtocol）
  * - Architecture B: P2P Host-authoritative + Server Relay
  */
 @Component
@@ -26,13 +27,10 @@ public class GameWebSocketHandler extends TextWebSocketHandler {
     private static final Logger logger = LoggerFactory.getLogger(GameWebSocketHandler.class);
 
     private final GameRoomManager roomManager;
-    private final PhysicsEngine physicsEngine;
     private final AuthService authService;
     private final EventBus eventBus;
     private final ObjectMapper objectMapper;
-
-    // sessionId -> WebSocketSession
-    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+    private final OutboundDispatcher outbound;
 
     // sessionId -> PlayerConnection
     private final Map<String, PlayerConnection> connections = new ConcurrentHashMap<>();
@@ -46,16 +44,16 @@ public class GameWebSocketHandler extends TextWebSocketHandler {
 
     public GameWebSocketHandler(
             GameRoomManager roomManager,
-            PhysicsEngine physicsEngine,
             AuthService authService,
             EventBus eventBus,
-            ObjectMapper objectMapper
+            ObjectMapper objectMapper,
+            OutboundDispatcher outbound
     ) {
         this.roomManager = roomManager;
-        this.physicsEngine = physicsEngine;
         this.authService = authService;
         this.eventBus = eventBus;
         this.objectMapper = objectMapper;
+        this.outbound = outbound;
     }
 
     // ==================== 连接建立 / 关闭 ====================
@@ -63,7 +61,7 @@ public class GameWebSocketHandler extends TextWebSocketHandler {
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
         String sessionId = session.getId();
-        sessions.put(sessionId, session);
+        outbound.register(session);
         logger.info("WebSocket connected: {}", sessionId);
 
         sendMessage(session, Map.of("type", "CONNECTED", "sessionId", sessionId));
@@ -91,7 +89,7 @@ public class GameWebSocketHandler extends TextWebSocketHandler {
                 p2pHosts.remove(conn.roomId);
             }
         }
-        sessions.remove(sessionId);
+        outbound.unregister(sessionId);
     }
 
     // ==================== 消息分发 ====================
@@ -120,6 +118,9 @@ public class GameWebSocketHandler extends TextWebSocketHandler {
                 case "PLAYER_INPUT":
                     handlePlayerInputArchA(session, msg);
                     break;
+                case "ACK":
+                    handleAck(session, msg);
+                    break;
                 case "LEAVE_GAME":
                     handleLeaveGame(session);
                     break;
@@ -163,20 +164,22 @@ public class GameWebSocketHandler extends TextWebSocketHandler {
 
         if (!validToken) {
             sendMessage(session, Map.of("type", "ERROR", "message", "Invalid token"));
-            session.close();
+            outbound.close(session.getId(), CloseStatus.NORMAL);
             return;
         }
 
         // 必须在房间
         if (!roomManager.isPlayerInRoom(roomId, username)) {
             sendMessage(session, Map.of("type", "NOT_IN_ROOM", "message", "Not in room"));
-            session.close();
+            outbound.close(session.getId(), CloseStatus.NORMAL);
             return;
         }
 
         // 注册连接
         String sessionId = session.getId();
-        connections.put(sessionId, new PlayerConnection(roomId, username, "A"));
+        PlayerConnection connection = new PlayerConnection(roomId, username, "A");
+        connection.binary = "binary".equalsIgnoreCase((String) msg.get("protocol"));
+        connections.put(sessionId, connection);
         roomSessions.computeIfAbsent(roomId, k -> ConcurrentHashMap.newKeySet()).add(sessionId);
 
         logger.info("Player {} joined room {} (Arch A, WebSocket OK)", username, roomId);
@@ -192,30 +195,58 @@ public class GameWebSocketHandler extends TextWebSocketHandler {
 
         GameWorld world = worldOpt.get();
 
-        // 避免重复添加
-        if (!world.getPlayers().containsKey(username)) {
-            world.addPlayer(username);
-            logger.info("Player {} added to GameWorld room {}", username, roomId);
+        // 座位表和倒计时在建房时（交给 tick 线程之前）就定好了，这里只读，不改 GameWorld
+        // 缓存座位号，之后的输入直接按 slot 投递
+        PlayerEntity player = world.getPlayers().get(username);
+        if (player != null) {
+            connection.slot = player.slot;
         }
 
-        // 如果是 WAITING → 开始倒计时
-        if (world.getPhase() == GameWorld.GamePhase.WAITING) {
-            world.setGameStartTime(System.currentTimeMillis() + 3000); // 3 秒倒计时
-            world.setPhase(GameWorld.GamePhase.COUNTDOWN);
-        }
+        // 新连接需要一个关键帧，不必等下一个发送周期 / 阶段变化
+        world.requestSnapshot();
 
         // 回复前端
         sendMessage(session, Map.of(
                 "type", "JOINED",
                 "roomId", roomId,
                 "username", username,
-                "architecture", "A"
+                "architecture", "A",
+                "protocol", connection.binary ? "binary" : "json"
         ));
     }
 
+    /**
+     * 客户端确认收到的快照（也可以随 PLAYER_INPUT 的 ack 字段捎带）
+     */
+    private void handleAck(WebSocketSession session, Map<String, Object> msg) {
+        PlayerConnection conn = connections.get(session.getId());
+        if (conn == null) return;
+        updateAck(conn, msg.get("seq"));
+    }
+
+    private void updateAck(PlayerConnection conn, Object seq) {
+        if (seq instanceof Number n) {
+            acknowledge(conn, n.longValue());
+        }
+    }
+
+    /**
+     * 记录 ACK；负数表示客户端丢了基线。游戏中下一个发送周期自然会带关键帧，
+     * 其他阶段不周期广播，需要请求房间补发一次
+     */
+    private void acknowledge(PlayerConnection conn, long seq) {
+        conn.ackSeq = seq;
+        if (seq < 0) {
+            roomManager.getGameRoom(conn.roomId)
+                    .filter(w -> w.getPhase() != GameWorld.GamePhase.IN_PROGRESS)
+                    .ifPresent(GameWorld::requestSnapshot);
+        }
+    }
+
     private void handlePlayerInputArchA(WebSocketSession session, Map<String, Object> msg) {
         PlayerConnection conn = connections.get(session.getId());
         if (conn == null || !"A".equals(conn.arch)) return;
+        updateAck(conn, msg.get("ack"));
 
         Optional<GameWorld> worldOpt = roomManager.getGameRoom(conn.roomId);
         if (worldOpt.isEmpty()) return;
@@ -223,36 +254,71 @@ public class GameWebSocketHandler extends TextWebSocketHandler {
         GameWorld world = worldOpt.get();
         if (world.getPhase() != GameWorld.GamePhase.IN_PROGRESS) return;
 
-        PlayerEntity player = world.getPlayers().get(conn.username);
-        if (player == null || !player.alive) return;
-
-        PlayerInput input = new PlayerInput();
-        input.setUsername(conn.username);
-        input.setMoveUp((Boolean) msg.getOrDefault("moveUp", false));
-        input.setMoveDown((Boolean) msg.getOrDefault("moveDown", false));
-        input.setMoveLeft((Boolean) msg.getOrDefault("moveLeft", false));
-        input.setMoveRight((Boolean) msg.getOrDefault("moveRight", false));
-        input.setFire((Boolean) msg.getOrDefault("fire", false));
-        input.setTimestamp(System.currentTimeMillis());
-
-        // 事件总线（可做日志 / 统计）
-        eventBus.publish(new InputReceivedEvent(conn.roomId, conn.username, input));
-
-        // 服务器权威移动
-        physicsEngine.applyPlayerInput(player, input);
-
-        // 服务器权威射击
-        if (input.isFire()) {
-            long now = System.currentTimeMillis();
-            if (physicsEngine.canFire(player, now)) {
-                BulletEntity bullet = physicsEngine.createBullet(
-                        player.username,
-                        player.x,
-                        player.y - PlayerEntity.HEIGHT / 2
-                );
-                world.getBullets().put(bullet.id, bullet);
-                player.lastFireTime = now;
-            }
+        int buttons = 0;
+        if (Boolean.TRUE.equals(msg.get("moveUp"))) buttons |= InputRing.BTN_UP;
+        if (Boolean.TRUE.equals(msg.get("moveDown"))) buttons |= InputRing.BTN_DOWN;
+        if (Boolean.TRUE.equals(msg.get("moveLeft"))) buttons |= InputRing.BTN_LEFT;
+        if (Boolean.TRUE.equals(msg.get("moveRight"))) buttons |= InputRing.BTN_RIGHT;
+        if (Boolean.TRUE.equals(msg.get("fire"))) buttons |= InputRing.BTN_FIRE;
+        submitInput(conn, world, buttons);
+    }
+
+    /**
+     * 二进制子协议（BinaryProtocol）：定长 INPUT / ACK，不走 JSON 解析
+     */
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) {
+        PlayerConnection conn = connections.get(session.getId());
+        if (conn == null || !"A".equals(conn.arch)) return;
+
+        ByteBuffer buf = message.getPayload();
+        if (!buf.hasRemaining()) return;
+        int type = buf.get(buf.position()) & 0xFF;
+
+        if (type == BinaryProtocol.MSG_ACK && buf.remaining() >= BinaryProtocol.ACK_LENGTH) {
+            acknowledge(conn, buf.getInt(buf.position() + 1));
+        } else if (type == BinaryProtocol.MSG_INPUT && buf.remaining() >= BinaryProtocol.INPUT_LENGTH) {
+            int base = buf.position();
+            int buttons = buf.get(base + 1) & 0xFF;
+            long inputSeq = buf.getInt(base + 2) & 0xFFFFFFFFL;
+            acknowledge(conn, buf.getInt(base + 6));
+
+            // 同一会话的消息由容器串行投递，这里不需要同步
+            if (inputSeq <= conn.lastInputSeq) return;
+            conn.lastInputSeq = inputSeq;
+
+            Optional<GameWorld> worldOpt = roomManager.getGameRoom(conn.roomId);
+            if (worldOpt.isEmpty()) return;
+            GameWorld world = worldOpt.get();
+            if (world.getPhase() != GameWorld.GamePhase.IN_PROGRESS) return;
+            submitInput(conn, world, buttons);
+        } else {
+            logger.warn("Malformed binary message from {} (type={}, {} bytes)",
+                    session.getId(), type, buf.remaining());
+        }
+    }
+
+    /**
+     * 投递到房间输入队列，由 tick 线程在下一帧开始时应用（移动 + 射击）
+     */
+    private void submitInput(PlayerConnection conn, GameWorld world, int buttons) {
+        if (conn.slot < 0) return;
+
+        // 事件总线（可做日志 / 统计）；没人订阅时不构造事件对象
+        if (eventBus.hasSubscribers(InputReceivedEvent.class)) {
+            PlayerInput input = new PlayerInput();
+            input.setUsername(conn.username);
+            input.setMoveUp((buttons & InputRing.BTN_UP) != 0);
+            input.setMoveDown((buttons & InputRing.BTN_DOWN) != 0);
+            input.setMoveLeft((buttons & InputRing.BTN_LEFT) != 0);
+            input.setMoveRight((buttons & InputRing.BTN_RIGHT) != 0);
+            input.setFire((buttons & InputRing.BTN_FIRE) != 0);
+            input.setTimestamp(System.currentTimeMillis());
+            eventBus.publish(new InputReceivedEvent(conn.roomId, conn.username, input));
+        }
+
+        if (!world.getInputRing().offer(conn.slot, buttons & 0x1F)) {
+            logger.debug("Input queue full for room {}, dropped input from {}", conn.roomId, conn.username);
         }
     }
 
@@ -278,13 +344,13 @@ public class GameWebSocketHandler extends TextWebSocketHandler {
 
         if (!validToken) {
             sendMessage(session, Map.of("type", "ERROR", "message", "Invalid token"));
-            session.close();
+            outbound.close(session.getId(), CloseStatus.NORMAL);
             return;
         }
 
         if (!roomManager.isPlayerInRoom(roomId, username)) {
             sendMessage(session, Map.of("type", "NOT_IN_ROOM", "message", "Not in room"));
-            session.close();
+            outbound.close(session.getId(), CloseStatus.NORMAL);
             return;
         }
 
@@ -368,26 +434,41 @@ public class GameWebSocketHandler extends TextWebSocketHandler {
 
     // ==================== 工具方法 ====================
 
-    /** 广播到房间所有 WebSocket 客户端 */
+    /** 广播到房间所有 WebSocket 客户端（控制帧，按序送达） */
     public void broadcastToRoom(long roomId, String message) {
         Set<String> set = roomSessions.get(roomId);
         if (set == null) return;
 
+        TextMessage shared = new TextMessage(message);
         for (String sid : set) {
-            WebSocketSession session = sessions.get(sid);
-            if (session != null && session.isOpen()) {
-                try {
-                    session.sendMessage(new TextMessage(message));
-                } catch (Exception e) {
-                    logger.error("Send fail session {}", sid, e);
-                }
-            }
+            outbound.sendControl(sid, shared);
+        }
+    }
+
+    /** 按客户端已确认的快照 seq 和协商的协议生成状态帧（实现方负责同一组合只编码一次） */
+    public interface StateEncoder {
+        WebSocketMessage<?> encode(long ackSeq, boolean binary) throws IOException;
+    }
+
+    /**
+     * 广播状态快照：按每个会话的 ACK 取编码结果（不可变，多会话共用），
+     * 挂到出站队列由写线程池发送；慢客户端的旧快照会被新快照取代
+     */
+    public void broadcastStateToRoom(long roomId, StateEncoder encoder) throws IOException {
+        Set<String> set = roomSessions.get(roomId);
+        if (set == null) return;
+
+        for (String sid : set) {
+            PlayerConnection conn = connections.get(sid);
+            if (conn == null) continue;
+            outbound.sendState(sid, encoder.encode(conn.ackSeq, conn.binary));
         }
     }
 
+    /** 单发控制消息，经出站队列发送（不在调用线程上阻塞写 socket） */
     private void sendMessage(WebSocketSession session, Map<String, Object> data) throws IOException {
         String json = objectMapper.writeValueAsString(data);
-        session.sendMessage(new TextMessage(json));
+        outbound.sendControl(session.getId(), new TextMessage(json));
     }
 
     /** 玩家连接信息 */
@@ -395,6 +476,10 @@ public class GameWebSocketHandler extends TextWebSocketHandler {
         final long roomId;
         final String username;
         final String arch; // "A" or "B"
+        volatile int slot = -1; // Arch A 座位号，JOIN 成功后才有
+        volatile long ackSeq = -1; // 客户端最后确认收到的快照 seq，-1 表示需要关键帧
+        volatile boolean binary;   // JOIN_GAME 时协商的状态协议（BinaryProtocol）
+        long lastInputSeq = -1;    // 二进制 INPUT 的序号，丢弃重复 / 过期输入
 
         PlayerConnection(long roomId, String username, String arch) {
             this.roomId = roomId;
@@ -1,13 +1,18 @@
 package com.projectgroup5.gamedemo.websocket;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.projectgroup5.gamedemo.dao.GameLogRepository;
+import com.projectgroup5.gamedemo.dao.GameLogWriter;
 import com.projectgroup5.gamedemo.entity.GameLog;
+import com.projectgroup5.gamedemo.entity.User;
 import com.projectgroup5.gamedemo.service.AuthService;
 import com.projectgroup5.gamedemo.service.LobbyService;
-import com.projectgroup5.gamedemo.entity.User;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.*;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
@@ -15,7 +20,6 @@ import org.springframework.web.socket.handler.TextWebSocketHandler;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.Comparator;
 
 /**
  * Architecture B: P2P Gossip via Server Relay
@@ -24,7 +28,16 @@ import java.util.Comparator;
  *   1) 认证 / 房间校验
  *   2) 管理 WebSocket 连接
  *   3) 转发所有消息给房间其他玩家
- *   4) 打印所有消息到控制台（日志）
+ *   4) TRACE 级别下打印所有消息到控制台（日志）
+ *
+ * 转发快路径：游戏消息（60 FPS 的位置同步等）只用流式解析器读出 type，
+ * 原始消息对象不做反序列化 / 再序列化，直接挂到房间其他玩家的出站队列（OutboundDispatcher）上共用
+ *
+ * 合包（game.ws.relay.bundle-ms > 0）：gossip 先进房间缓冲区，每个窗口给每个接收者发一个
+ * JSON 数组帧 [msg, msg, ...]（见 RelayBundler）；控制消息广播前先把缓冲区发完，保证顺序
+ *
+ * 位置类消息（PLAYER / ASTEROID / BULLET_POSITION）按 (发送者, 实体) 只保留最新一条：
+ * 接收者跟不上时旧位置直接被取代，不再排队；事件类消息照常可靠、按序送达
  *
  * 每个用户平等：
  *   - 每个用户生成自己的石头（username_asteroidId）
@@ -37,13 +50,26 @@ public class GameWebSocketHandlerB extends TextWebSocketHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(GameWebSocketHandlerB.class);
 
+    // 只转发、不解析的 P2P Gossip 消息类型
+    private static final Set<String> GOSSIP_TYPES = Set.of(
+            "PLAYER_POSITION", "ASTEROID_SPAWN", "ASTEROID_POSITION",
+            "BULLET_FIRED", "BULLET_POSITION", "BULLET_HIT_ASTEROID",
+            "PLAYER_HIT", "PLAYER_DEAD", "SCORE_UPDATE");
+
+    // 位置类消息 -> 实体 id 字段（"" = 发送者自己）：同一实体只需要最新一条，积压时旧的被取代；
+    // 其他 gossip 都是事件，可靠按序送达
+    private static final Map<String, String> POSITION_ID_FIELDS = Map.of(
+            "PLAYER_POSITION", "",
+            "ASTEROID_POSITION", "asteroidId",
+            "BULLET_POSITION", "bulletId");
+
     private final AuthService authService;
     private final LobbyService lobbyService;
     private final ObjectMapper objectMapper;
-    GameLogRepository gameLogRepository;
-
-    // sessionId -> WebSocketSession
-    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+    private final JsonFactory jsonFactory;
+    private final OutboundDispatcher outbound;
+    private final RelayBundler bundler; // null = 不合包，逐条转发
+    private final GameLogWriter gameLogWriter;
 
     // sessionId -> PlayerConnection
     private final Map<String, PlayerConnection> connections = new ConcurrentHashMap<>();
@@ -59,12 +85,22 @@ public class GameWebSocketHandlerB extends TextWebSocketHandler {
 
     public GameWebSocketHandlerB(AuthService authService,
                                 LobbyService lobbyService,
-                                GameLogRepository gameLogRepository,
-                                ObjectMapper objectMapper) {
+                                GameLogWriter gameLogWriter,
+                                ObjectMapper objectMapper,
+                                OutboundDispatcher outbound,
+                                @Value("${game.ws.relay.bundle-ms:16}") long bundleMs,
+                                @Value("${game.ws.relay.bundle-max-bytes:16384}") int bundleMaxBytes) {
         this.authService = authService;
         this.lobbyService = lobbyService;
-        this.gameLogRepository = gameLogRepository;
+        this.gameLogWriter = gameLogWriter;
         this.objectMapper = objectMapper;
+        this.jsonFactory = objectMapper.getFactory();
+        this.outbound = outbound;
+        this.bundler = bundleMs > 0
+                ? new RelayBundler(outbound, roomSessions::get, bundleMs, Math.max(1, bundleMaxBytes))
+                : null;
+        logger.info("[ArchB] Relay bundling: {}", bundleMs > 0
+                ? bundleMs + " ms window, max " + bundleMaxBytes + " bytes" : "off");
     }
 
     // --- WebSocket 生命周期 ---
@@ -72,7 +108,7 @@ public class GameWebSocketHandlerB extends TextWebSocketHandler {
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
         String sessionId = session.getId();
-        sessions.put(sessionId, session);
+        outbound.register(session);
         logger.info("[ArchB] WebSocket connected: {}", sessionId);
 
         sendJson(session, Map.of(
@@ -88,9 +124,17 @@ public class GameWebSocketHandlerB extends TextWebSocketHandler {
         String payload = message.getPayload();
 
         try {
+            // 🔥 P2P Gossip：所有游戏消息都原样转发，不做完整解析
+            String type = peekType(payload);
+            if (type != null && GOSSIP_TYPES.contains(type)) {
+                handleGossipMessage(session, message, type);
+                return;
+            }
+
+            // 控制消息（加入 / 离开 / 结束投票）量少，照常完整解析
             @SuppressWarnings("unchecked")
             Map<String, Object> msg = objectMapper.readValue(payload, Map.class);
-            String type = (String) msg.get("type");
+            type = (String) msg.get("type");
 
             switch (type) {
                 case "JOIN_GAME_B":
@@ -105,19 +149,6 @@ public class GameWebSocketHandlerB extends TextWebSocketHandler {
                     handleGameEndVote(session, msg);
                     break;
 
-                // 🔥 P2P Gossip：所有游戏消息都直接转发+打印日志
-                case "PLAYER_POSITION":
-                case "ASTEROID_SPAWN":
-                case "ASTEROID_POSITION":
-                case "BULLET_FIRED":
-                case "BULLET_POSITION":
-                case "BULLET_HIT_ASTEROID":
-                case "PLAYER_HIT":
-                case "PLAYER_DEAD":
-                case "SCORE_UPDATE":
-                    handleGossipMessage(session, msg, type);
-                    break;
-
                 default:
                     logger.warn("[ArchB-Gossip] Unknown message type: {}", type);
             }
@@ -131,6 +162,7 @@ public class GameWebSocketHandlerB extends TextWebSocketHandler {
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
         cleanupConnection(session.getId());
+        outbound.unregister(session.getId());
         logger.info("[ArchB] WebSocket disconnected: {}, status={}", session.getId(), status);
     }
 
@@ -154,7 +186,7 @@ public class GameWebSocketHandlerB extends TextWebSocketHandler {
 
         if (!validToken) {
             sendJson(session, Map.of("type", "ERROR", "message", "Invalid token"));
-            session.close();
+            outbound.close(sessionId, CloseStatus.NORMAL);
             return;
         }
 
@@ -164,7 +196,7 @@ public class GameWebSocketHandlerB extends TextWebSocketHandler {
                     "type", "NOT_IN_ROOM",
                     "message", "Not in room (Arch B - Gossip)"
             ));
-            session.close();
+            outbound.close(sessionId, CloseStatus.NORMAL);
             return;
         }
 
@@ -196,7 +228,7 @@ public class GameWebSocketHandlerB extends TextWebSocketHandler {
     }
 
     /**
-     * 🔥 P2P Gossip消息处理：接收、打印日志、转发
+     * 🔥 P2P Gossip消息处理：原样转发（TRACE 时打印日志）
      * 
      * 消息类型：
      * - PLAYER_POSITION: 玩家位置
@@ -209,82 +241,132 @@ public class GameWebSocketHandlerB extends TextWebSocketHandler {
      * - PLAYER_DEAD: 玩家死亡
      * - SCORE_UPDATE: 分数更新
      */
-    private void handleGossipMessage(WebSocketSession session, Map<String, Object> msg, String type) {
+    private void handleGossipMessage(WebSocketSession session, TextMessage message, String type) throws IOException {
         PlayerConnection conn = connections.get(session.getId());
         if (conn == null) return;
 
-        String username = conn.username;
-        long roomId = conn.roomId;
+        // 🔥 详细日志要完整解析，每秒上千条，只在 TRACE 时打印
+        if (logger.isTraceEnabled()) {
+            logGossipMessage(type, conn.username, message.getPayload());
+        }
 
-        // 🔥 打印详细日志到控制台
-        logGossipMessage(type, username, msg);
+        // 位置类消息按 (发送者, 类型, 实体) 取代：接收者积压时只送最新位置
+        String coalesceKey = coalesceKey(session.getId(), type, message.getPayload());
 
-        // 转发给房间其他玩家（不包括发送者自己）
-        broadcastToRoomExcept(roomId, msg, session.getId());
+        // 原消息直接转发给房间其他玩家（不包括发送者自己）；开了合包就先进缓冲区
+        if (bundler != null) {
+            bundler.add(conn.roomId, session.getId(), message, coalesceKey);
+        } else {
+            relayToRoomExcept(conn.roomId, message, session.getId(), coalesceKey);
+        }
+    }
+
+    /** 位置类消息的取代 key；事件类消息、或者读不到实体 id 时返回 null（不取代） */
+    private String coalesceKey(String sessionId, String type, String payload) throws IOException {
+        String idField = POSITION_ID_FIELDS.get(type);
+        if (idField == null) return null;
+        if (idField.isEmpty()) return sessionId + ':' + type;
+        String id = peekField(payload, idField);
+        return id == null ? null : sessionId + ':' + type + ':' + id;
+    }
+
+    /**
+     * 只读顶层 type 字段（流式解析，读到就停）；不是 JSON 对象或没有字符串 type 时返回 null
+     */
+    private String peekType(String payload) throws IOException {
+        return peekField(payload, "type");
     }
 
     /**
-     * 打印P2P Gossip消息到控制台
+     * 只读一个顶层标量字段的文本（流式解析，读到就停）；不是 JSON 对象或没有这个字段时返回 null
      */
-    private void logGossipMessage(String type, String username, Map<String, Object> msg) {
+    private String peekField(String payload, String name) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) return null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (name.equals(field)) {
+                    return value.isScalarValue() && value != JsonToken.VALUE_NULL ? parser.getText() : null;
+                }
+                parser.skipChildren();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 打印P2P Gossip消息到控制台（TRACE）
+     */
+    private void logGossipMessage(String type, String username, String payload) {
+        Map<String, Object> msg;
+        try {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> parsed = objectMapper.readValue(payload, Map.class);
+            msg = parsed;
+        } catch (IOException e) {
+            logger.trace("[ArchB-Gossip] [{}] {} (unparseable): {}", username, type, payload);
+            return;
+        }
+
         switch (type) {
             case "PLAYER_POSITION":
-                logger.info("[ArchB-Gossip] [{}] PLAYER_POSITION: x={}, y={}",
+                logger.trace("[ArchB-Gossip] [{}] PLAYER_POSITION: x={}, y={}",
                         username, msg.get("x"), msg.get("y"));
                 break;
 
             case "ASTEROID_SPAWN":
-                logger.info("[ArchB-Gossip] [{}] ASTEROID_SPAWN: id={} at ({}, {}), radius={}, hp={}",
+                logger.trace("[ArchB-Gossip] [{}] ASTEROID_SPAWN: id={} at ({}, {}), radius={}, hp={}",
                         username, msg.get("asteroidId"), msg.get("x"), msg.get("y"),
                         msg.get("radius"), msg.get("hp"));
                 break;
 
             case "ASTEROID_POSITION":
-                logger.info("[ArchB-Gossip] [{}] ASTEROID_POSITION: id={} at ({}, {})",
+                logger.trace("[ArchB-Gossip] [{}] ASTEROID_POSITION: id={} at ({}, {})",
                         username, msg.get("asteroidId"), msg.get("x"), msg.get("y"));
                 break;
 
             case "BULLET_FIRED":
-                logger.info("[ArchB-Gossip] [{}] BULLET_FIRED: id={} at ({}, {})",
+                logger.trace("[ArchB-Gossip] [{}] BULLET_FIRED: id={} at ({}, {})",
                         username, msg.get("bulletId"), msg.get("x"), msg.get("y"));
                 break;
 
             case "BULLET_POSITION":
-                logger.info("[ArchB-Gossip] [{}] BULLET_POSITION: id={} at ({}, {})",
+                logger.trace("[ArchB-Gossip] [{}] BULLET_POSITION: id={} at ({}, {})",
                         username, msg.get("bulletId"), msg.get("x"), msg.get("y"));
                 break;
 
             case "BULLET_HIT_ASTEROID":
-                logger.info("[ArchB-Gossip] [{}] BULLET_HIT_ASTEROID: bullet={} hit asteroid={} (owner={})",
+                logger.trace("[ArchB-Gossip] [{}] BULLET_HIT_ASTEROID: bullet={} hit asteroid={} (owner={})",
                         username, msg.get("bulletId"), msg.get("asteroidId"), msg.get("asteroidOwner"));
                 break;
 
             case "PLAYER_HIT":
-                logger.info("[ArchB-Gossip] [{}] PLAYER_HIT: by asteroid={}, hp={}",
+                logger.trace("[ArchB-Gossip] [{}] PLAYER_HIT: by asteroid={}, hp={}",
                         username, msg.get("asteroidId"), msg.get("hp"));
                 break;
 
             case "PLAYER_DEAD":
-                logger.info("[ArchB-Gossip] [{}] PLAYER_DEAD", username);
+                logger.trace("[ArchB-Gossip] [{}] PLAYER_DEAD", username);
                 break;
 
             case "SCORE_UPDATE":
-                logger.info("[ArchB-Gossip] [{}] SCORE_UPDATE: score={}, reason={}",
+                logger.trace("[ArchB-Gossip] [{}] SCORE_UPDATE: score={}, reason={}",
                         username, msg.get("score"), msg.get("reason"));
                 break;
 
             case "ASTEROID_DESTROYED":
-                logger.info("[ArchB-Gossip] [{}] ASTEROID_DESTROYED: id={}, reason={}",
+                logger.trace("[ArchB-Gossip] [{}] ASTEROID_DESTROYED: id={}, reason={}",
                         username, msg.get("asteroidId"), msg.get("reason"));
                 break;
 
             case "BULLET_DESTROYED":
-                logger.info("[ArchB-Gossip] [{}] BULLET_DESTROYED: id={}, reason={}",
+                logger.trace("[ArchB-Gossip] [{}] BULLET_DESTROYED: id={}, reason={}",
                         username, msg.get("bulletId"), msg.get("reason"));
                 break;
 
             default:
-                logger.info("[ArchB-Gossip] [{}] {}: {}", username, type, msg);
+                logger.trace("[ArchB-Gossip] [{}] {}: {}", username, type, msg);
         }
     }
 
@@ -450,9 +532,9 @@ public class GameWebSocketHandlerB extends TextWebSocketHandler {
             log.setStartedAt(startTime);
             log.setEndedAt(endTime);
             log.setResultJson(resultJson);
-            gameLogRepository.insert(log);
+            gameLogWriter.submit(log);
             
-            logger.info("[ArchB-Gossip] Room {} game log saved to database", roomId);
+            logger.info("[ArchB-Gossip] Room {} game log queued for database", roomId);
             logger.info("[ArchB-Gossip] Room {} duration: {}ms, winner: {}, players: {}", 
                     roomId, elapsedMs, winner, votes.size());
             
@@ -478,6 +560,9 @@ public class GameWebSocketHandlerB extends TextWebSocketHandler {
             set.remove(sessionId);
             if (set.isEmpty()) {
                 roomSessions.remove(roomId);
+                if (bundler != null) {
+                    bundler.remove(roomId);
+                }
                 logger.info("[ArchB-Gossip] Room {} all players left, cleared.", roomId);
             } else {
                 // 通知其他玩家：有人离开了
@@ -493,36 +578,17 @@ public class GameWebSocketHandlerB extends TextWebSocketHandler {
         }
     }
 
+    /** 单发控制消息，经出站队列发送（同一会话不会被多个线程同时写） */
     private void sendJson(WebSocketSession session, Map<String, Object> data) throws IOException {
         String json = objectMapper.writeValueAsString(data);
-        session.sendMessage(new TextMessage(json));
+        outbound.sendControl(session.getId(), new TextMessage(json));
     }
 
     /**
      * 广播消息给房间所有玩家
      */
     private void broadcastToRoom(long roomId, Map<String, Object> data) {
-        String json;
-        try {
-            json = objectMapper.writeValueAsString(data);
-        } catch (Exception e) {
-            logger.error("[ArchB-Gossip] Failed to serialize broadcast json", e);
-            return;
-        }
-
-        Set<String> set = roomSessions.get(roomId);
-        if (set == null) return;
-
-        for (String sid : set) {
-            WebSocketSession session = sessions.get(sid);
-            if (session != null && session.isOpen()) {
-                try {
-                    session.sendMessage(new TextMessage(json));
-                } catch (IOException e) {
-                    logger.error("[ArchB-Gossip] Failed to send msg to session {}", sid, e);
-                }
-            }
-        }
+        broadcastToRoomExcept(roomId, data, null);
     }
 
     /**
@@ -536,24 +602,36 @@ public class GameWebSocketHandlerB extends TextWebSocketHandler {
             logger.error("[ArchB-Gossip] Failed to serialize broadcast json", e);
             return;
         }
+        // 先发完攒着的 gossip，控制消息（加入 / 离开 / 结束）不能超车
+        if (bundler != null) {
+            bundler.flush(roomId);
+        }
+        relayToRoomExcept(roomId, new TextMessage(json), exceptSessionId, null);
+    }
 
+    /**
+     * 把同一个消息对象挂到房间其他玩家的出站队列（不可变，多会话共用）
+     * coalesceKey 为 null 时按序可靠送达；否则是位置更新，队列里同一 key 的旧帧会被它取代
+     */
+    private void relayToRoomExcept(long roomId, TextMessage message, String exceptSessionId, String coalesceKey) {
         Set<String> set = roomSessions.get(roomId);
         if (set == null) return;
 
         for (String sid : set) {
             if (sid.equals(exceptSessionId)) continue; // 跳过发送者
-
-            WebSocketSession session = sessions.get(sid);
-            if (session != null && session.isOpen()) {
-                try {
-                    session.sendMessage(new TextMessage(json));
-                } catch (IOException e) {
-                    logger.error("[ArchB-Gossip] Failed to send msg to session {}", sid, e);
-                }
+            if (coalesceKey == null) {
+                outbound.sendControl(sid, message);
+            } else {
+                outbound.sendState(sid, coalesceKey, message);
             }
         }
     }
 
+    /** 合包缓冲里被同一实体的新位置取代、没有发出的消息数（不合包时这部分计在出站队列的 stale 帧里） */
+    public long getRelayCoalesced() {
+        return bundler == null ? 0 : bundler.getCoalesced();
+    }
+
     /**
      * 获取房间所有玩家用户名列表
      */
@@ -571,6 +649,13 @@ public class GameWebSocketHandlerB extends TextWebSocketHandler {
         return users;
     }
 
+    @PreDestroy
+    public void shutdown() {
+        if (bundler != null) {
+            bundler.shutdown();
+        }
+    }
+
     /** 房间内 WebSocket 连接信息 */
     private static class PlayerConnection {
         final long roomId;
@@ -0,0 +1,105 @@
+package com.projectgroup5.gamedemo.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.projectgroup5.gamedemo.dto.LobbySlotDto;
+import com.projectgroup5.gamedemo.service.LobbyListener;
+import com.projectgroup5.gamedemo.service.LobbyService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 大厅推送 /ws/lobby（替代前端 500ms 轮询 GET /api/lobby）
+ *
+ * - 连接建立时发一次完整快照：{type: LOBBY_SNAPSHOT, version, slots}
+ * - 之后每次桌子变化只推这一张桌子：{type: LOBBY_SLOT, version, slot}
+ * - 先订阅再取快照，快照前后的增量可能交错到达；每张桌子带自己的版本，客户端按桌取较大版本合并，不会漏
+ * - 只推送，不处理客户端消息
+ */
+@Component
+public class LobbyWebSocketHandler extends TextWebSocketHandler implements LobbyListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(LobbyWebSocketHandler.class);
+
+    private final LobbyService lobbyService;
+    private final ObjectMapper objectMapper;
+    private final OutboundDispatcher outbound;
+
+    private final Set<String> subscribers = ConcurrentHashMap.newKeySet();
+
+    public LobbyWebSocketHandler(LobbyService lobbyService,
+                                 ObjectMapper objectMapper,
+                                 OutboundDispatcher outbound) {
+        this.lobbyService = lobbyService;
+        this.objectMapper = objectMapper;
+        this.outbound = outbound;
+        lobbyService.addListener(this);
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        String sessionId = session.getId();
+        outbound.register(session);
+        subscribers.add(sessionId);
+        lobbyService.withSnapshot((version, slots) -> {
+            Map<String, Object> msg = new LinkedHashMap<>();
+            msg.put("type", "LOBBY_SNAPSHOT");
+            msg.put("version", version);
+            msg.put("slots", slots);
+            try {
+                outbound.sendControl(sessionId, new TextMessage(objectMapper.writeValueAsString(msg)));
+            } catch (IOException e) {
+                logger.error("Failed to serialize lobby snapshot", e);
+                subscribers.remove(sessionId);
+                outbound.close(sessionId, CloseStatus.SERVER_ERROR);
+            }
+        });
+        logger.debug("Lobby subscriber connected: {} (total {})", sessionId, subscribers.size());
+    }
+
+    @Override
+    public void onSlotChanged(long version, LobbySlotDto slot) {
+        if (subscribers.isEmpty()) return;
+
+        Map<String, Object> msg = new LinkedHashMap<>();
+        msg.put("type", "LOBBY_SLOT");
+        msg.put("version", version);
+        msg.put("slot", slot);
+        TextMessage text;
+        try {
+            text = new TextMessage(objectMapper.writeValueAsString(msg));
+        } catch (IOException e) {
+            logger.error("Failed to serialize lobby slot {}", slot.getIndex(), e);
+            return;
+        }
+        // 序列化一次，所有订阅者共用
+        for (String sessionId : subscribers) {
+            outbound.sendControl(sessionId, text);
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        subscribers.remove(session.getId());
+        outbound.unregister(session.getId());
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) {
+        logger.debug("Lobby transport error {}: {}", session.getId(), exception.getMessage());
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+}
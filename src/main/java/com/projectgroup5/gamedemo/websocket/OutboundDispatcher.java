@@ -0,0 +1,226 @@
+package com.projectgroup5.gamedemo.websocket;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * WebSocket 出站扇出层
+ *
+ * - 调用方把消息编码一次，得到的 WebSocketMessage 被所有接收者共用
+ * - 每个会话两条有界通道：控制通道可靠按序、优先发送；状态通道可丢弃、可按 key 取代
+ * - 每个会话一个字节预算（bytes-per-second，0 表示不限），超出时只推迟状态帧
+ * - 由固定大小的写线程池发送；慢客户端按 SlowConsumerPolicy 处理，不会拖慢 tick 线程
+ */
+@Component
+public class OutboundDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(OutboundDispatcher.class);
+
+    private final Map<String, SessionOutbound> outbounds = new ConcurrentHashMap<>();
+    private final ExecutorService writers;
+    private final ScheduledExecutorService timer;
+
+    private final SlowConsumerPolicy policy;
+    private final int queueCapacity;
+    private final long maxBacklogNanos;
+    private final long bytesPerSecond;
+    private final long burstBytes;
+
+    // 统计
+    private final AtomicLong framesQueued = new AtomicLong();
+    private final AtomicLong staleFramesDropped = new AtomicLong();
+    private final AtomicLong slowConsumerDisconnects = new AtomicLong();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder budgetDeferrals = new LongAdder();
+
+    public OutboundDispatcher(@Value("${game.ws.outbound.policy:DROP_STALE}") SlowConsumerPolicy policy,
+                              @Value("${game.ws.outbound.queue-capacity:64}") int queueCapacity,
+                              @Value("${game.ws.outbound.max-backlog-ms:2000}") long maxBacklogMs,
+                              @Value("${game.ws.outbound.writer-threads:0}") int writerThreads,
+                              @Value("${game.ws.outbound.bytes-per-second:0}") long bytesPerSecond,
+                              @Value("${game.ws.outbound.burst-bytes:65536}") long burstBytes) {
+        this.policy = policy;
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.maxBacklogNanos = TimeUnit.MILLISECONDS.toNanos(maxBacklogMs);
+        this.bytesPerSecond = Math.max(0, bytesPerSecond);
+        this.burstBytes = Math.max(1, burstBytes);
+
+        int n = writerThreads > 0 ? writerThreads : Math.max(2, Runtime.getRuntime().availableProcessors());
+        AtomicInteger seq = new AtomicInteger();
+        this.writers = Executors.newFixedThreadPool(n, r -> {
+            Thread t = new Thread(r, "ws-writer-" + seq.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ws-outbound-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        logger.info("Outbound dispatcher: {} writer threads, policy={}, queue={} per lane, maxBacklog={} ms, budget={}",
+                n, policy, this.queueCapacity, maxBacklogMs,
+                this.bytesPerSecond == 0 ? "unlimited" : this.bytesPerSecond + " B/s per session");
+    }
+
+    public void register(WebSocketSession session) {
+        outbounds.put(session.getId(), new SessionOutbound(session, writers, timer,
+                bytesPerSecond, burstBytes, bytesSent, budgetDeferrals));
+    }
+
+    public void unregister(String sessionId) {
+        outbounds.remove(sessionId);
+    }
+
+    /** 周期性状态帧（可丢弃 / 可被新帧取代） */
+    public void sendState(String sessionId, WebSocketMessage<?> message) {
+        send(sessionId, OutboundFrame.state(message));
+    }
+
+    /** 按 key 区分的状态帧：只被同一 key 的新帧取代 */
+    public void sendState(String sessionId, String key, WebSocketMessage<?> message) {
+        send(sessionId, OutboundFrame.state(key, message));
+    }
+
+    /** 控制帧（必须按序送达） */
+    public void sendControl(String sessionId, WebSocketMessage<?> message) {
+        send(sessionId, OutboundFrame.control(message));
+    }
+
+    /** 先发完已排队的帧，再关闭连接 */
+    public void close(String sessionId, CloseStatus status) {
+        send(sessionId, OutboundFrame.close(status));
+    }
+
+    public void send(String sessionId, OutboundFrame frame) {
+        SessionOutbound out = outbounds.get(sessionId);
+        if (out == null) return;
+
+        // DISCONNECT 策略：写线程长时间没有进展，直接断开
+        if (policy == SlowConsumerPolicy.DISCONNECT && out.backlogNanos(System.nanoTime()) > maxBacklogNanos) {
+            disconnectSlow(sessionId, out, "backlog");
+            return;
+        }
+
+        SessionOutbound.Result result;
+        try {
+            result = out.enqueue(frame, policy, queueCapacity);
+        } catch (RejectedExecutionException e) {
+            return; // 正在关闭
+        }
+        switch (result) {
+            case QUEUED -> framesQueued.incrementAndGet();
+            case DROPPED_STALE -> {
+                framesQueued.incrementAndGet();
+                staleFramesDropped.incrementAndGet();
+            }
+            case OVERFLOW -> disconnectSlow(sessionId, out, "queue full");
+            case CLOSED -> { }
+        }
+    }
+
+    private void disconnectSlow(String sessionId, SessionOutbound out, String reason) {
+        outbounds.remove(sessionId);
+        out.abort(CloseStatus.SESSION_NOT_RELIABLE);
+        slowConsumerDisconnects.incrementAndGet();
+        logger.warn("Disconnecting slow consumer {} ({}, depth={}, backlog={} ms)", sessionId, reason,
+                out.depth(), TimeUnit.NANOSECONDS.toMillis(out.backlogNanos(System.nanoTime())));
+    }
+
+    /** 所有会话当前排队的帧数之和 */
+    public int getQueuedFrames() {
+        int total = 0;
+        for (SessionOutbound out : outbounds.values()) {
+            total += out.depth();
+        }
+        return total;
+    }
+
+    /** 某个会话当前排队的帧数（会话不存在时为 0） */
+    public int getQueueDepth(String sessionId) {
+        SessionOutbound out = outbounds.get(sessionId);
+        return out == null ? 0 : out.depth();
+    }
+
+    /** 所有会话控制通道排队的帧数之和 */
+    public int getQueuedControlFrames() {
+        int total = 0;
+        for (SessionOutbound out : outbounds.values()) {
+            total += out.controlDepth();
+        }
+        return total;
+    }
+
+    /** 所有会话状态通道排队的帧数之和 */
+    public int getQueuedStateFrames() {
+        int total = 0;
+        for (SessionOutbound out : outbounds.values()) {
+            total += out.stateDepth();
+        }
+        return total;
+    }
+
+    /** 排队最深的那个会话的帧数 */
+    public int getMaxQueueDepth() {
+        int max = 0;
+        for (SessionOutbound out : outbounds.values()) {
+            max = Math.max(max, out.depth());
+        }
+        return max;
+    }
+
+    public int getSessionCount() {
+        return outbounds.size();
+    }
+
+    public long getFramesQueued() {
+        return framesQueued.get();
+    }
+
+    public long getStaleFramesDropped() {
+        return staleFramesDropped.get();
+    }
+
+    public long getSlowConsumerDisconnects() {
+        return slowConsumerDisconnects.get();
+    }
+
+    /** 已写出的消息字节数（payload） */
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    /** 因为字节预算不足推迟发送状态通道的次数 */
+    public long getBudgetDeferrals() {
+        return budgetDeferrals.sum();
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    public SlowConsumerPolicy getPolicy() {
+        return policy;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+        writers.shutdownNow();
+    }
+}
@@ -0,0 +1,63 @@
+package com.projectgroup5.gamedemo.websocket;
+
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+
+/**
+ * 出站帧（不可变，同一帧可以同时挂在多个会话的队列里）
+ */
+public final class OutboundFrame {
+
+    public enum Kind {
+        STATE,      // 周期性状态快照 / 位置更新，可以被同一 key 的更新帧取代
+        CONTROL,    // JOINED / ERROR / 中转消息等，必须按序送达
+        CLOSE       // 发完前面的帧后关闭连接
+    }
+
+    private final Kind kind;
+    private final String key;
+    private final WebSocketMessage<?> message;
+    private final CloseStatus closeStatus;
+
+    private OutboundFrame(Kind kind, String key, WebSocketMessage<?> message, CloseStatus closeStatus) {
+        this.kind = kind;
+        this.key = key;
+        this.message = message;
+        this.closeStatus = closeStatus;
+    }
+
+    /** 整个会话只有一路状态（Arch A 快照），新帧取代所有未发送的旧帧 */
+    public static OutboundFrame state(WebSocketMessage<?> message) {
+        return new OutboundFrame(Kind.STATE, null, message, null);
+    }
+
+    /** 按 key 区分的状态（比如某个实体的位置），只取代同一 key 的未发送帧 */
+    public static OutboundFrame state(String key, WebSocketMessage<?> message) {
+        return new OutboundFrame(Kind.STATE, key, message, null);
+    }
+
+    public static OutboundFrame control(WebSocketMessage<?> message) {
+        return new OutboundFrame(Kind.CONTROL, null, message, null);
+    }
+
+    public static OutboundFrame close(CloseStatus status) {
+        return new OutboundFrame(Kind.CLOSE, null, null, status);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /** STATE 帧的取代范围，null 表示会话唯一的一路状态 */
+    public String getKey() {
+        return key;
+    }
+
+    public WebSocketMessage<?> getMessage() {
+        return message;
+    }
+
+    public CloseStatus getCloseStatus() {
+        return closeStatus;
+    }
+}
@@ -0,0 +1,288 @@
+package com.projectgroup5.gamedemo.websocket;
+
+import org.springframework.web.socket.TextMessage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+/**
+ * Arch B 中转合包：一个时间窗口里收到的 gossip 消息攒起来，每个接收者发一个 JSON 数组帧
+ *
+ * - 每个接收者一个缓冲区，按到达顺序保存原始消息对象，不解析、不改写
+ * - 固定周期（window）统一 flush；某个接收者的缓冲超过 maxBytes 时由写入线程立即 flush
+ * - 位置类消息带 coalesceKey（发送者 + 类型 + 实体 id）：同一 key 只保留最新一条，排到队尾
+ * - 事件类消息（coalesceKey 为 null）全部保留，顺序不变
+ * - 接收者的出站队列还有没发完的帧时：事件照常每个窗口发出，位置槽位留在缓冲区继续被新值取代，
+ *   等它跟上再发（和出站队列的两条通道一样，位置可能落在之后的事件后面，但总是该实体的最新值）
+ * - 只有一条时原样转发收到的那个消息对象，不包数组、不复制
+ * - 同一次 flush 里缓冲内容相同（同样的消息对象、同样的顺序）的接收者共用一个拼好的帧
+ * - flush 持有房间锁直到全部入队，所以同一房间的两次 flush 不会交错
+ */
+class RelayBundler {
+    private final OutboundDispatcher outbound;
+    private final LongFunction<Set<String>> roomSessions;
+    private final int maxBytes;
+    private final ScheduledExecutorService flusher;
+
+    // roomId -> RoomBuffer
+    private final Map<Long, RoomBuffer> rooms = new ConcurrentHashMap<>();
+
+    // 被同一实体的新位置取代、没有发出的消息数
+    private final AtomicLong coalesced = new AtomicLong();
+
+    RelayBundler(OutboundDispatcher outbound, LongFunction<Set<String>> roomSessions,
+                 long windowMillis, int maxBytes) {
+        this.outbound = outbound;
+        this.roomSessions = roomSessions;
+        this.maxBytes = maxBytes;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "relay-bundler");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleAtFixedRate(this::flushAll, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 把一条消息放进房间其他玩家的缓冲区，等下一次 flush 发出
+     *
+     * @param coalesceKey 位置类消息的取代 key；null 表示事件，必须可靠按序送达
+     */
+    void add(long roomId, String senderSessionId, TextMessage message, String coalesceKey) {
+        Set<String> recipients = roomSessions.apply(roomId);
+        if (recipients == null) return;
+
+        RoomBuffer room = rooms.computeIfAbsent(roomId, RoomBuffer::new);
+        synchronized (room) {
+            for (String sid : recipients) {
+                if (sid.equals(senderSessionId)) continue; // 跳过发送者
+                RecipientBuffer buffer = room.recipients.computeIfAbsent(sid, k -> new RecipientBuffer());
+                if (buffer.add(message, coalesceKey)) {
+                    coalesced.incrementAndGet();
+                }
+                if (buffer.bytes >= maxBytes) {
+                    outbound.sendControl(sid, buffer.build(false));
+                    buffer.removeSent();
+                }
+            }
+        }
+    }
+
+    /**
+     * 立即发出房间里攒着的消息（控制消息广播前调用，保证不会被它超车）
+     */
+    void flush(long roomId) {
+        RoomBuffer room = rooms.get(roomId);
+        if (room == null) return;
+        synchronized (room) {
+            flush(room, true);
+        }
+    }
+
+    /** 房间没人了，丢弃缓冲 */
+    void remove(long roomId) {
+        rooms.remove(roomId);
+    }
+
+    /** 被同一实体的新位置取代、没有发出的消息数 */
+    long getCoalesced() {
+        return coalesced.get();
+    }
+
+    void shutdown() {
+        flusher.shutdownNow();
+    }
+
+    private void flushAll() {
+        for (RoomBuffer room : rooms.values()) {
+            synchronized (room) {
+                flush(room, false);
+            }
+        }
+    }
+
+    // 调用方持有 room 锁；force = false 时出站队列还有积压的接收者只发事件
+    private void flush(RoomBuffer room, boolean force) {
+        Set<String> recipients = roomSessions.apply(room.roomId);
+        // 内容哈希 -> 本次已经拼好帧的缓冲区；全部入队后再清空，方便后面的接收者比对
+        Map<Integer, RecipientBuffer> built = new HashMap<>();
+        List<RecipientBuffer> sent = new ArrayList<>();
+        for (Iterator<Map.Entry<String, RecipientBuffer>> it = room.recipients.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, RecipientBuffer> e = it.next();
+            String sid = e.getKey();
+            RecipientBuffer buffer = e.getValue();
+            if (recipients == null || !recipients.contains(sid)) {
+                it.remove(); // 接收者已离开
+                continue;
+            }
+            if (buffer.isEmpty()) continue;
+            boolean eventsOnly = !force && outbound.getQueueDepth(sid) > 0; // 还没跟上：位置继续攒
+            if (eventsOnly && buffer.events == 0) continue;
+
+            int hash = buffer.contentHash(eventsOnly);
+            RecipientBuffer same = built.get(hash);
+            TextMessage frame;
+            if (same != null && same.sameContents(same.frameEventsOnly, buffer, eventsOnly)) {
+                frame = same.frame;
+                buffer.frameEventsOnly = eventsOnly;
+            } else {
+                frame = buffer.build(eventsOnly);
+                built.putIfAbsent(hash, buffer);
+            }
+            outbound.sendControl(sid, frame);
+            sent.add(buffer);
+        }
+        for (RecipientBuffer buffer : sent) {
+            buffer.removeSent();
+        }
+    }
+
+    /** 一个房间的待发消息 */
+    private static class RoomBuffer {
+        final long roomId;
+        final Map<String, RecipientBuffer> recipients = new HashMap<>();
+
+        RoomBuffer(long roomId) {
+            this.roomId = roomId;
+        }
+    }
+
+    /**
+     * 一个接收者的待发消息：按到达顺序排列；位置类消息按 key 留一个槽位，新值到来时旧条目作废
+     */
+    private static class RecipientBuffer {
+        final List<TextMessage> messages = new ArrayList<>();
+        final List<String> keys = new ArrayList<>();          // 和 messages 对应，事件为 null
+        final Map<String, Integer> latest = new HashMap<>(); // coalesceKey -> messages 下标
+        int live;
+        int bytes;
+        int events;         // 还没发出的事件数
+        int eventBytes;
+        TextMessage frame;  // build() 拼好的帧，发完前可以给内容相同的接收者复用
+        boolean frameEventsOnly;
+
+        /** 追加一条；取代了同一 key 的旧条目时返回 true */
+        boolean add(TextMessage message, String coalesceKey) {
+            boolean replaced = false;
+            int length = message.getPayload().length() + 1;
+            if (coalesceKey != null) {
+                Integer old = latest.put(coalesceKey, messages.size());
+                if (old != null) {
+                    bytes -= messages.get(old).getPayload().length() + 1;
+                    messages.set(old, null);
+                    live--;
+                    replaced = true;
+                }
+            } else {
+                events++;
+                eventBytes += length;
+            }
+            messages.add(message);
+            keys.add(coalesceKey);
+            live++;
+            bytes += length;
+            if (messages.size() > 4 * live + 64) {
+                compact(); // 接收者积压时大多是作废的旧位置
+            }
+            return replaced;
+        }
+
+        private void compact() {
+            int[] moved = new int[messages.size()];
+            int n = 0;
+            for (int i = 0; i < messages.size(); i++) {
+                TextMessage message = messages.get(i);
+                if (message != null) {
+                    moved[i] = n;
+                    keys.set(n, keys.get(i));
+                    messages.set(n++, message);
+                }
+            }
+            messages.subList(n, messages.size()).clear();
+            keys.subList(n, keys.size()).clear();
+            latest.replaceAll((key, index) -> moved[index]);
+        }
+
+        boolean isEmpty() {
+            return live == 0;
+        }
+
+        private boolean included(int i, boolean eventsOnly) {
+            return messages.get(i) != null && (!eventsOnly || keys.get(i) == null);
+        }
+
+        /** 要发的条目按消息对象的身份和顺序算的哈希（不看内容，不拷贝） */
+        int contentHash(boolean eventsOnly) {
+            int h = 0;
+            for (int i = 0; i < messages.size(); i++) {
+                if (included(i, eventsOnly)) h = 31 * h + System.identityHashCode(messages.get(i));
+            }
+            return h;
+        }
+
+        /** 两个缓冲区要发的条目是否按顺序是同样的消息对象 */
+        boolean sameContents(boolean eventsOnly, RecipientBuffer other, boolean otherEventsOnly) {
+            int j = 0;
+            for (int i = 0; i < messages.size(); i++) {
+                if (!included(i, eventsOnly)) continue;
+                while (j < other.messages.size() && !other.included(j, otherEventsOnly)) j++;
+                if (j == other.messages.size() || other.messages.get(j++) != messages.get(i)) return false;
+            }
+            while (j < other.messages.size() && !other.included(j, otherEventsOnly)) j++;
+            return j == other.messages.size();
+        }
+
+        /** 拼成一个帧（不删除）：只有一条时就是收到的那个消息对象，否则包成 JSON 数组 */
+        TextMessage build(boolean eventsOnly) {
+            frame = null;
+            frameEventsOnly = eventsOnly;
+            StringBuilder sb = null;
+            for (int i = 0; i < messages.size(); i++) {
+                if (!included(i, eventsOnly)) continue;
+                TextMessage message = messages.get(i);
+                if (frame == null) {
+                    frame = message;
+                    continue;
+                }
+                if (sb == null) {
+                    sb = new StringBuilder((eventsOnly ? eventBytes : bytes) + 2).append('[').append(frame.getPayload());
+                }
+                sb.append(',').append(message.getPayload());
+            }
+            if (sb != null) {
+                frame = new TextMessage(sb.append(']'));
+            }
+            return frame;
+        }
+
+        /** 删掉 build() 发出去的条目；只发了事件时位置槽位原样保留 */
+        void removeSent() {
+            if (frameEventsOnly) {
+                for (int i = 0; i < messages.size(); i++) {
+                    if (keys.get(i) == null) messages.set(i, null);
+                }
+                live -= events;
+                bytes -= eventBytes;
+            } else {
+                messages.clear();
+                keys.clear();
+                latest.clear();
+                live = 0;
+                bytes = 0;
+            }
+            events = 0;
+            eventBytes = 0;
+            frame = null;
+        }
+    }
+}
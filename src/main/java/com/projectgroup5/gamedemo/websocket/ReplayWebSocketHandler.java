@@ -0,0 +1,268 @@
+package com.projectgroup5.gamedemo.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.projectgroup5.gamedemo.game.GameStateWriter;
+import com.projectgroup5.gamedemo.game.GameWorld;
+import com.projectgroup5.gamedemo.game.SnapshotRing;
+import com.projectgroup5.gamedemo.game.WorldSnapshot;
+import com.projectgroup5.gamedemo.metrics.TickMetrics;
+import com.projectgroup5.gamedemo.replay.ReplayFile;
+import com.projectgroup5.gamedemo.replay.ReplayService;
+import com.projectgroup5.gamedemo.replay.ReplaySimulation;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.socket.*;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 回放观战：/ws/replay?logId=&speed=&protocol=binary
+ *
+ * - 每个连接一个 ReplaySimulation，按种子 + 输入日志重新模拟，不读存下来的快照
+ * - 按 game.net.send-hz 的周期推送 GAME_STATE，每次推进 simHz / sendHz × speed 帧（speed 1~32）
+ * - 状态帧和线上房间同一套编码：按客户端 ACK 发增量，JSON 或二进制（BinaryProtocol）
+ * - 客户端消息：ACK（JSON 或二进制 MSG_ACK）、SPEED {speed}
+ * - 放完发 REPLAY_END 后关闭连接
+ */
+@Component
+public class ReplayWebSocketHandler extends TextWebSocketHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplayWebSocketHandler.class);
+
+    private static final double MIN_SPEED = 1;
+    private static final double MAX_SPEED = 32;
+
+    private final ReplayService replayService;
+    private final ObjectMapper objectMapper;
+    private final OutboundDispatcher outbound;
+    private final int sendHz;
+    private final ScheduledExecutorService streamer;
+
+    // sessionId -> ReplayStream
+    private final Map<String, ReplayStream> streams = new ConcurrentHashMap<>();
+
+    public ReplayWebSocketHandler(ReplayService replayService,
+                                  ObjectMapper objectMapper,
+                                  OutboundDispatcher outbound,
+                                  @Value("${game.net.send-hz:20}") int sendHz,
+                                  @Value("${game.replay.stream-threads:1}") int streamThreads) {
+        this.replayService = replayService;
+        this.objectMapper = objectMapper;
+        this.outbound = outbound;
+        this.sendHz = Math.max(1, sendHz);
+        AtomicInteger seq = new AtomicInteger();
+        this.streamer = Executors.newScheduledThreadPool(Math.max(1, streamThreads), r -> {
+            Thread t = new Thread(r, "replay-stream-" + seq.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // ==================== 连接建立 / 关闭 ====================
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        String sessionId = session.getId();
+        outbound.register(session);
+
+        MultiValueMap<String, String> params = session.getUri() == null ? null
+                : UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams();
+        Long logId = params == null ? null : parseLong(params.getFirst("logId"));
+        if (logId == null) {
+            sendError(session, "Missing logId");
+            return;
+        }
+
+        Optional<ReplayFile> replay;
+        try {
+            replay = replayService.load(logId);
+        } catch (IOException e) {
+            logger.warn("Cannot read replay for game log {}", logId, e);
+            sendError(session, "Cannot read replay");
+            return;
+        }
+        if (replay.isEmpty()) {
+            sendError(session, "No replay for game log " + logId);
+            return;
+        }
+
+        ReplayStream stream = new ReplayStream(
+                new ReplaySimulation(replay.get()),
+                new GameStateWriter(objectMapper.getFactory(), new TickMetrics()),
+                "binary".equalsIgnoreCase(params.getFirst("protocol")));
+        stream.framesPerSend = (double) replay.get().getSimHz() / sendHz;
+        stream.speed = clampSpeed(parseDouble(params.getFirst("speed"), MIN_SPEED));
+
+        Map<String, Object> start = new LinkedHashMap<>();
+        start.put("type", "REPLAY_START");
+        start.putAll(replayService.describe(logId, replay.get()));
+        start.put("speed", stream.speed);
+        start.put("protocol", stream.binary ? "binary" : "json");
+        sendMessage(session, start);
+
+        long periodMicros = 1_000_000L / sendHz;
+        stream.task = streamer.scheduleAtFixedRate(() -> step(sessionId, stream),
+                periodMicros, periodMicros, TimeUnit.MICROSECONDS);
+        // 先有 task 再放进 streams；放进去之前连接已经断了的话 afterConnectionClosed 看不到这个流，这里自己取消
+        streams.put(sessionId, stream);
+        if (!session.isOpen() && streams.remove(sessionId, stream)) {
+            stream.task.cancel(false);
+            return;
+        }
+        logger.info("Replay stream {} started: game log {}, speed {}x", sessionId, logId, stream.speed);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        ReplayStream stream = streams.remove(session.getId());
+        if (stream != null && stream.task != null) {
+            stream.task.cancel(false);
+        }
+        outbound.unregister(session.getId());
+    }
+
+    // ==================== 推送 ====================
+
+    /**
+     * 推进一个发送周期的帧数并推送一帧状态（同一个流的 step 不会并发执行）
+     */
+    private void step(String sessionId, ReplayStream stream) {
+        try {
+            double frames = stream.framesPerSend * stream.speed + stream.carry;
+            int n = (int) frames;
+            stream.carry = frames - n;
+            ReplaySimulation sim = stream.sim;
+            sim.advance(n);
+
+            GameWorld world = sim.getWorld();
+            SnapshotRing ring = world.getSnapshots();
+            WorldSnapshot snapshot = ring.capture(world, sim.getDeltaTime());
+            stream.writer.prepare(world, snapshot, ring, sim.getSimTimeMillis(), sim.getDeltaTime());
+            outbound.sendState(sessionId, stream.writer.encode(stream.ackSeq, stream.binary));
+
+            if (sim.isFinished()) {
+                stream.task.cancel(false);
+                Map<String, Object> end = new LinkedHashMap<>();
+                end.put("type", "REPLAY_END");
+                end.put("frames", world.getCurrentFrameNumber());
+                outbound.sendControl(sessionId, new TextMessage(objectMapper.writeValueAsString(end)));
+                outbound.close(sessionId, CloseStatus.NORMAL);
+            }
+        } catch (Exception e) {
+            // 异常不能逃出 scheduleAtFixedRate，否则任务会被静默取消
+            logger.error("Replay stream {} failed", sessionId, e);
+            stream.task.cancel(false);
+            outbound.close(sessionId, CloseStatus.SERVER_ERROR);
+        }
+    }
+
+    // ==================== 客户端消息 ====================
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        ReplayStream stream = streams.get(session.getId());
+        if (stream == null) return;
+
+        try {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> msg = objectMapper.readValue(message.getPayload(), Map.class);
+            String type = (String) msg.get("type");
+            if ("ACK".equals(type)) {
+                if (msg.get("seq") instanceof Number n) {
+                    stream.ackSeq = n.longValue();
+                }
+            } else if ("SPEED".equals(type)) {
+                if (msg.get("speed") instanceof Number n) {
+                    stream.speed = clampSpeed(n.doubleValue());
+                }
+            } else {
+                logger.warn("Unknown replay message type: {}", type);
+            }
+        } catch (Exception e) {
+            logger.error("Error handling replay message from {}", session.getId(), e);
+            sendMessage(session, Map.of("type", "ERROR", "message", String.valueOf(e.getMessage())));
+        }
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) {
+        ReplayStream stream = streams.get(session.getId());
+        if (stream == null) return;
+
+        ByteBuffer buf = message.getPayload();
+        if (buf.remaining() >= BinaryProtocol.ACK_LENGTH
+                && (buf.get(buf.position()) & 0xFF) == BinaryProtocol.MSG_ACK) {
+            stream.ackSeq = buf.getInt(buf.position() + 1);
+        }
+    }
+
+    // ==================== 工具方法 ====================
+
+    private void sendError(WebSocketSession session, String message) throws IOException {
+        sendMessage(session, Map.of("type", "ERROR", "message", message));
+        outbound.close(session.getId(), CloseStatus.NORMAL);
+    }
+
+    private void sendMessage(WebSocketSession session, Map<String, Object> data) throws IOException {
+        outbound.sendControl(session.getId(), new TextMessage(objectMapper.writeValueAsString(data)));
+    }
+
+    private static double clampSpeed(double speed) {
+        return Double.isNaN(speed) ? MIN_SPEED : Math.max(MIN_SPEED, Math.min(MAX_SPEED, speed));
+    }
+
+    private static Long parseLong(String s) {
+        try {
+            return s == null ? null : Long.parseLong(s);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static double parseDouble(String s, double defaultValue) {
+        try {
+            return s == null ? defaultValue : Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        streamer.shutdownNow();
+    }
+
+    /** 一个观战连接的回放状态 */
+    private static class ReplayStream {
+        final ReplaySimulation sim;
+        final GameStateWriter writer;
+        final boolean binary;
+        double framesPerSend;      // simHz / sendHz
+        double carry;              // 倍速不是整数时累计的零头帧
+        volatile double speed;
+        volatile long ackSeq = -1; // 客户端最后确认收到的快照 seq，-1 表示需要关键帧
+        volatile ScheduledFuture<?> task;
+
+        ReplayStream(ReplaySimulation sim, GameStateWriter writer, boolean binary) {
+            this.sim = sim;
+            this.writer = writer;
+            this.binary = binary;
+        }
+    }
+}
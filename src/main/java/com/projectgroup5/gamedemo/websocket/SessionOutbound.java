@@ -0,0 +1,264 @@
+package com.projectgroup5.gamedemo.websocket;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个会话的出站队列：两条通道 + 字节预算
+ *
+ * - 控制通道（CONTROL / CLOSE）：可靠、按序，优先发送
+ * - 状态通道（STATE）：可丢弃，DROP_STALE 下同一 key 的新帧取代旧帧；只在控制通道空了以后发，
+ *   所以控制帧可能超过之前排队的状态帧（状态帧只是覆盖式更新，客户端不依赖两者的相对顺序）
+ * - CLOSE 入队后不再接受新帧，等状态通道里剩下的帧发完再关闭
+ * - 字节预算（令牌桶，bytesPerSecond = 0 表示不限）：控制帧总是发，余额可以透支；
+ *   余额不足时状态帧留在通道里继续被新帧取代，等余额恢复后由定时器重新调度
+ * - 任意线程 enqueue，同一时刻最多一个写线程在 drain（scheduled 标记保证）
+ * - session.sendMessage 只在写线程上调用，tick 线程永远不会被慢客户端卡住
+ * - busySinceNanos：队列非空且写线程没有进展的起始时间，用来判断积压了多久
+ */
+class SessionOutbound {
+    private static final Logger logger = LoggerFactory.getLogger(SessionOutbound.class);
+
+    // 每次 drain 最多发多少帧，之后让出写线程给其他会话
+    private static final int DRAIN_BATCH = 32;
+
+    enum Result { QUEUED, DROPPED_STALE, OVERFLOW, CLOSED }
+
+    private final WebSocketSession session;
+    private final Executor writers;
+    private final ScheduledExecutorService timer;
+    private final ArrayDeque<OutboundFrame> control = new ArrayDeque<>();
+    private final ArrayDeque<OutboundFrame> state = new ArrayDeque<>();
+
+    // 令牌桶（只在 drain 线程上读写）
+    private final double bytesPerNano;
+    private final long burstBytes;
+    private double tokens;
+    private long refilledAtNanos;
+
+    private boolean scheduled;
+    private boolean waiting;   // 预算不足，等定时器唤醒（scheduled 仍为 true）
+    private boolean closing;   // CLOSE 已入队
+    private boolean closed;
+    private volatile long busySinceNanos;
+
+    // 所有会话共用的统计（由 OutboundDispatcher 持有）
+    private final LongAdder bytesSent;
+    private final LongAdder budgetDeferrals;
+
+    SessionOutbound(WebSocketSession session, Executor writers, ScheduledExecutorService timer,
+                    long bytesPerSecond, long burstBytes, LongAdder bytesSent, LongAdder budgetDeferrals) {
+        this.session = session;
+        this.writers = writers;
+        this.timer = timer;
+        this.bytesSent = bytesSent;
+        this.budgetDeferrals = budgetDeferrals;
+        this.bytesPerNano = bytesPerSecond / 1e9;
+        this.burstBytes = burstBytes;
+        this.tokens = burstBytes;
+        this.refilledAtNanos = System.nanoTime();
+    }
+
+    /**
+     * 入队；DROP_STALE 下新的 STATE 帧会替换掉状态通道里尚未发送的同一 key 的帧（新帧排到队尾），
+     * 状态通道满时丢掉最旧的状态帧；控制通道满（或 DISCONNECT 下任一通道满）返回 OVERFLOW
+     */
+    Result enqueue(OutboundFrame frame, SlowConsumerPolicy policy, int capacity) {
+        Result result = Result.QUEUED;
+        synchronized (this) {
+            if (closed || closing) return Result.CLOSED;
+
+            if (frame.getKind() == OutboundFrame.Kind.STATE) {
+                if (policy == SlowConsumerPolicy.DROP_STALE) {
+                    for (Iterator<OutboundFrame> it = state.iterator(); it.hasNext(); ) {
+                        if (Objects.equals(it.next().getKey(), frame.getKey())) {
+                            it.remove();
+                            result = Result.DROPPED_STALE;
+                        }
+                    }
+                    if (state.size() >= capacity) {
+                        state.pollFirst();
+                        result = Result.DROPPED_STALE;
+                    }
+                } else if (state.size() >= capacity) {
+                    return Result.OVERFLOW;
+                }
+                state.addLast(frame);
+            } else {
+                if (control.size() >= capacity) {
+                    return Result.OVERFLOW;
+                }
+                control.addLast(frame);
+                closing = frame.getKind() == OutboundFrame.Kind.CLOSE;
+            }
+            if (busySinceNanos == 0) {
+                busySinceNanos = System.nanoTime();
+            }
+            if (waiting && frame.getKind() != OutboundFrame.Kind.STATE) {
+                waiting = false; // 控制帧不受预算限制，不等定时器
+            } else if (scheduled) {
+                return result;
+            }
+            scheduled = true;
+        }
+        writers.execute(this::drain);
+        return result;
+    }
+
+    /**
+     * 积压时长（纳秒），空闲时为 0
+     */
+    long backlogNanos(long now) {
+        long since = busySinceNanos;
+        return since == 0 ? 0 : now - since;
+    }
+
+    synchronized int depth() {
+        return control.size() + state.size();
+    }
+
+    synchronized int controlDepth() {
+        return control.size();
+    }
+
+    synchronized int stateDepth() {
+        return state.size();
+    }
+
+    /**
+     * 放弃所有未发送帧并异步关闭连接（慢客户端）
+     */
+    void abort(CloseStatus status) {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            control.clear();
+            state.clear();
+        }
+        writers.execute(() -> closeQuietly(status));
+    }
+
+    WebSocketSession getSession() {
+        return session;
+    }
+
+    private void drain() {
+        for (int n = 0; n < DRAIN_BATCH; n++) {
+            OutboundFrame frame;
+            long waitNanos = 0;
+            synchronized (this) {
+                frame = control.peekFirst();
+                if (frame != null && frame.getKind() == OutboundFrame.Kind.CLOSE && !state.isEmpty()) {
+                    frame = null; // 关闭前先发完状态通道
+                }
+                if (frame != null) {
+                    control.pollFirst();
+                } else if (!state.isEmpty()) {
+                    waitNanos = budgetWaitNanos();
+                    if (waitNanos == 0) {
+                        frame = state.pollFirst();
+                    }
+                }
+                if (frame == null) {
+                    if (waitNanos > 0) {
+                        // 预算不足：保持 scheduled，余额恢复后再继续（期间新状态帧照常取代旧帧）
+                        budgetDeferrals.increment();
+                        busySinceNanos = 0;
+                        waiting = true;
+                    } else {
+                        scheduled = false;
+                        busySinceNanos = 0;
+                        return;
+                    }
+                }
+            }
+            if (frame == null) {
+                timer.schedule(this::resume, waitNanos, TimeUnit.NANOSECONDS);
+                return;
+            }
+
+            if (frame.getKind() == OutboundFrame.Kind.CLOSE) {
+                synchronized (this) {
+                    closed = true;
+                    control.clear();
+                    state.clear();
+                }
+                closeQuietly(frame.getCloseStatus());
+            } else if (session.isOpen()) {
+                try {
+                    session.sendMessage(frame.getMessage());
+                    int bytes = frame.getMessage().getPayloadLength();
+                    bytesSent.add(bytes);
+                    spend(bytes);
+                } catch (Exception e) {
+                    // 写失败后 Tomcat 的发送状态不再可用，后面的帧也发不出去：直接放弃这个会话
+                    if (session.isOpen()) {
+                        logger.error("Send fail session {}, dropping its outbound queue", session.getId(), e);
+                    } else {
+                        logger.debug("Session {} closed while sending", session.getId());
+                    }
+                    abort(CloseStatus.SERVER_ERROR);
+                    return;
+                }
+            }
+
+            synchronized (this) {
+                busySinceNanos = control.isEmpty() && state.isEmpty() ? 0 : System.nanoTime();
+            }
+        }
+        // 还有剩余：重新排队，让其他会话也有机会
+        writers.execute(this::drain);
+    }
+
+    // 定时器线程：预算恢复后继续 drain（期间已被控制帧唤醒则什么都不做）
+    private void resume() {
+        synchronized (this) {
+            if (!waiting) return;
+            waiting = false;
+        }
+        try {
+            writers.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            // 正在关闭
+        }
+    }
+
+    // ---- 令牌桶（drain 线程） ----
+
+    /** 状态帧现在能不能发：余额为正就发（发完可以透支），否则返回需要等待的纳秒数 */
+    private long budgetWaitNanos() {
+        if (bytesPerNano <= 0) return 0;
+        long now = System.nanoTime();
+        tokens = Math.min(burstBytes, tokens + (now - refilledAtNanos) * bytesPerNano);
+        refilledAtNanos = now;
+        if (tokens > 0) return 0;
+        return Math.max(TimeUnit.MILLISECONDS.toNanos(1), (long) ((1 - tokens) / bytesPerNano));
+    }
+
+    private void spend(int bytes) {
+        if (bytesPerNano > 0) {
+            tokens -= bytes;
+        }
+    }
+
+    private void closeQuietly(CloseStatus status) {
+        try {
+            if (session.isOpen()) {
+                session.close(status);
+            }
+        } catch (Exception e) {
+            logger.debug("Close fail session {}", session.getId(), e);
+        }
+    }
+}
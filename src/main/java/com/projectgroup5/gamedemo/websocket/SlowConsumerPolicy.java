@@ -0,0 +1,11 @@
+package com.projectgroup5.gamedemo.websocket;
+
+/**
+ * 慢客户端策略（出站队列积压时怎么办）
+ */
+public enum SlowConsumerPolicy {
+    /** 新的状态帧覆盖状态通道里还没发出去的同一 key 的旧状态帧，通道满时丢最旧的；控制通道照常排队 */
+    DROP_STALE,
+    /** 不丢帧，积压超过 max-backlog-ms 直接断开 */
+    DISCONNECT
+}
@@ -50,13 +50,37 @@ let canvas, ctx;
 let lastSendTime = 0;
 const INPUT_SEND_INTERVAL = 50; // 20Hz
 
-// ============ 帮助函数：根据 username 得到固定颜色 ============
-function getPlayerColor(u) {
-    const players = gameState.players || [];
-    const sorted = [...players].map(p => p.username).sort();
-    const idx = sorted.indexOf(u);
-    if (idx === -1) return '#00bfff'; // fallback 蓝色
-    return PLAYER_COLORS[Math.min(idx, PLAYER_COLORS.length - 1)];
+// ============ 增量快照 ============
+// 服务器按我们最后 ACK 的 seq 发增量，这里保留最近的快照作为基线
+const SNAPSHOT_HISTORY = 64;
+const snapshots = new Map();   // seq -> { names, players: Map<slot, rec>, bullets: Map<id, rec>, asteroids: Map<id, rec> }
+let lastSeq = -1;              // 最后收到并成功解码的快照
+let lastAckSent = -1;
+
+// ============ 插值 ============
+const TIMELINE_LENGTH = 8;
+const INTERP_MIN_DELAY_MS = 50;
+const timeline = [];           // 按 frame 递增：{ frame, dt, snap }
+let clockOffset = null;        // performance.now() - 服务器帧时间（毫秒）
+let lastSnapshotGapMs = 50;    // 最近两个快照的间隔（决定渲染延迟）
+let renderedSnap = null;
+let countdownEndsAt = 0;
+
+// ============ 协议 ============
+// 默认二进制（见服务端 BinaryProtocol），URL 加 ?proto=json 切回 JSON 方便调试
+let useBinary = true;
+let inputSeq = 0;
+const MSG_INPUT = 0x01;
+const MSG_ACK = 0x02;
+const MSG_STATE = 0x10;
+const POSITION_SCALE = 16;
+const PHASES = ['WAITING', 'COUNTDOWN', 'IN_PROGRESS', 'FINISHED'];
+const BTN_UP = 1, BTN_DOWN = 2, BTN_LEFT = 4, BTN_RIGHT = 8, BTN_FIRE = 16;
+
+// ============ 帮助函数：根据座位号 slot 得到固定颜色 ============
+function getPlayerColor(slot) {
+    if (typeof slot !== 'number' || slot < 0) return '#00bfff'; // fallback 蓝色
+    return PLAYER_COLORS[Math.min(slot, PLAYER_COLORS.length - 1)];
 }
 
 // ================== 启动入口 ==================
@@ -67,6 +91,7 @@ function getPlayerColor(u) {
     roomId = parseInt(params.get('roomId'));
     winMode = params.get('win') || 'SCORE_50';
     const arch = params.get('arch') || 'A';
+    useBinary = params.get('proto') !== 'json';
 
     console.log('[INIT]', 'roomId:', roomId, 'winMode:', winMode, 'arch:', arch);
 
@@ -122,21 +147,26 @@ function connectWebSocket() {
     const protocol = window.location.protocol === 'https:' ? 'wss:' : 'ws:';
     const wsUrl = `${protocol}//${window.location.host}/ws/game`;
     ws = new WebSocket(wsUrl);
+    ws.binaryType = 'arraybuffer';
 
     ws.onopen = () => {
-        console.log('WebSocket connected (Architecture A)');
+        console.log('WebSocket connected (Architecture A), protocol:', useBinary ? 'binary' : 'json');
 
         ws.send(JSON.stringify({
             type: 'JOIN_GAME',
             roomId: roomId,
             username: username,
-            token: token
+            token: token,
+            protocol: useBinary ? 'binary' : 'json'
         }));
     };
 
     ws.onmessage = (event) => {
-        const msg = JSON.parse(event.data);
-        handleServerMessage(msg);
+        // 状态帧可能是二进制，控制消息（JOINED / ERROR ...）始终是 JSON
+        const msg = typeof event.data === 'string'
+            ? JSON.parse(event.data)
+            : decodeBinaryState(event.data);
+        if (msg) handleServerMessage(msg);
     };
 
     ws.onerror = (error) => {
@@ -160,36 +190,15 @@ function handleServerMessage(msg) {
             break;
 
         case 'GAME_STATE': {
-            console.log(
-                '[GAME_STATE]',
-                'phase:', msg.phase,
-                'players:', msg.players?.length,
-                'bullets:', msg.bullets?.length,
-                'asteroids:', msg.asteroids?.length
-            );
-
-            const oldAsteroidsById = new Map(
-                (gameState.asteroids || []).map(a => [a.id, a])
-            );
+            if (!applySnapshot(msg)) break;
 
             gameState.phase = msg.phase || gameState.phase;
-            gameState.frame = msg.frame ?? gameState.frame;
-            gameState.countdownMs = msg.countdownMs || 0;
             gameState.elapsedMs = msg.elapsedMs || 0;
-            gameState.players = msg.players || [];
-            gameState.bullets = msg.bullets || [];
-            gameState.asteroids = msg.asteroids || [];
-
-            const newIds = new Set(gameState.asteroids.map(a => a.id));
-            oldAsteroidsById.forEach((asteroid, id) => {
-                if (!newIds.has(id)) {
-                    explosionEffects.push({
-                        x: asteroid.x,
-                        y: asteroid.y,
-                        endTime: performance.now() + 300
-                    });
-                }
-            });
+            // 倒计时只在进入 COUNTDOWN 时发一次，之后本地自己走
+            if (msg.phase === 'COUNTDOWN') {
+                countdownEndsAt = performance.now() + (msg.countdownMs || 0);
+            }
+            pushTimeline(msg);
 
             // 🔥 检测游戏结束，自动跳转到大厅
             if (msg.phase === 'FINISHED' && !gameEndHandled) {
@@ -199,8 +208,6 @@ function handleServerMessage(msg) {
                     window.location.href = '/lobby.html?fromGameExit=1';
                 }, 3000);
             }
-
-            updateUI();
             break;
         }
 
@@ -224,6 +231,268 @@ function handleServerMessage(msg) {
     }
 }
 
+/**
+ * 把 GAME_STATE 应用到基线快照上，得到 seq 对应的新快照
+ * - 没有 base：关键帧，从空集合开始
+ * - 有 base 但本地已经没有：请求关键帧（ACK -1），本条丢弃
+ */
+function applySnapshot(msg) {
+    let baseNames, basePlayers, baseBullets, baseAsteroids;
+    if (msg.base == null) {
+        baseNames = new Map();
+        basePlayers = new Map();
+        baseBullets = new Map();
+        baseAsteroids = new Map();
+    } else {
+        const base = snapshots.get(msg.base);
+        if (!base) {
+            console.warn('[SNAPSHOT] missing base', msg.base, '-> request keyframe');
+            sendAck(-1);
+            return false;
+        }
+        baseNames = base.names;
+        basePlayers = base.players;
+        baseBullets = base.bullets;
+        baseAsteroids = base.asteroids;
+    }
+
+    // 名字只在关键帧 / 座位表变化时出现，出现时是完整列表
+    const names = msg.names ? new Map(msg.names.map(n => [n[0], n[1]])) : baseNames;
+
+    const players = new Map(basePlayers);
+    (msg.playersRemoved || []).forEach(slot => players.delete(slot));
+    (msg.players || []).forEach(p => players.set(p[0], p));
+
+    const bullets = new Map(baseBullets);
+    (msg.bulletsRemoved || []).forEach(id => bullets.delete(id));
+    (msg.bullets || []).forEach(b => bullets.set(b[0], b));
+
+    const asteroids = new Map(baseAsteroids);
+    (msg.asteroidsRemoved || []).forEach(id => asteroids.delete(id));
+    (msg.asteroids || []).forEach(a => asteroids.set(a[0], a));
+
+    snapshots.set(msg.seq, { names, players, bullets, asteroids });
+    snapshots.forEach((_, seq) => {
+        if (seq <= msg.seq - SNAPSHOT_HISTORY) snapshots.delete(seq);
+    });
+    lastSeq = Math.max(lastSeq, msg.seq);
+    return true;
+}
+
+// 轨迹外推：位置 = 锚点 + 速度 * (当前帧 - 锚点帧) * dt（frame 可以是小数）
+function extrapolate(origin, velocity, trajFrame, frame, dt) {
+    return origin + velocity * (frame - trajFrame) * dt;
+}
+
+// ============ 插值 ============
+// 快照按房间的 sendHz 发送（低于模拟频率），渲染时刻比最新快照晚一点，
+// 玩家在相邻两个快照之间线性插值，子弹 / 石头直接按轨迹算到渲染帧
+function pushTimeline(msg) {
+    const snap = snapshots.get(msg.seq);
+    const entry = { frame: msg.frame, dt: msg.dt, snap };
+    const last = timeline[timeline.length - 1];
+
+    if (last && msg.frame < last.frame) return;   // 乱序 / 过期
+    if (last && msg.frame === last.frame) {
+        // 非游戏阶段帧号不走，直接替换
+        timeline[timeline.length - 1] = entry;
+    } else {
+        if (last) {
+            lastSnapshotGapMs = (msg.frame - last.frame) * msg.dt * 1000;
+        }
+        timeline.push(entry);
+        if (timeline.length > TIMELINE_LENGTH) timeline.shift();
+    }
+
+    // 服务器帧时间与本地时钟的偏移：取到达最早的样本，再缓慢跟随（容忍时钟漂移）
+    // 只在游戏中采样，其他阶段帧号不走
+    if (msg.phase !== 'IN_PROGRESS') return;
+    const sample = performance.now() - msg.frame * msg.dt * 1000;
+    if (clockOffset == null || sample < clockOffset) {
+        clockOffset = sample;
+    } else {
+        clockOffset += (sample - clockOffset) * 0.02;
+    }
+}
+
+/**
+ * 计算当前渲染帧的 gameState.players / bullets / asteroids
+ */
+function updateInterpolatedState() {
+    if (timeline.length === 0) return;
+
+    let a = timeline[timeline.length - 1];
+    let b = a;
+    let renderFrame = a.frame;
+
+    if (gameState.phase === 'IN_PROGRESS' && clockOffset != null) {
+        const delayMs = Math.max(INTERP_MIN_DELAY_MS, lastSnapshotGapMs * 1.5);
+        const target = (performance.now() - clockOffset - delayMs) / (a.dt * 1000);
+        if (target < timeline[0].frame) {
+            a = b = timeline[0];
+            renderFrame = a.frame;
+        } else if (target < a.frame) {
+            for (let i = timeline.length - 1; i > 0; i--) {
+                if (timeline[i - 1].frame <= target) {
+                    a = timeline[i - 1];
+                    b = timeline[i];
+                    break;
+                }
+            }
+            renderFrame = target;
+        }
+    }
+
+    const t = b.frame > a.frame ? (renderFrame - a.frame) / (b.frame - a.frame) : 0;
+    const snap = a.snap;
+    const next = b.snap;
+    gameState.frame = Math.floor(renderFrame);
+
+    gameState.players = [...snap.players.values()].map(p => {
+        const q = next.players.get(p[0]);
+        return {
+            slot: p[0],
+            username: snap.names.get(p[0]) || `P${p[0] + 1}`,
+            x: q ? p[1] + (q[1] - p[1]) * t : p[1],
+            y: q ? p[2] + (q[2] - p[2]) * t : p[2],
+            hp: p[3],
+            score: p[4],
+            alive: p[5] === 1
+        };
+    });
+
+    gameState.bullets = [...snap.bullets.values()].map(bl => ({
+        id: bl[0],
+        owner: bl[1],
+        x: extrapolate(bl[3], bl[5], bl[2], renderFrame, a.dt),
+        y: extrapolate(bl[4], bl[6], bl[2], renderFrame, a.dt)
+    }));
+
+    const oldAsteroidsById = new Map(
+        (gameState.asteroids || []).map(as => [as.id, as])
+    );
+    gameState.asteroids = [...snap.asteroids.values()].map(as => ({
+        id: as[0],
+        x: extrapolate(as[2], as[4], as[1], renderFrame, a.dt),
+        y: extrapolate(as[3], as[5], as[1], renderFrame, a.dt),
+        radius: as[6],
+        hp: as[7],
+        isBig: as[8] === 1
+    }));
+
+    if (snap !== renderedSnap) {
+        // 渲染的快照换了：消失的石头放爆炸特效，刷新记分板
+        const newIds = new Set(gameState.asteroids.map(as => as.id));
+        oldAsteroidsById.forEach((asteroid, id) => {
+            if (!newIds.has(id)) {
+                explosionEffects.push({
+                    x: asteroid.x,
+                    y: asteroid.y,
+                    endTime: performance.now() + 300
+                });
+            }
+        });
+        renderedSnap = snap;
+        updateUI();
+    }
+}
+
+function sendAck(seq) {
+    if (!ws || ws.readyState !== WebSocket.OPEN) return;
+    if (useBinary) {
+        const view = new DataView(new ArrayBuffer(5));
+        view.setUint8(0, MSG_ACK);
+        view.setInt32(1, seq);
+        ws.send(view.buffer);
+    } else {
+        ws.send(JSON.stringify({ type: 'ACK', seq: seq }));
+    }
+    lastAckSent = seq;
+}
+
+/**
+ * 把二进制 STATE 解码成和 JSON GAME_STATE 相同结构的对象（格式见服务端 BinaryProtocol）
+ */
+function decodeBinaryState(buffer) {
+    const bytes = new Uint8Array(buffer);
+    let pos = 0;
+
+    const u8 = () => bytes[pos++];
+    const varint = () => {
+        let result = 0, mul = 1, b;
+        do {
+            b = bytes[pos++];
+            result += (b & 0x7f) * mul;
+            mul *= 128;
+        } while (b & 0x80);
+        return result;
+    };
+    const svarint = () => {
+        const v = varint();
+        return v % 2 === 0 ? v / 2 : -(v + 1) / 2;
+    };
+    const fixed = () => svarint() / POSITION_SCALE;
+    const str = () => {
+        const len = varint();
+        const s = new TextDecoder().decode(bytes.subarray(pos, pos + len));
+        pos += len;
+        return s;
+    };
+    const ids = () => {
+        const out = [];
+        let id = 0;
+        for (let n = varint(); n > 0; n--) out.push(id += varint());
+        return out;
+    };
+
+    if (u8() !== MSG_STATE) {
+        console.warn('[WS] unknown binary message');
+        return null;
+    }
+
+    const msg = { type: 'GAME_STATE' };
+    msg.seq = varint();
+    const base = varint();
+    msg.base = base === 0 ? null : base;
+    msg.frame = varint();
+    msg.dt = varint() / 1e6;
+    msg.phase = PHASES[u8()];
+    const timeMs = varint();
+    if (msg.phase === 'COUNTDOWN') msg.countdownMs = timeMs;
+    if (msg.phase === 'IN_PROGRESS') msg.elapsedMs = timeMs;
+    const flags = u8();
+
+    if (flags & 1) {
+        msg.names = [];
+        for (let n = u8(); n > 0; n--) msg.names.push([u8(), str()]);
+    }
+
+    msg.players = [];
+    for (let n = varint(); n > 0; n--) {
+        msg.players.push([u8(), fixed(), fixed(), svarint(), svarint(), u8()]);
+    }
+    msg.playersRemoved = [];
+    for (let n = varint(); n > 0; n--) msg.playersRemoved.push(u8());
+
+    msg.bullets = [];
+    let id = 0;
+    for (let n = varint(); n > 0; n--) {
+        id += varint();
+        msg.bullets.push([id, u8(), varint(), fixed(), fixed(), fixed(), fixed()]);
+    }
+    msg.bulletsRemoved = ids();
+
+    msg.asteroids = [];
+    id = 0;
+    for (let n = varint(); n > 0; n--) {
+        id += varint();
+        msg.asteroids.push([id, varint(), fixed(), fixed(), fixed(), fixed(), fixed(), svarint(), u8()]);
+    }
+    msg.asteroidsRemoved = ids();
+
+    return msg;
+}
+
 // ================== 输入 & 发送 ==================
 function setupInput() {
     document.addEventListener('keydown', (e) => {
@@ -245,20 +514,44 @@ function setupInput() {
 
 function sendInput() {
     if (!ws || ws.readyState !== WebSocket.OPEN) return;
-    if (gameState.phase !== 'IN_PROGRESS') return;
+
+    // 非游戏阶段不发输入，但仍然要 ACK，否则服务器一直发关键帧
+    if (gameState.phase !== 'IN_PROGRESS') {
+        if (lastSeq !== lastAckSent) sendAck(lastSeq);
+        return;
+    }
 
     const now = performance.now();
     if (now - lastSendTime < INPUT_SEND_INTERVAL) return;
     lastSendTime = now;
 
-    ws.send(JSON.stringify({
-        type: 'PLAYER_INPUT',
-        moveUp: keys.w,
-        moveDown: keys.s,
-        moveLeft: keys.a,
-        moveRight: keys.d,
-        fire: keys.j || keys[' ']
-    }));
+    if (useBinary) {
+        // [type u8][buttons u8][inputSeq u32][ackSeq i32]
+        let buttons = 0;
+        if (keys.w) buttons |= BTN_UP;
+        if (keys.s) buttons |= BTN_DOWN;
+        if (keys.a) buttons |= BTN_LEFT;
+        if (keys.d) buttons |= BTN_RIGHT;
+        if (keys.j || keys[' ']) buttons |= BTN_FIRE;
+
+        const view = new DataView(new ArrayBuffer(10));
+        view.setUint8(0, MSG_INPUT);
+        view.setUint8(1, buttons);
+        view.setUint32(2, ++inputSeq);
+        view.setInt32(6, lastSeq);      // 捎带 ACK
+        ws.send(view.buffer);
+    } else {
+        ws.send(JSON.stringify({
+            type: 'PLAYER_INPUT',
+            moveUp: keys.w,
+            moveDown: keys.s,
+            moveLeft: keys.a,
+            moveRight: keys.d,
+            fire: keys.j || keys[' '],
+            ack: lastSeq            // 捎带 ACK
+        }));
+    }
+    lastAckSent = lastSeq;
 }
 
 // ================== 渲染 ==================
@@ -268,6 +561,9 @@ function renderLoop() {
     ctx.fillStyle = '#000';
     ctx.fillRect(0, 0, CANVAS_WIDTH, CANVAS_HEIGHT);
 
+    updateInterpolatedState();
+    gameState.countdownMs = Math.max(0, countdownEndsAt - performance.now());
+
     switch (gameState.phase) {
         case 'WAITING':
             ctx.fillStyle = '#fff';
@@ -339,7 +635,7 @@ function renderGame() {
             return;
         }
 
-        const color = getPlayerColor(player.username);
+        const color = getPlayerColor(player.slot);
 
         // 机体
         ctx.fillStyle = color;
@@ -440,7 +736,7 @@ function updateUI() {
         const li = document.createElement('li');
         li.textContent = `✈ ${p.username}: ${p.score} (HP: ${p.hp})`;
 
-        const color = getPlayerColor(p.username);
+        const color = getPlayerColor(p.slot);
         li.style.color = color;
         if (!p.alive) {
             li.style.color = '#888';
@@ -23,6 +23,7 @@ let winMode = null;
 
 // 房间所有玩家列表（用于分配颜色）
 let allPlayers = []; // ['xushikuan', 'zhaoyuan', ...]
+let leftPlayers = new Set(); // 已经离开的玩家：之后迟到的位置消息直接丢掉
 
 // 游戏状态（合并所有玩家的数据）
 let gameState = {
@@ -156,7 +157,12 @@ function connectWebSocket() {
 
     ws.onmessage = (event) => {
         const msg = JSON.parse(event.data);
-        handleServerMessage(msg);
+        // 服务器会把同一窗口内的 gossip 合成一个数组帧，按顺序逐条处理
+        if (Array.isArray(msg)) {
+            msg.forEach(handleServerMessage);
+        } else {
+            handleServerMessage(msg);
+        }
     };
 
     ws.onerror = (error) => {
@@ -187,6 +193,7 @@ function handleServerMessage(msg) {
         case 'PLAYER_JOINED':
             console.log('[ArchB-Gossip] New player joined:', msg.username);
             allPlayers = msg.players || allPlayers;
+            leftPlayers.delete(msg.username);
             // 初始化新玩家状态
             if (msg.username && !gameState.players[msg.username]) {
                 gameState.players[msg.username] = {
@@ -202,6 +209,9 @@ function handleServerMessage(msg) {
         case 'PLAYER_LEFT':
             console.log('[ArchB-Gossip] Player left:', msg.username);
             allPlayers = msg.players || allPlayers;
+            if (msg.username) {
+                leftPlayers.add(msg.username);
+            }
             if (msg.username && gameState.players[msg.username]) {
                 gameState.players[msg.username].alive = false;
             }
@@ -275,6 +285,9 @@ function handleServerMessage(msg) {
 function updatePlayerPosition(msg) {
     const { username: uname, x, y } = msg;
     if (uname === username) return; // 忽略自己的消息
+    // 位置走状态通道，可能被 PLAYER_LEFT 等控制消息超车：
+    // 已经离开、或者不在房间名单里的玩家不能靠一条迟到的位置消息"复活"
+    if (leftPlayers.has(uname) || !allPlayers.includes(uname)) return;
 
     if (!gameState.players[uname]) {
         gameState.players[uname] = { x, y, hp: 100, score: 0, alive: true };
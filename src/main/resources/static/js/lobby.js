@@ -1,16 +1,78 @@
 // lobby.js
 
-const TABLE_COUNT = 20;
+const TABLE_COUNT = 20;   // 至少显示的桌子数，服务器桌号不设上限，多出来的按需追加
+let renderedTableCount = 0;
 
 let lobbyAutoRefreshTimer = null;
 let lobbyAutoRefreshing = false;
 let leaderboardAutoRefreshTimer = null; // 🔥 排行榜定时器
 let leaderboardData = []; // 🔥 存储排行榜数据
+let leaderboardEtag = null; // 上次排行榜的 ETag，没变化时服务器回 304
 let currentUser = null;
 let currentRoomId = null; // 当前用户所在的房间 id（如果有）
 let allowAutoEnterGame = true; // 🔥 是否允许自动进入游戏（防止无限跳转）
 let lastGameSessionId = -1; // 🔥 记录上一次的游戏局数ID，用于检测"新游戏开始"
 
+// 大厅推送（/ws/lobby）：连上时不轮询，断开时退回 500ms 轮询并定时重连
+let lobbySocket = null;
+let lobbySocketLive = false;
+const lobbySlots = [];
+const LOBBY_RECONNECT_MS = 3000;
+
+function connectLobbySocket() {
+    const protocol = window.location.protocol === 'https:' ? 'wss:' : 'ws:';
+    lobbySocket = new WebSocket(`${protocol}//${window.location.host}/ws/lobby`);
+
+    lobbySocket.onmessage = (event) => {
+        const msg = JSON.parse(event.data);
+        if (msg.type === 'LOBBY_SNAPSHOT') {
+            msg.slots.forEach(mergeLobbySlot);
+            if (!lobbySocketLive) {
+                lobbySocketLive = true;
+                stopAutoRefreshLobby();
+            }
+        } else if (msg.type === 'LOBBY_SLOT') {
+            mergeLobbySlot(msg.slot);
+        } else {
+            return;
+        }
+        // 快照到之前还在轮询，先攒着不画
+        if (lobbySocketLive) {
+            applyLobbySlots(lobbySlots.filter(Boolean));
+        }
+    };
+
+    lobbySocket.onclose = () => {
+        console.warn('[LOBBY] push channel closed, falling back to polling');
+        lobbySocket = null;
+        lobbySocketLive = false;
+        lobbySlots.length = 0;
+        startAutoRefreshLobby();
+        setTimeout(connectLobbySocket, LOBBY_RECONNECT_MS);
+    };
+}
+
+// 快照和增量可能交错到达（不同桌子之间不保证顺序），每张桌子只保留版本最大的那份
+function mergeLobbySlot(slot) {
+    const current = lobbySlots[slot.index];
+    if (!current || slot.version > current.version) {
+        lobbySlots[slot.index] = slot;
+    }
+}
+
+// 推送通道正常时变更会自己推过来，不需要再拉
+async function refreshLobby() {
+    if (!lobbySocketLive) {
+        await fetchLobby();
+    }
+}
+
+function stopAutoRefreshLobby() {
+    if (lobbyAutoRefreshTimer === null) return;
+    clearInterval(lobbyAutoRefreshTimer);
+    lobbyAutoRefreshTimer = null;
+}
+
 function startAutoRefreshLobby() {
     if (lobbyAutoRefreshTimer !== null) return;
 
@@ -48,8 +110,13 @@ function startAutoRefreshLeaderboard() {
 async function fetchLeaderboard() {
     try {
         console.log('[LEADERBOARD] Fetching data from /api/lobby/leaderboard...');
-        const resp = await authFetch('/api/lobby/leaderboard');
-        
+        const headers = leaderboardEtag ? { 'If-None-Match': leaderboardEtag } : {};
+        const resp = await authFetch('/api/lobby/leaderboard', { headers });
+
+        if (resp.status === 304) {
+            console.log('[LEADERBOARD] Not modified');
+            return;
+        }
         if (!resp.ok) {
             console.error('[LEADERBOARD] API error:', resp.status);
             return;
@@ -59,6 +126,7 @@ async function fetchLeaderboard() {
         
         // 🔥 存储到全局变量
         leaderboardData = data;
+        leaderboardEtag = resp.headers.get('ETag');
         
         console.log('[LEADERBOARD] Data received and stored:', leaderboardData);
         console.log('[LEADERBOARD] Total entries:', leaderboardData.length);
@@ -192,8 +260,9 @@ document.addEventListener('DOMContentLoaded', async () => {
 
     // 首次拉取大厅
     await fetchLobby();
-    // 启动自动刷新
+    // 订阅大厅推送（连上之前先轮询兜底）
     startAutoRefreshLobby();
+    connectLobbySocket();
     
     // 🔥 启动排行榜自动刷新（立即调用一次，然后每30秒刷新）
     startAutoRefreshLeaderboard();
@@ -223,7 +292,7 @@ document.addEventListener('DOMContentLoaded', async () => {
 
     // 顶部按钮
     btnRefresh.addEventListener('click', async () => {
-        await fetchLobby();
+        await refreshLobby();
         // 🔥 手动刷新时也获取排行榜数据
         await fetchLeaderboard();
         // 如果排行榜显示，刷新渲染
@@ -265,7 +334,14 @@ document.addEventListener('DOMContentLoaded', async () => {
 function renderEmptyTables() {
     const container = document.getElementById('tablesContainer');
     container.innerHTML = '';
-    for (let i = 0; i < TABLE_COUNT; i++) {
+    renderedTableCount = 0;
+    ensureTables(TABLE_COUNT);
+}
+
+// 桌子卡片不够时往后追加空桌
+function ensureTables(count) {
+    const container = document.getElementById('tablesContainer');
+    for (let i = renderedTableCount; i < count; i++) {
         const card = document.createElement('div');
         card.className = 'table-card';
         card.dataset.index = String(i);
@@ -281,6 +357,7 @@ function renderEmptyTables() {
         `;
         container.appendChild(card);
     }
+    renderedTableCount = Math.max(renderedTableCount, count);
 }
 
 // 向后端请求大厅数据
@@ -303,7 +380,10 @@ function applyLobbySlots(slots) {
     currentRoomId = null;
 
     // 先清空所有桌子为“空桌”
-    for (let i = 0; i < TABLE_COUNT; i++) {
+    if (Array.isArray(slots)) {
+        ensureTables(slots.reduce((max, slot) => Math.max(max, slot.index + 1), 0));
+    }
+    for (let i = 0; i < renderedTableCount; i++) {
         const statusEl = document.getElementById(`table-status-${i}`);
         const bodyEl = document.getElementById(`table-body-${i}`);
         if (!statusEl || !bodyEl) continue;
@@ -320,7 +400,7 @@ function applyLobbySlots(slots) {
 
     for (const slot of slots) {
         const idx = slot.index;
-        if (idx < 0 || idx >= TABLE_COUNT) continue;
+        if (idx < 0 || idx >= renderedTableCount) continue;
         const statusEl = document.getElementById(`table-status-${idx}`);
         const bodyEl = document.getElementById(`table-body-${idx}`);
         if (!statusEl || !bodyEl) continue;
@@ -520,7 +600,7 @@ async function onCreateRoom() {
 
         createMsg.style.color = '#8df59d';
         createMsg.textContent = 'Created successfully!';
-        await fetchLobby();
+        await refreshLobby();
     } catch (e) {
         console.error('create room error', e);
         createMsg.style.color = '#ff6b6b';
@@ -538,7 +618,7 @@ async function joinRoom(roomId) {
         if (!resp.ok) {
             console.error('join room failed', await resp.text());
         } else {
-            await fetchLobby();
+            await refreshLobby();
         }
     } catch (e) {
         console.error('joinRoom error', e);
@@ -553,7 +633,7 @@ async function leaveRoom(roomId) {
         if (!resp.ok) {
             console.error('leave room failed', await resp.text());
         } else {
-            await fetchLobby();
+            await refreshLobby();
         }
     } catch (e) {
         console.error('leaveRoom error', e);
@@ -568,7 +648,7 @@ async function toggleReady(roomId) {
         if (!resp.ok) {
             console.error('toggle ready failed', await resp.text());
         } else {
-            await fetchLobby();
+            await refreshLobby();
         }
     } catch (e) {
         console.error('toggleReady error', e);
@@ -726,8 +806,8 @@ async function startGame(roomId, mode) {
         const txt = await resp.text();
         alert(txt || 'Failed to start');
     } else {
-        // 开始成功后，由 lobby 的 500ms 轮询检测到 room.started=true 后自动跳转 game.html
-        await fetchLobbyOnce();
+        // 开始成功后，收到 room.started=true 的大厅推送（或轮询）后自动跳转 game.html
+        await refreshLobby();
     }
 }
 
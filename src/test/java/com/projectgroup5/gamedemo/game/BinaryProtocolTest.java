@@ -0,0 +1,204 @@
+package com.projectgroup5.gamedemo.game;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.projectgroup5.gamedemo.metrics.TickMetrics;
+import com.projectgroup5.gamedemo.websocket.BinaryProtocol;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.BinaryMessage;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 二进制子协议：VarIntBuffer 编码能原样解回来，STATE 帧解码后和服务器世界一致（误差不超过半个量化单位）
+ */
+class BinaryProtocolTest {
+    // 1/16 像素量化，四舍五入，最大误差半格
+    private static final double HALF_STEP = 0.5 / BinaryProtocol.POSITION_SCALE;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void varLongRoundTrip() {
+        long[] values = {0, 1, 127, 128, 255, 16383, 16384, 1L << 31, 0xFFFFFFFFL, 1L << 62,
+                Long.MAX_VALUE, -1, Long.MIN_VALUE};
+        VarIntBuffer buf = new VarIntBuffer(4);
+        for (long v : values) {
+            buf.writeVarLong(v);
+        }
+        ByteBuffer in = ByteBuffer.wrap(buf.toByteArray());
+        for (long v : values) {
+            assertEquals(v, BinaryStateDecoder.readVarLong(in));
+        }
+        assertFalse(in.hasRemaining());
+
+        assertEquals(1, encodedLength(127));
+        assertEquals(2, encodedLength(128));
+        assertEquals(2, encodedLength(16383));
+        assertEquals(3, encodedLength(16384));
+        assertEquals(10, encodedLength(-1));   // 无符号：负数占满 10 字节
+    }
+
+    @Test
+    void signedVarLongUsesZigzag() {
+        long[][] zigzag = {{0, 0}, {-1, 1}, {1, 2}, {-2, 3}, {2, 4},
+                {Long.MAX_VALUE, -2}, {Long.MIN_VALUE, -1}};
+        for (long[] pair : zigzag) {
+            VarIntBuffer buf = new VarIntBuffer(16);
+            buf.writeSignedVarLong(pair[0]);
+            assertEquals(pair[1], BinaryStateDecoder.readVarLong(ByteBuffer.wrap(buf.toByteArray())), "zigzag " + pair[0]);
+        }
+
+        long[] values = {0, -1, 1, -63, -64, -65, 63, 64, -8192, 8191, Integer.MIN_VALUE, Integer.MAX_VALUE,
+                Long.MIN_VALUE, Long.MAX_VALUE, -1_000_000_000_000L};
+        VarIntBuffer buf = new VarIntBuffer(4);
+        for (long v : values) {
+            buf.writeSignedVarLong(v);
+        }
+        ByteBuffer in = ByteBuffer.wrap(buf.toByteArray());
+        for (long v : values) {
+            assertEquals(v, BinaryStateDecoder.readSignedVarLong(in));
+        }
+        assertFalse(in.hasRemaining());
+
+        // 小的负数和正数一样短
+        VarIntBuffer small = new VarIntBuffer(4);
+        small.writeSignedVarLong(-64);
+        assertEquals(1, small.size());
+    }
+
+    @Test
+    void stringRoundTrip() {
+        String[] values = {"", "player1", "玩家一号", "emoji 🚀"};
+        VarIntBuffer buf = new VarIntBuffer(4);
+        for (String s : values) {
+            buf.writeString(s);
+        }
+        ByteBuffer in = ByteBuffer.wrap(buf.toByteArray());
+        for (String s : values) {
+            assertEquals(s, BinaryStateDecoder.readString(in));
+        }
+        assertFalse(in.hasRemaining());
+    }
+
+    @Test
+    void binaryStateMatchesWorldAndDeltasApply() throws Exception {
+        RandomMatch match = new RandomMatch(42);
+        GameWorld world = match.getWorld();
+        SnapshotRing ring = world.getSnapshots();
+        GameStateWriter writer = new GameStateWriter(mapper.getFactory(), new TickMetrics());
+        Map<Long, ClientState> keyframes = new HashMap<>();
+        int deltas = 0;
+
+        for (int f = 0; f < 2000; f++) {
+            match.step();
+            if (f % 3 != 0) continue;
+
+            WorldSnapshot snapshot = ring.capture(world, RandomMatch.DT);
+            writer.prepare(world, snapshot, ring, f, RandomMatch.DT);
+
+            JsonNode keyframe = decode(writer, -1);
+            assertEquals(snapshot.getSeq(), keyframe.get("seq").asLong());
+            assertEquals(snapshot.getFrame(), keyframe.get("frame").asLong());
+            assertFalse(keyframe.has("base"));
+            ClientState target = ClientState.apply(null, keyframe);
+            assertCloseToWorld(world, target);
+            keyframes.put(snapshot.getSeq(), target);
+
+            long baseSeq = snapshot.getSeq() - 1 - (f % 7);
+            if (ring.get(baseSeq) != null) {
+                JsonNode delta = decode(writer, baseSeq);
+                assertEquals(baseSeq, delta.get("base").asLong());
+                assertEquals(target, ClientState.apply(keyframes.get(baseSeq), delta), "seq " + snapshot.getSeq());
+                deltas++;
+            }
+        }
+        assertTrue(deltas > 0);
+    }
+
+    @Test
+    void quantizationStaysWithinHalfAStep() throws Exception {
+        GameWorld world = new GameWorld(1, "default", "SCORE", 4, 1);
+        world.setPhase(GameWorld.GamePhase.IN_PROGRESS);
+        world.addPlayer("a");
+        world.addPlayer("b");
+        world.getPlayerSlots()[0].x = -12.34;
+        world.getPlayerSlots()[0].y = 1e6 + 0.07;
+        world.getPlayerSlots()[1].x = 0.03125;
+        world.getPlayerSlots()[1].y = -0.03125;
+
+        double[] coords = {0, 0.03125, -0.03125, 0.09375, -0.09375, 1.0 / 3, -1.0 / 3,
+                -1e6 + 0.01, 1e9 + 0.5, -1e12, 1e12, 479.99, 640.01};
+        for (double c : coords) {
+            world.getBullets().add(world.nextEntityId(), 0, c, -c);
+            world.getAsteroids().add(world.nextEntityId(), -c, c, c > 0, 0.5);
+        }
+
+        SnapshotRing ring = world.getSnapshots();
+        WorldSnapshot snapshot = ring.capture(world, RandomMatch.DT);
+        GameStateWriter writer = new GameStateWriter(mapper.getFactory(), new TickMetrics());
+        writer.prepare(world, snapshot, ring, 0, RandomMatch.DT);
+        assertCloseToWorld(world, ClientState.apply(null, decode(writer, -1)));
+    }
+
+    private JsonNode decode(GameStateWriter writer, long ackSeq) throws Exception {
+        BinaryMessage message = (BinaryMessage) writer.encode(ackSeq, true);
+        return BinaryStateDecoder.decode(message.getPayload());
+    }
+
+    private static int encodedLength(long v) {
+        VarIntBuffer buf = new VarIntBuffer(16);
+        buf.writeVarLong(v);
+        return buf.size();
+    }
+
+    /** 解出来的世界和服务器世界一致：整数字段相等，坐标 / 速度误差不超过半个量化单位 */
+    private static void assertCloseToWorld(GameWorld world, ClientState state) {
+        int players = 0;
+        for (PlayerEntity p : world.getPlayerSlots()) {
+            if (p == null) continue;
+            players++;
+            assertEquals(p.username, state.names.get(p.slot));
+            JsonNode rec = state.players.get(p.slot);
+            // 玩家坐标先按 1/100 像素记进快照，再量化
+            assertEquals(p.x, rec.get(1).asDouble(), HALF_STEP + 0.005);
+            assertEquals(p.y, rec.get(2).asDouble(), HALF_STEP + 0.005);
+            assertEquals(p.hp, rec.get(3).asInt());
+            assertEquals(p.score, rec.get(4).asInt());
+            assertEquals(p.alive ? 1 : 0, rec.get(5).asInt());
+        }
+        assertEquals(players, state.players.size());
+
+        BulletStore b = world.getBullets();
+        assertEquals(b.size(), state.bullets.size());
+        for (int i = 0; i < b.size(); i++) {
+            JsonNode rec = state.bullets.get(b.id[i]);
+            assertEquals(b.ownerSlot[i], rec.get(1).asInt());
+            assertEquals(b.trajFrame[i], rec.get(2).asLong());
+            assertEquals(b.trajX[i], rec.get(3).asDouble(), HALF_STEP);
+            assertEquals(b.trajY[i], rec.get(4).asDouble(), HALF_STEP);
+            assertEquals(b.trajVx[i], rec.get(5).asDouble(), HALF_STEP);
+            assertEquals(b.trajVy[i], rec.get(6).asDouble(), HALF_STEP);
+        }
+
+        AsteroidStore a = world.getAsteroids();
+        assertEquals(a.size(), state.asteroids.size());
+        for (int i = 0; i < a.size(); i++) {
+            JsonNode rec = state.asteroids.get(a.id[i]);
+            assertEquals(a.trajFrame[i], rec.get(1).asLong());
+            assertEquals(a.trajX[i], rec.get(2).asDouble(), HALF_STEP);
+            assertEquals(a.trajY[i], rec.get(3).asDouble(), HALF_STEP);
+            assertEquals(a.trajVx[i], rec.get(4).asDouble(), HALF_STEP);
+            assertEquals(a.trajVy[i], rec.get(5).asDouble(), HALF_STEP);
+            assertEquals(a.radius[i], rec.get(6).asDouble(), HALF_STEP);
+            assertEquals(a.hp[i], rec.get(7).asInt());
+            assertEquals(a.big[i] ? 1 : 0, rec.get(8).asInt());
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.projectgroup5.gamedemo.game;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.projectgroup5.gamedemo.websocket.BinaryProtocol;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 测试用：二进制 STATE 解码成和 JSON 一样的消息结构（与 game-architecture-a.js 的 decodeBinary 对应）
+ */
+final class BinaryStateDecoder {
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+
+    private final ByteBuffer buf;
+
+    private BinaryStateDecoder(ByteBuffer buf) {
+        this.buf = buf;
+    }
+
+    static JsonNode decode(ByteBuffer payload) {
+        return new BinaryStateDecoder(payload.duplicate()).decode();
+    }
+
+    static long readVarLong(ByteBuffer buf) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buf.get();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return result;
+        }
+        throw new IllegalStateException("varint too long");
+    }
+
+    static long readSignedVarLong(ByteBuffer buf) {
+        long v = readVarLong(buf);
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    static String readString(ByteBuffer buf) {
+        byte[] bytes = new byte[(int) readVarLong(buf)];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private JsonNode decode() {
+        if (u8() != BinaryProtocol.MSG_STATE) {
+            throw new IllegalStateException("not a STATE message");
+        }
+        ObjectNode msg = NODES.objectNode();
+        msg.put("type", "GAME_STATE");
+        msg.put("seq", varint());
+        long base = varint();
+        if (base != 0) msg.put("base", base);
+        msg.put("frame", varint());
+        msg.put("dt", varint() / 1e6);
+        GameWorld.GamePhase phase = GameWorld.GamePhase.values()[u8()];
+        msg.put("phase", phase.name());
+        long timeMs = varint();
+        if (phase == GameWorld.GamePhase.COUNTDOWN) msg.put("countdownMs", timeMs);
+        if (phase == GameWorld.GamePhase.IN_PROGRESS) msg.put("elapsedMs", timeMs);
+        int flags = u8();
+
+        if ((flags & BinaryProtocol.FLAG_NAMES) != 0) {
+            ArrayNode names = msg.putArray("names");
+            for (int n = u8(); n > 0; n--) {
+                names.addArray().add(u8()).add(readString(buf));
+            }
+        }
+
+        ArrayNode players = msg.putArray("players");
+        for (long n = varint(); n > 0; n--) {
+            players.addArray().add(u8()).add(fixed()).add(fixed()).add(svarint()).add(svarint()).add(u8());
+        }
+        ArrayNode playersRemoved = msg.putArray("playersRemoved");
+        for (long n = varint(); n > 0; n--) {
+            playersRemoved.add(u8());
+        }
+
+        ArrayNode bullets = msg.putArray("bullets");
+        long id = 0;
+        for (long n = varint(); n > 0; n--) {
+            id += varint();
+            bullets.addArray().add(id).add(u8()).add(varint()).add(fixed()).add(fixed()).add(fixed()).add(fixed());
+        }
+        ids(msg.putArray("bulletsRemoved"));
+
+        ArrayNode asteroids = msg.putArray("asteroids");
+        id = 0;
+        for (long n = varint(); n > 0; n--) {
+            id += varint();
+            asteroids.addArray().add(id).add(varint()).add(fixed()).add(fixed()).add(fixed()).add(fixed())
+                    .add(fixed()).add(svarint()).add(u8());
+        }
+        ids(msg.putArray("asteroidsRemoved"));
+
+        if (buf.hasRemaining()) {
+            throw new IllegalStateException(buf.remaining() + " trailing bytes");
+        }
+        return msg;
+    }
+
+    private void ids(ArrayNode out) {
+        long id = 0;
+        for (long n = varint(); n > 0; n--) {
+            out.add(id += varint());
+        }
+    }
+
+    private int u8() {
+        return buf.get() & 0xFF;
+    }
+
+    private long varint() {
+        return readVarLong(buf);
+    }
+
+    private long svarint() {
+        return readSignedVarLong(buf);
+    }
+
+    private double fixed() {
+        return (double) svarint() / BinaryProtocol.POSITION_SCALE;
+    }
+}
@@ -0,0 +1,72 @@
+package com.projectgroup5.gamedemo.game;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * 测试用：客户端看到的世界（与 game-architecture-a.js 的 applySnapshot 同样的合并规则）
+ *
+ * 玩家按座位、子弹 / 石头按 id 保存线上的定长数组，名字只在消息带 names 时整体替换
+ */
+final class ClientState {
+    final Map<Integer, String> names = new TreeMap<>();
+    final Map<Integer, JsonNode> players = new TreeMap<>();
+    final Map<Integer, JsonNode> bullets = new TreeMap<>();
+    final Map<Integer, JsonNode> asteroids = new TreeMap<>();
+
+    /**
+     * 把一条 GAME_STATE 应用到 base 上；base 为 null 表示关键帧（从空集合开始）
+     */
+    static ClientState apply(ClientState base, JsonNode msg) {
+        ClientState s = new ClientState();
+        if (base != null) {
+            s.names.putAll(base.names);
+            s.players.putAll(base.players);
+            s.bullets.putAll(base.bullets);
+            s.asteroids.putAll(base.asteroids);
+        }
+        if (msg.has("names")) {
+            s.names.clear();
+            for (JsonNode n : msg.get("names")) {
+                s.names.put(n.get(0).asInt(), n.get(1).asText());
+            }
+        }
+        merge(s.players, msg.get("playersRemoved"), msg.get("players"));
+        merge(s.bullets, msg.get("bulletsRemoved"), msg.get("bullets"));
+        merge(s.asteroids, msg.get("asteroidsRemoved"), msg.get("asteroids"));
+        return s;
+    }
+
+    private static void merge(Map<Integer, JsonNode> target, JsonNode removed, JsonNode upserts) {
+        if (removed != null) {
+            for (JsonNode key : removed) {
+                target.remove(key.asInt());
+            }
+        }
+        if (upserts != null) {
+            for (JsonNode entity : upserts) {
+                target.put(entity.get(0).asInt(), entity);
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof ClientState other)) return false;
+        return names.equals(other.names) && players.equals(other.players)
+                && bullets.equals(other.bullets) && asteroids.equals(other.asteroids);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(names, players, bullets, asteroids);
+    }
+
+    @Override
+    public String toString() {
+        return "names=" + names + "\nplayers=" + players + "\nbullets=" + bullets + "\nasteroids=" + asteroids;
+    }
+}
@@ -0,0 +1,111 @@
+package com.projectgroup5.gamedemo.game;
+
+import com.projectgroup5.gamedemo.event.EventBus;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * SPATIAL_HASH 与 BRUTE_FORCE 在同一个世界上必须得到完全相同的碰撞结果
+ */
+class PhysicsEngineBroadphaseTest {
+
+    private static final int WORLDS = 500;
+
+    @Test
+    void spatialHashMatchesBruteForceOnRandomWorlds() {
+        for (long seed = 1; seed <= WORLDS; seed++) {
+            GameWorld expected = randomWorld(seed);
+            GameWorld actual = randomWorld(seed);
+
+            new PhysicsEngine(new EventBus(), BroadphaseStrategy.BRUTE_FORCE).detectCollisions(expected);
+            new PhysicsEngine(new EventBus(), BroadphaseStrategy.SPATIAL_HASH).detectCollisions(actual);
+
+            assertEquals(describe(expected), describe(actual), "seed " + seed);
+        }
+    }
+
+    @Test
+    void bulletOverlappingTwoAsteroidsHitsTheSameOne() {
+        for (BroadphaseStrategy strategy : BroadphaseStrategy.values()) {
+            GameWorld world = new GameWorld(1, "default", "SCORE", 1, 1);
+            world.addPlayer("p0");
+            // 两个石头在同一个格子里，子弹同时碰到两个：都应该打中下标小的那个
+            world.getAsteroids().add(world.nextEntityId(), 100, 100, false, 0);
+            world.getAsteroids().add(world.nextEntityId(), 110, 100, false, 0);
+            world.getBullets().add(world.nextEntityId(), 0, 105, 100);
+
+            new PhysicsEngine(new EventBus(), strategy).detectCollisions(world);
+
+            assertEquals(1, world.getAsteroids().size(), strategy.name());
+            assertEquals(2, world.getAsteroids().id[0], strategy.name());
+        }
+    }
+
+    /**
+     * 随机但密集的世界：实体集中在几个热点附近，保证有大量重叠（含一颗子弹同时碰到多个石头），
+     * 也放一些在世界边界外，检查网格夹边
+     */
+    private static GameWorld randomWorld(long seed) {
+        SplitMix64 random = new SplitMix64(seed);
+        GameWorld world = new GameWorld(seed, "default", "SCORE", 4, seed);
+        int players = 1 + (int) (random.nextDouble() * 4);
+        for (int i = 0; i < players; i++) {
+            world.addPlayer("p" + i);
+        }
+
+        double[][] hotspots = new double[3][];
+        for (int i = 0; i < hotspots.length; i++) {
+            hotspots[i] = new double[]{
+                    -40 + random.nextDouble() * (PhysicsEngine.WORLD_WIDTH + 80),
+                    -40 + random.nextDouble() * (PhysicsEngine.WORLD_HEIGHT + 80)};
+        }
+        for (PlayerEntity player : world.getPlayerSlots()) {
+            if (player == null) continue;
+            double[] h = hotspots[(int) (random.nextDouble() * hotspots.length)];
+            player.x = h[0] + (random.nextDouble() - 0.5) * 80;
+            player.y = h[1] + (random.nextDouble() - 0.5) * 80;
+            player.hp = 1 + (int) (random.nextDouble() * 20);
+        }
+
+        int asteroids = (int) (random.nextDouble() * 40);
+        for (int i = 0; i < asteroids; i++) {
+            double[] h = hotspots[(int) (random.nextDouble() * hotspots.length)];
+            world.getAsteroids().add(world.nextEntityId(),
+                    h[0] + (random.nextDouble() - 0.5) * 120,
+                    h[1] + (random.nextDouble() - 0.5) * 120,
+                    random.nextDouble() < 0.5, random.nextDouble());
+        }
+        int bullets = (int) (random.nextDouble() * 60);
+        for (int i = 0; i < bullets; i++) {
+            double[] h = hotspots[(int) (random.nextDouble() * hotspots.length)];
+            world.getBullets().add(world.nextEntityId(), (int) (random.nextDouble() * players),
+                    h[0] + (random.nextDouble() - 0.5) * 120,
+                    h[1] + (random.nextDouble() - 0.5) * 120);
+        }
+        return world;
+    }
+
+    /** 碰撞后的世界状态（按实体 id 排序，与存储下标无关） */
+    private static String describe(GameWorld world) {
+        List<String> lines = new ArrayList<>();
+        for (PlayerEntity p : world.getPlayerSlots()) {
+            if (p != null) lines.add("player " + p.username + " hp=" + p.hp + " alive=" + p.alive + " score=" + p.score);
+        }
+        AsteroidStore asteroids = world.getAsteroids();
+        List<String> entities = new ArrayList<>();
+        for (int i = 0; i < asteroids.size(); i++) {
+            entities.add(String.format("asteroid %05d hp=%d", asteroids.id[i], asteroids.hp[i]));
+        }
+        BulletStore bullets = world.getBullets();
+        for (int i = 0; i < bullets.size(); i++) {
+            entities.add(String.format("bullet %05d", bullets.id[i]));
+        }
+        entities.sort(null);
+        lines.addAll(entities);
+        return String.join("\n", lines);
+    }
+}
@@ -0,0 +1,61 @@
+package com.projectgroup5.gamedemo.game;
+
+import com.projectgroup5.gamedemo.event.EventBus;
+
+/**
+ * 测试用：按种子随机推进一局 Arch A（真实的 PhysicsEngine + 随机输入），
+ * 并随机加入 / 离开玩家、扣血加分，让快照在各个维度上都有变化
+ */
+class RandomMatch {
+    static final int SIM_HZ = 60;
+    static final double DT = 1.0 / SIM_HZ;
+
+    private final GameWorld world;
+    private final PhysicsEngine physics = new PhysicsEngine(new EventBus(), BroadphaseStrategy.SPATIAL_HASH);
+    private final SplitMix64 random;
+    private int joined;
+
+    RandomMatch(long seed) {
+        this.random = new SplitMix64(seed);
+        this.world = new GameWorld(1, "default", "SCORE", 4, seed);
+        world.setGameStartTime(0);
+        world.setPhase(GameWorld.GamePhase.IN_PROGRESS);
+        world.addPlayer("player" + joined++);
+        world.addPlayer("player" + joined++);
+    }
+
+    /** 模拟一帧 */
+    void step() {
+        PlayerEntity[] slots = world.getPlayerSlots();
+        if (random.nextDouble() < 0.02) {
+            int slot = random.nextInt(slots.length);
+            if (slots[slot] != null) {
+                world.removePlayer(slots[slot].username);
+            } else {
+                world.addPlayerAt(slot, "player" + joined++);
+            }
+        }
+
+        int[] buttons = world.getPendingButtons();
+        boolean[] fire = world.getPendingFire();
+        for (int s = 0; s < slots.length; s++) {
+            if (slots[s] == null || random.nextDouble() < 0.3) continue;
+            buttons[s] = random.nextInt(16);
+            fire[s] = random.nextDouble() < 0.5;
+        }
+        for (PlayerEntity p : slots) {
+            if (p == null) continue;
+            if (random.nextDouble() < 0.01) p.score += 5;
+            if (random.nextDouble() < 0.005 && p.hp > 0) p.hp--;
+        }
+
+        physics.applyPendingInputs(world, world.getCurrentFrameNumber() * 1000L / SIM_HZ);
+        physics.updatePositions(world, DT);
+        physics.detectCollisions(world);
+        world.incrementFrame();
+    }
+
+    GameWorld getWorld() {
+        return world;
+    }
+}
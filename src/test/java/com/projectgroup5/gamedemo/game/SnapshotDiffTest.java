@@ -0,0 +1,121 @@
+package com.projectgroup5.gamedemo.game;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.projectgroup5.gamedemo.metrics.TickMetrics;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.TextMessage;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 增量快照：客户端把 diff(base -> target) 应用到 base 上，必须得到和 target 关键帧完全一样的世界
+ */
+class SnapshotDiffTest {
+    private static final int FRAMES = 3000;
+    private static final int FRAMES_PER_SEND = 3;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void applyingDeltaToBaseGivesTargetKeyframe() throws Exception {
+        for (long seed = 1; seed <= 5; seed++) {
+            RandomMatch match = new RandomMatch(seed);
+            GameWorld world = match.getWorld();
+            SnapshotRing ring = world.getSnapshots();
+            GameStateWriter writer = new GameStateWriter(mapper.getFactory(), new TickMetrics());
+            SplitMix64 random = new SplitMix64(~seed);
+
+            // seq -> 该快照关键帧解出来的客户端世界
+            Map<Long, ClientState> keyframes = new HashMap<>();
+            int removals = 0, playersRemoved = 0, rosterChanges = 0, deltas = 0;
+
+            for (int f = 0; f < FRAMES; f++) {
+                match.step();
+                if (f % FRAMES_PER_SEND != 0) continue;
+
+                WorldSnapshot snapshot = ring.capture(world, RandomMatch.DT);
+                writer.prepare(world, snapshot, ring, f, RandomMatch.DT);
+
+                JsonNode keyframe = encode(writer, -1);
+                assertFalse(keyframe.has("base"));
+                ClientState target = ClientState.apply(null, keyframe);
+                assertMatchesWorld(world, target);
+                keyframes.put(snapshot.getSeq(), target);
+
+                // 最近一个、环里随机一个、已经被覆盖的各试一次
+                long[] bases = {
+                        snapshot.getSeq() - 1,
+                        snapshot.getSeq() - 1 - random.nextInt(ring.capacity() - 1),
+                        snapshot.getSeq() - ring.capacity() - random.nextInt(8)};
+                for (long baseSeq : bases) {
+                    if (baseSeq <= 0) continue;
+                    JsonNode delta = encode(writer, baseSeq);
+                    if (ring.get(baseSeq) == null) {
+                        // 基线已经不在环里：必须退回关键帧
+                        assertFalse(delta.has("base"), "seq " + snapshot.getSeq() + " base " + baseSeq);
+                        assertEquals(target, ClientState.apply(null, delta));
+                        continue;
+                    }
+                    assertEquals(baseSeq, delta.get("base").asLong());
+                    assertEquals(target, ClientState.apply(keyframes.get(baseSeq), delta),
+                            "seed " + seed + " seq " + snapshot.getSeq() + " base " + baseSeq);
+
+                    deltas++;
+                    removals += delta.get("bulletsRemoved").size() + delta.get("asteroidsRemoved").size();
+                    playersRemoved += delta.get("playersRemoved").size();
+                    if (delta.has("names")) rosterChanges++;
+                }
+            }
+
+            // 确认随机过程真的覆盖到了实体删除和座位表变化
+            assertTrue(deltas > 0 && removals > 0 && playersRemoved > 0 && rosterChanges > 0,
+                    "deltas=" + deltas + " removals=" + removals
+                            + " playersRemoved=" + playersRemoved + " rosterChanges=" + rosterChanges);
+        }
+    }
+
+    private JsonNode encode(GameStateWriter writer, long ackSeq) throws Exception {
+        TextMessage message = (TextMessage) writer.encode(ackSeq, false);
+        return mapper.readTree(message.getPayload());
+    }
+
+    /** 关键帧本身要和服务器世界一致（座位、名字、实体 id、hp） */
+    private static void assertMatchesWorld(GameWorld world, ClientState state) {
+        Map<Integer, String> names = new HashMap<>();
+        for (PlayerEntity p : world.getPlayerSlots()) {
+            if (p != null) names.put(p.slot, p.username);
+        }
+        assertEquals(names, state.names);
+        assertEquals(names.keySet(), state.players.keySet());
+        for (PlayerEntity p : world.getPlayerSlots()) {
+            if (p == null) continue;
+            JsonNode rec = state.players.get(p.slot);
+            assertEquals(p.hp, rec.get(3).asInt());
+            assertEquals(p.score, rec.get(4).asInt());
+        }
+
+        BulletStore bullets = world.getBullets();
+        Set<Integer> bulletIds = new TreeSet<>();
+        for (int i = 0; i < bullets.size(); i++) {
+            bulletIds.add(bullets.id[i]);
+        }
+        assertEquals(bulletIds, state.bullets.keySet());
+
+        AsteroidStore asteroids = world.getAsteroids();
+        Map<Integer, Integer> asteroidHp = new HashMap<>();
+        for (int i = 0; i < asteroids.size(); i++) {
+            asteroidHp.put(asteroids.id[i], asteroids.hp[i]);
+        }
+        Map<Integer, Integer> decodedHp = new HashMap<>();
+        state.asteroids.forEach((id, rec) -> decodedHp.put(id, rec.get(7).asInt()));
+        assertEquals(asteroidHp, decodedHp);
+    }
+}
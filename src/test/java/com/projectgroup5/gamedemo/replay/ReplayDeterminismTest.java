@@ -0,0 +1,213 @@
+package com.projectgroup5.gamedemo.replay;
+
+import com.projectgroup5.gamedemo.event.EventBus;
+import com.projectgroup5.gamedemo.game.AsteroidStore;
+import com.projectgroup5.gamedemo.game.BroadphaseStrategy;
+import com.projectgroup5.gamedemo.game.BulletStore;
+import com.projectgroup5.gamedemo.game.GameWorld;
+import com.projectgroup5.gamedemo.game.InputRing;
+import com.projectgroup5.gamedemo.game.PhysicsEngine;
+import com.projectgroup5.gamedemo.game.PlayerEntity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 回放确定性：录下来的一局重新模拟，最终世界必须和线上那局逐位相同
+ *
+ * 线上那局按 GameTickScheduler 的 IN_PROGRESS 顺序推进（取输入 -> 录制 -> 输入 -> 位置 -> 碰撞 -> 帧号 +1），
+ * 输入走真实的 InputRing，一帧里可能有多条；中途随机有人离开 / 补位
+ */
+class ReplayDeterminismTest {
+    private static final int SIM_HZ = 60;
+    private static final double DT = 1.0 / SIM_HZ;
+    private static final int FRAMES = 4000;
+    // 段开小一点，让记录跨好几段
+    private static final int SEGMENT_BYTES = 4096;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void resimulatedGameMatchesLiveGame() throws Exception {
+        for (long seed = 1; seed <= 3; seed++) {
+            for (BroadphaseStrategy broadphase : BroadphaseStrategy.values()) {
+                GameWorld live = playAndRecord(seed, broadphase, fileName(seed, broadphase), Runnable::run, null);
+
+                ReplayFile replay = ReplayFile.read(dir.resolve(fileName(seed, broadphase)));
+                assertTrue(replay.isComplete());
+                assertEquals(FRAMES, replay.getTotalFrames());
+                assertEquals(broadphase, replay.getBroadphase());
+
+                ReplaySimulation sim = new ReplaySimulation(replay);
+                assertEquals(FRAMES, sim.advance(Integer.MAX_VALUE));
+                assertTrue(sim.isFinished());
+                assertFalse(sim.step());
+
+                assertEquals(describe(live), describe(sim.getWorld()), "seed " + seed + " " + broadphase);
+            }
+        }
+    }
+
+    /**
+     * 后台准备下一段的任务排队太久（维护线程在做 fsync / 保留策略），tick 线程已经自己映射了那一段并写了记录，
+     * 迟到的任务不能再往这一段里写 0
+     */
+    @Test
+    void latePreparationDoesNotOverwriteRecords() throws Exception {
+        LateExecutor late = new LateExecutor();
+        GameWorld live = playAndRecord(5, BroadphaseStrategy.SPATIAL_HASH, "late.rpl", late, late);
+        assertTrue(late.ranLate >= 3, "late tasks " + late.ranLate);
+
+        ReplaySimulation sim = new ReplaySimulation(ReplayFile.read(dir.resolve("late.rpl")));
+        assertEquals(FRAMES, sim.advance(Integer.MAX_VALUE));
+        assertEquals(describe(live), describe(sim.getWorld()));
+    }
+
+    @Test
+    void interruptedRecordingReplaysUpToLastRecord() throws Exception {
+        GameWorld world = newWorld(7);
+        PhysicsEngine physics = new PhysicsEngine(new EventBus(), BroadphaseStrategy.SPATIAL_HASH);
+        ReplayWriter writer = new ReplayWriter(dir.resolve("crash.rpl"), SEGMENT_BYTES, Runnable::run,
+                world, BroadphaseStrategy.SPATIAL_HASH, SIM_HZ, 0);
+        long lastInputFrame = -1;
+        for (int f = 0; f < 300; f++) {
+            if (f % 10 == 0) {
+                world.getInputRing().offer(0, InputRing.BTN_RIGHT | InputRing.BTN_FIRE);
+                lastInputFrame = f;
+            }
+            tick(world, physics, writer);
+        }
+        // 没有 finish：模拟进程崩溃，文件里剩下预分配的 0
+        writer.close();
+
+        ReplayFile replay = ReplayFile.read(dir.resolve("crash.rpl"));
+        assertFalse(replay.isComplete());
+        assertEquals(lastInputFrame + 1, replay.getTotalFrames());
+        assertEquals(lastInputFrame + 1, new ReplaySimulation(replay).advance(Integer.MAX_VALUE));
+    }
+
+    /** 按线上 tick 的顺序跑一局并录制，返回最终世界；late 不为 null 时每帧之后让它执行到期的准备任务 */
+    private GameWorld playAndRecord(long seed, BroadphaseStrategy broadphase, String file,
+                                    Executor preparer, LateExecutor late) throws Exception {
+        GameWorld world = newWorld(seed);
+        PhysicsEngine physics = new PhysicsEngine(new EventBus(), broadphase);
+        ReplayWriter writer = new ReplayWriter(dir.resolve(file), SEGMENT_BYTES,
+                preparer, world, broadphase, SIM_HZ, 0);
+        if (late != null) late.writer = writer;
+        SplittableRandom random = new SplittableRandom(seed);
+        int joined = world.getPlayers().size();
+
+        for (int f = 0; f < FRAMES; f++) {
+            PlayerEntity[] slots = world.getPlayerSlots();
+            if (random.nextDouble() < 0.01) {
+                int slot = random.nextInt(slots.length);
+                if (slots[slot] != null) {
+                    world.removePlayer(slots[slot].username);
+                } else {
+                    world.addPlayerAt(slot, "player" + joined++);
+                }
+            }
+            for (int s = 0; s < slots.length; s++) {
+                // 空座位也可能收到输入（离开前发出的），回放时同样要被忽略
+                for (int n = random.nextInt(3); n > 0; n--) {
+                    world.getInputRing().offer(s, random.nextInt(32));
+                }
+            }
+            tick(world, physics, writer);
+            if (late != null) late.runDue();
+        }
+        writer.finish(world.getCurrentFrameNumber());
+        writer.close();
+        return world;
+    }
+
+    private static void tick(GameWorld world, PhysicsEngine physics, ReplayWriter writer) {
+        world.drainInputs();
+        writer.recordTick(world);
+        physics.applyPendingInputs(world, world.getCurrentFrameNumber() * 1000L / SIM_HZ);
+        physics.updatePositions(world, DT);
+        physics.detectCollisions(world);
+        world.incrementFrame();
+    }
+
+    /**
+     * 把准备任务压住，直到写入位置越过提交时位置一整段（tick 线程肯定已经切进了任务要准备的那一段）才执行
+     */
+    private static final class LateExecutor implements Executor {
+        final Deque<Runnable> tasks = new ArrayDeque<>();
+        final Deque<Long> submittedAt = new ArrayDeque<>();
+        ReplayWriter writer;
+        int ranLate;
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+            submittedAt.add(writer.length());
+        }
+
+        void runDue() {
+            while (!tasks.isEmpty() && writer.length() >= submittedAt.peek() + SEGMENT_BYTES) {
+                submittedAt.poll();
+                tasks.poll().run();
+                ranLate++;
+            }
+        }
+    }
+
+    private static GameWorld newWorld(long seed) {
+        GameWorld world = new GameWorld(seed, "default", "SCORE", 4, seed);
+        world.setGameStartTime(0);
+        world.setPhase(GameWorld.GamePhase.IN_PROGRESS);
+        world.addPlayer("player0");
+        world.addPlayer("player1");
+        world.addPlayer("player2");
+        return world;
+    }
+
+    private static String fileName(long seed, BroadphaseStrategy broadphase) {
+        return seed + "-" + broadphase + ReplayFormat.FILE_SUFFIX;
+    }
+
+    /** 世界的完整状态（double 用 toString，逐位比较） */
+    private static String describe(GameWorld world) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("frame=").append(world.getCurrentFrameNumber())
+                .append(" spawnTimer=").append(world.getAsteroidSpawnTimer()).append('\n');
+        for (PlayerEntity p : world.getPlayerSlots()) {
+            if (p == null) {
+                sb.append("-\n");
+                continue;
+            }
+            sb.append(p.slot).append(' ').append(p.username)
+                    .append(" pos=").append(p.x).append(',').append(p.y)
+                    .append(" vel=").append(p.velocityX).append(',').append(p.velocityY)
+                    .append(" hp=").append(p.hp).append(" score=").append(p.score)
+                    .append(" alive=").append(p.alive).append(" fired=").append(p.lastFireTime).append('\n');
+        }
+        BulletStore b = world.getBullets();
+        for (int i = 0; i < b.size(); i++) {
+            sb.append("b ").append(b.id[i]).append(" owner=").append(b.ownerSlot[i])
+                    .append(" pos=").append(b.x[i]).append(',').append(b.y[i])
+                    .append(" vel=").append(b.vx[i]).append(',').append(b.vy[i])
+                    .append(" hp=").append(b.hp[i]).append('\n');
+        }
+        AsteroidStore a = world.getAsteroids();
+        for (int i = 0; i < a.size(); i++) {
+            sb.append("a ").append(a.id[i]).append(" big=").append(a.big[i]).append(" r=").append(a.radius[i])
+                    .append(" pos=").append(a.x[i]).append(',').append(a.y[i])
+                    .append(" vel=").append(a.vx[i]).append(',').append(a.vy[i])
+                    .append(" hp=").append(a.hp[i]).append('\n');
+        }
+        return sb.toString();
+    }
+}